@@ -1,13 +1,33 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.service.GateEventReplay;
+import com.parkit.parkingsystem.service.HourlyRollupJob;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingHttpServer;
+import com.parkit.parkingsystem.service.TicketArchiveJob;
+import com.parkit.parkingsystem.service.TicketRepricingJob;
+import com.parkit.parkingsystem.service.TrafficSimulator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
-    public static void main(String args[]){
+    public static void main(String args[]) throws Exception {
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        if (args.length > 0 && "server".equals(args[0])) {
+            ParkingHttpServer.launch();
+        } else if (args.length > 0 && "reprice".equals(args[0])) {
+            TicketRepricingJob.launch(args);
+        } else if (args.length > 0 && "rollups".equals(args[0])) {
+            HourlyRollupJob.launch(args);
+        } else if (args.length > 0 && "archive".equals(args[0])) {
+            TicketArchiveJob.launch();
+        } else if (args.length > 0 && "simulate".equals(args[0])) {
+            TrafficSimulator.launch();
+        } else if (args.length > 0 && "replay".equals(args[0])) {
+            GateEventReplay.launch(args);
+        } else {
+            InteractiveShell.loadInterface();
+        }
     }
 }
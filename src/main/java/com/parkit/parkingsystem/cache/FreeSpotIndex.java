@@ -0,0 +1,173 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory copy of the free spots of the parking table: one bitset per {@link ParkingType},
+ * bit n set when spot number n is free. Bits are flipped with compare-and-set, so gates never block each other.
+ * Each type also keeps a hint on the lowest word that may still hold a free spot, which keeps
+ * lookups close to constant time instead of scanning the whole lot.
+ * The database stays the durable record; this index must be the only writer's view of the lot.
+ * The index covers the spot numbers up to the largest one it was made for; other spots are never free in it.
+ */
+public class FreeSpotIndex {
+
+    private final AtomicLongArray[] freeSpots;
+    private final AtomicInteger[] lowestFreeWord;
+
+    public FreeSpotIndex(int maxSpotNumber) {
+        int words = (maxSpotNumber >>> 6) + 1;
+        ParkingType[] types = ParkingType.values();
+        freeSpots = new AtomicLongArray[types.length];
+        lowestFreeWord = new AtomicInteger[types.length];
+        for (ParkingType type : types) {
+            freeSpots[type.ordinal()] = new AtomicLongArray(words);
+            lowestFreeWord[type.ordinal()] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Build the index from the rows of the parking table.
+     */
+    public static FreeSpotIndex load(List<ParkingSpot> parkingSpots) {
+        int maxSpotNumber = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            maxSpotNumber = Math.max(maxSpotNumber, parkingSpot.getId());
+        }
+        FreeSpotIndex index = new FreeSpotIndex(maxSpotNumber);
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (parkingSpot.isAvailable()) {
+                index.release(parkingSpot);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the lowest free spot number of this type, or 0 when the lot is full. The spot is not reserved.
+     */
+    public int nextFree(ParkingType parkingType) {
+        AtomicLongArray bits = freeSpots[parkingType.ordinal()];
+        int word = firstFreeWord(parkingType);
+        return (word < 0) ? 0 : (word << 6) + Long.numberOfTrailingZeros(bits.get(word));
+    }
+
+    /**
+     * Reserve the lowest free spot of this type.
+     * @return the reserved spot number, or 0 when the lot is full
+     */
+    public int claim(ParkingType parkingType) {
+        AtomicLongArray bits = freeSpots[parkingType.ordinal()];
+        int word;
+        while ((word = firstFreeWord(parkingType)) >= 0) {
+            long value = bits.get(word);
+            long lowestBit = Long.lowestOneBit(value);
+            if (value != 0 && bits.compareAndSet(word, value, value & ~lowestBit)) {
+                return (word << 6) + Long.numberOfTrailingZeros(lowestBit);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return true when the number of the spot is within the index
+     */
+    public boolean covers(ParkingSpot parkingSpot) {
+        int number = parkingSpot.getId();
+        return number >= 0 && (number >>> 6) < freeSpots[parkingSpot.getParkingType().ordinal()].length();
+    }
+
+    /**
+     * Reserve a given spot.
+     * @return false when the spot was not free or is not covered by the index
+     */
+    public boolean claim(ParkingSpot parkingSpot) {
+        if (!covers(parkingSpot)) {
+            return false;
+        }
+        int number = parkingSpot.getId();
+        AtomicLongArray bits = freeSpots[parkingSpot.getParkingType().ordinal()];
+        long bit = 1L << number;
+        long value;
+        do {
+            value = bits.get(number >>> 6);
+            if ((value & bit) == 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(number >>> 6, value, value & ~bit));
+        return true;
+    }
+
+    /**
+     * Give a spot back to the free pool.
+     * @return false when the spot is not covered by the index, which is left unchanged
+     */
+    public boolean release(ParkingSpot parkingSpot) {
+        if (!covers(parkingSpot)) {
+            return false;
+        }
+        int number = parkingSpot.getId();
+        int type = parkingSpot.getParkingType().ordinal();
+        AtomicLongArray bits = freeSpots[type];
+        int word = number >>> 6;
+        long bit = 1L << number;
+        long value;
+        do {
+            value = bits.get(word);
+        } while ((value & bit) == 0 && !bits.compareAndSet(word, value, value | bit));
+        lowerHint(lowestFreeWord[type], word);
+        return true;
+    }
+
+    /**
+     * Walk up from the hint to the first word holding a free spot, moving the hint past empty words.
+     * @return the word index, or -1 when no spot of this type is free
+     */
+    private int firstFreeWord(ParkingType parkingType) {
+        AtomicLongArray bits = freeSpots[parkingType.ordinal()];
+        AtomicInteger hint = lowestFreeWord[parkingType.ordinal()];
+        int word = hint.get();
+        while (word < bits.length()) {
+            if (bits.get(word) != 0) {
+                return word;
+            }
+            // nothing left below the next word, move the hint up unless a release lowered it meanwhile
+            if (hint.compareAndSet(word, word + 1) && bits.get(word) != 0) {
+                // a spot was released while the hint moved, put it back
+                lowerHint(hint, word);
+                continue;
+            }
+            word++;
+        }
+        return -1;
+    }
+
+    private static void lowerHint(AtomicInteger hint, int word) {
+        int current;
+        while (word < (current = hint.get()) && !hint.compareAndSet(current, word)) {
+            // another gate moved the hint, check again
+        }
+    }
+
+    public boolean isFree(ParkingSpot parkingSpot) {
+        if (!covers(parkingSpot)) {
+            return false;
+        }
+        int number = parkingSpot.getId();
+        return (freeSpots[parkingSpot.getParkingType().ordinal()].get(number >>> 6) & (1L << number)) != 0;
+    }
+
+    public int countFree(ParkingType parkingType) {
+        AtomicLongArray bits = freeSpots[parkingType.ordinal()];
+        int count = 0;
+        for (int word = 0; word < bits.length(); word++) {
+            count += Long.bitCount(bits.get(word));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,195 @@
+package com.parkit.parkingsystem.cache;
+
+import java.util.Arrays;
+
+/**
+ * Map of long keys to int values held in two arrays, with no object per entry: open addressing with
+ * linear probing, entries moved back on removal instead of leaving tombstones. Made for per-vehicle data keyed
+ * by {@link com.parkit.parkingsystem.util.PlateCodec} codes, so key 0, the code of no plate, marks the empty
+ * slots and cannot be stored. The slots are exposed for callers sweeping the entries, like an eviction clock;
+ * a removal may move an entry to another slot. Not thread-safe.
+ */
+public class LongIntHashMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * @param expectedSize number of entries held without growing the arrays
+     */
+    public LongIntHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative");
+        }
+        // at most 3/4 of the slots used, so probe sequences stay short
+        long capacity = Long.highestOneBit(Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3) * 2 - 1);
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("expectedSize too large: " + expectedSize);
+        }
+        allocate((int) capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the value of the key, or missing when it is not in the map
+     */
+    public int get(long key, int missing) {
+        int slot = indexOf(key);
+        return (slot < 0) ? missing : values[slot];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the previous value of the key, or missing when it was not in the map
+     * @throws IllegalArgumentException for key 0
+     */
+    public int put(long key, int value, int missing) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 marks the empty slots");
+        }
+        int slot = slotOf(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            grow();
+        }
+        return missing;
+    }
+
+    /**
+     * @return true when the key was in the map
+     */
+    public boolean remove(long key) {
+        int slot = indexOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    /**
+     * @return the slot holding the key, or -1
+     */
+    public int indexOf(long key) {
+        if (key == 0) {
+            return -1;
+        }
+        int slot = slotOf(key);
+        long stored;
+        while ((stored = keys[slot]) != 0) {
+            if (stored == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of slots, the bound of {@link #keyAt(int)}
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return the key in this slot, 0 when it is empty
+     */
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    public void setValueAt(int slot, int value) {
+        values[slot] = value;
+    }
+
+    /**
+     * Empty this slot, moving back the entries of the probe sequence that follows it.
+     */
+    public void removeAt(int slot) {
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long key = keys[next];
+            if (key == 0) {
+                break;
+            }
+            // the entry may fill the gap only when the gap lies between its home slot and its slot
+            if (((next - slotOf(key)) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        if (oldKeys.length >= 1 << 30) {
+            throw new IllegalStateException("LongIntHashMap full at " + size + " entries");
+        }
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slotOf(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slotOf(long key) {
+        // plate codes differ in their low bits mostly, spread them over the whole table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Free and occupied spot counts of each {@link ParkingType}, moved by the gates as they take and free spots,
+ * so availability is read without querying the parking table.
+ * The counts drift when another process changes the table; {@link #reconcile(List, long)} resets them from its rows.
+ */
+public class OccupancyCounters {
+
+    private final AtomicIntegerArray free = new AtomicIntegerArray(ParkingType.values().length);
+    private final AtomicIntegerArray occupied = new AtomicIntegerArray(ParkingType.values().length);
+    private final AtomicLong version = new AtomicLong();
+
+    public void taken(ParkingType parkingType, int count) {
+        version.incrementAndGet();
+        free.addAndGet(parkingType.ordinal(), -count);
+        occupied.addAndGet(parkingType.ordinal(), count);
+    }
+
+    public void freed(ParkingType parkingType) {
+        version.incrementAndGet();
+        occupied.decrementAndGet(parkingType.ordinal());
+        free.incrementAndGet(parkingType.ordinal());
+    }
+
+    /**
+     * @return the number of changes so far, to be read before the parking table is
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Reset the counts from the rows of the parking table, unless a spot was taken or freed since
+     * versionBeforeRead: the rows may then miss that change, and the counts are left to the next reconciliation.
+     * @return the total correction of the counts, -1 when they were changed during the read
+     */
+    public synchronized int reconcile(List<ParkingSpot> parkingSpots, long versionBeforeRead) {
+        int[] freeCounts = new int[ParkingType.values().length];
+        int[] occupiedCounts = new int[ParkingType.values().length];
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (parkingSpot.isAvailable()) {
+                freeCounts[parkingSpot.getParkingType().ordinal()]++;
+            } else {
+                occupiedCounts[parkingSpot.getParkingType().ordinal()]++;
+            }
+        }
+        int[] previousFree = new int[freeCounts.length];
+        int[] previousOccupied = new int[freeCounts.length];
+        for (int i = 0; i < freeCounts.length; i++) {
+            previousFree[i] = free.get(i);
+            previousOccupied[i] = occupied.get(i);
+        }
+        // read after the counts: a gate bumps the version before moving them
+        if (version.get() != versionBeforeRead) {
+            return -1;
+        }
+        int drift = 0;
+        for (int i = 0; i < freeCounts.length; i++) {
+            // added rather than set, so a gate moving the count meanwhile keeps its change
+            free.addAndGet(i, freeCounts[i] - previousFree[i]);
+            occupied.addAndGet(i, occupiedCounts[i] - previousOccupied[i]);
+            drift += Math.abs(freeCounts[i] - previousFree[i]) + Math.abs(occupiedCounts[i] - previousOccupied[i]);
+        }
+        return drift;
+    }
+
+    /**
+     * @return the current counts of each type
+     */
+    public Map<ParkingType, Occupancy> snapshot() {
+        Map<ParkingType, Occupancy> counts = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            counts.put(parkingType, new Occupancy(free.get(parkingType.ordinal()), occupied.get(parkingType.ordinal())));
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tickets of the vehicles currently parked, by registration number, so exits find their ticket
+ * without querying the database. A vehicle has at most one open ticket: opening a second one is refused.
+ * The cached tickets are the instances given to {@link #open(Ticket)}, not copies.
+ */
+public class OpenTicketCache {
+
+    private final Map<String, Ticket> openTickets = new ConcurrentHashMap<>();
+
+    /**
+     * Build the cache from the tickets without an out time.
+     */
+    public static OpenTicketCache load(List<Ticket> tickets) {
+        OpenTicketCache cache = new OpenTicketCache();
+        for (Ticket ticket : tickets) {
+            cache.open(ticket);
+        }
+        return cache;
+    }
+
+    /**
+     * @return false when the vehicle already has an open ticket
+     */
+    public boolean open(Ticket ticket) {
+        return openTickets.putIfAbsent(ticket.getVehicleRegNumber(), ticket) == null;
+    }
+
+    /**
+     * Forget a ticket once closed, or when saving it failed.
+     */
+    public void close(Ticket ticket) {
+        openTickets.remove(ticket.getVehicleRegNumber(), ticket);
+    }
+
+    /**
+     * @return the open ticket of this vehicle, or null when it is not parked
+     */
+    public Ticket get(String vehicleRegNumber) {
+        return openTickets.get(vehicleRegNumber);
+    }
+
+    public boolean isParked(String vehicleRegNumber) {
+        return openTickets.containsKey(vehicleRegNumber);
+    }
+
+    public int size() {
+        return openTickets.size();
+    }
+}
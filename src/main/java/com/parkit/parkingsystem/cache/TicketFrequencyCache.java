@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem.cache;
+
+import com.parkit.parkingsystem.util.PlateCodec;
+
+/**
+ * Number of closed tickets per vehicle registration number, so discount checks do not count
+ * the whole ticket history in the database on every entry and exit.
+ * Counts are kept by {@link PlateCodec} code in a {@link LongIntHashMap}, with no object per vehicle; plates
+ * that cannot be packed are not cached. At most maxEntries vehicles are kept: a clock hand sweeping the slots
+ * evicts the first vehicle not read since its last pass, which approximates evicting the least recently used one.
+ * Callers read the database on a miss and store the result with {@link #putIfUnchanged(String, int, long)}.
+ */
+public class TicketFrequencyCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    // high bit of a stored value, set when the vehicle was read since the clock hand last passed it
+    private static final int REFERENCED = Integer.MIN_VALUE;
+
+    private final int maxEntries;
+    private final LongIntHashMap counts;
+    private int hand;
+    private long version;
+
+    public TicketFrequencyCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.counts = new LongIntHashMap(maxEntries);
+    }
+
+    /**
+     * @return the number of closed tickets of this vehicle, or null when it is not cached
+     */
+    public synchronized Integer get(String vehicleRegNumber) {
+        int slot = counts.indexOf(PlateCodec.encode(vehicleRegNumber));
+        if (slot < 0) {
+            return null;
+        }
+        int value = counts.valueAt(slot);
+        counts.setValueAt(slot, value | REFERENCED);
+        return value & ~REFERENCED;
+    }
+
+    /**
+     * @return a stamp to give to {@link #putIfUnchanged(String, int, long)} after reading the database
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Store a count read from the database, unless a ticket was closed since the read started
+     * and the count may already be stale.
+     */
+    public synchronized void putIfUnchanged(String vehicleRegNumber, int count, long readVersion) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        if (version != readVersion || code == PlateCodec.NONE || maxEntries <= 0) {
+            return;
+        }
+        int slot = counts.indexOf(code);
+        if (slot >= 0) {
+            counts.setValueAt(slot, count | REFERENCED);
+            return;
+        }
+        if (counts.size() >= maxEntries) {
+            evict();
+        }
+        counts.put(code, count, 0);
+    }
+
+    /**
+     * Count a ticket closed for this vehicle. Vehicles not cached are left to the next database read.
+     */
+    public synchronized void increment(String vehicleRegNumber) {
+        version++;
+        int slot = counts.indexOf(PlateCodec.encode(vehicleRegNumber));
+        if (slot >= 0) {
+            counts.setValueAt(slot, (counts.valueAt(slot) + 1) | REFERENCED);
+        }
+    }
+
+    /**
+     * @return false when the cache is full and the count was not stored
+     */
+    public synchronized boolean load(String vehicleRegNumber, int count) {
+        if (counts.size() >= maxEntries) {
+            return false;
+        }
+        long code = PlateCodec.encode(vehicleRegNumber);
+        if (code != PlateCodec.NONE) {
+            counts.put(code, count, 0);
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return counts.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Evict the first vehicle after the clock hand not read since the hand last passed it, clearing the read marks on the way.
+     */
+    private void evict() {
+        if (counts.isEmpty()) {
+            return;
+        }
+        while (true) {
+            hand = (hand + 1) & (counts.capacity() - 1);
+            if (counts.keyAt(hand) == PlateCodec.NONE) {
+                continue;
+            }
+            int value = counts.valueAt(hand);
+            if ((value & REFERENCED) != 0) {
+                counts.setValueAt(hand, value & ~REFERENCED);
+            } else {
+                counts.removeAt(hand);
+                return;
+            }
+        }
+    }
+}
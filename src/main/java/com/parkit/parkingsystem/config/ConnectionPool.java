@@ -0,0 +1,286 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of JDBC connections.
+ * Idle connections are reused last-in first-out, validated when they have been idle for a while
+ * and closed once they exceed the idle timeout.
+ * Each pooled connection keeps its own {@link StatementCache} so constant SQL is only prepared once per connection.
+ */
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    /**
+     * Connections idle for less than this are handed out without a validation round trip.
+     */
+    private static final long VALIDATION_THRESHOLD_MS = 500;
+
+    public interface ConnectionFactory {
+        Connection createConnection() throws SQLException;
+    }
+
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long idleSince;
+
+        private IdleConnection(Connection connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Map<Connection, Boolean> borrowedConnections = new ConcurrentHashMap<>();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory connectionFactory, int maxSize, long maxWaitMillis,
+                          long idleTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive:" + maxSize);
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Borrow a connection, waiting at most maxWaitMillis for one to be released.
+     * @return an open connection that must be given back with {@link #releaseConnection(Connection)}
+     * @throws SQLTimeoutException if no connection became available in time
+     */
+    public Connection borrowConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        waitingCount.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + maxWaitMillis + "ms waiting for a DB connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a DB connection", e);
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+
+        try {
+            Connection con = takeIdleConnection();
+            if (con == null) {
+                con = openConnection();
+            }
+            borrowedConnections.put(con, Boolean.TRUE);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Give a borrowed connection back to the pool. Closed connections are discarded.
+     */
+    public void releaseConnection(Connection con) {
+        if (con == null) {
+            return;
+        }
+        if (borrowedConnections.remove(con) == null) {
+            logger.error("Connection released twice or not borrowed from this pool");
+            return;
+        }
+        try {
+            if (closed || con.isClosed()) {
+                discard(con);
+            } else {
+                if (!con.getAutoCommit()) {
+                    // never hand an open transaction to the next borrower
+                    con.rollback();
+                    con.setAutoCommit(true);
+                }
+                idleConnections.offerFirst(new IdleConnection(con, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            discard(con);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return true when the connection is borrowed from this pool
+     */
+    public boolean owns(Connection con) {
+        return borrowedConnections.containsKey(con);
+    }
+
+    /**
+     * Prepare a statement on a borrowed connection, reusing the one cached for this SQL when possible.
+     * The statement must be given back with {@link #releaseStatement(PreparedStatement)}.
+     */
+    public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        return prepareStatement(con, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+        StatementCache cache = statementCaches.get(con);
+        if (cache == null) {
+            statementCacheMisses.increment();
+            return con.prepareStatement(sql, autoGeneratedKeys);
+        }
+        PreparedStatement ps = cache.checkOut(sql, autoGeneratedKeys);
+        if (ps != null) {
+            statementCacheHits.increment();
+            return ps;
+        }
+        statementCacheMisses.increment();
+        return cache.prepare(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Keep a cached statement open for the next caller, close any other one.
+     */
+    public void releaseStatement(PreparedStatement ps) throws SQLException {
+        StatementCache cache = statementCaches.get(ps.getConnection());
+        if (cache == null || !cache.release(ps)) {
+            ps.close();
+        }
+    }
+
+    /**
+     * Close idle connections and refuse new borrows. Borrowed connections are closed on release.
+     */
+    public void close() {
+        closed = true;
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            discard(idle.connection);
+        }
+    }
+
+    public int getLiveCount() {
+        return liveCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getActiveCount() {
+        return borrowedConnections.size();
+    }
+
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    private Connection takeIdleConnection() {
+        evictExpiredConnections();
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            if (isUsable(idle)) {
+                return idle.connection;
+            }
+            discard(idle.connection);
+        }
+        return null;
+    }
+
+    private void evictExpiredConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<IdleConnection> oldestFirst = idleConnections.descendingIterator();
+        while (oldestFirst.hasNext()) {
+            IdleConnection idle = oldestFirst.next();
+            if (now - idle.idleSince < idleTimeoutMillis) {
+                break;
+            }
+            if (idleConnections.removeLastOccurrence(idle)) {
+                discard(idle.connection);
+            }
+        }
+    }
+
+    private boolean isUsable(IdleConnection idle) {
+        if (System.currentTimeMillis() - idle.idleSince < VALIDATION_THRESHOLD_MS) {
+            return true;
+        }
+        try {
+            return idle.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Create DB connection");
+        }
+        Connection con = connectionFactory.createConnection();
+        liveCount.incrementAndGet();
+        if (statementCacheSize > 0) {
+            statementCaches.put(con, new StatementCache(con, statementCacheSize));
+        }
+        return con;
+    }
+
+    private void discard(Connection con) {
+        liveCount.decrementAndGet();
+        StatementCache cache = statementCaches.remove(con);
+        if (cache != null) {
+            cache.clear();
+        }
+        try {
+            con.close();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Closing DB connection");
+            }
+        } catch (SQLException e) {
+            logger.error("Error while closing connection", e);
+        }
+    }
+}
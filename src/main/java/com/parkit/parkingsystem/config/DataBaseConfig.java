@@ -1,26 +1,280 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    public static final int DEFAULT_POOL_MAX_SIZE = 10;
+    public static final long DEFAULT_POOL_MAX_WAIT_MS = 5000;
+    public static final long DEFAULT_POOL_IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    public static final int DEFAULT_POOL_VALIDATION_TIMEOUT_S = 2;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 5000;
+    public static final int DEFAULT_SOCKET_TIMEOUT_MS = 60 * 1000;
+    public static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/prod?serverTimezone=UTC";
+    public static final String DEFAULT_LOT = "default";
+
+    /**
+     * One pool per JDBC url, so every DAO pointing at the same database shares its connections.
+     */
+    private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private static final LatencyHistogram connectionLatency = Metrics.latency("DataBaseConfig.getConnection");
+
+    /**
+     * When this thread last prepared a write, through any DataBaseConfig.
+     */
+    private static final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+
+    private final String url;
+    private volatile ReplicaSet replicaSet;
+
+    /**
+     * The database of the parkit.lot lot of this process.
+     */
+    public DataBaseConfig() {
+        this(getLotUrl(getLocalLot()));
+        setReplicas(getLocalLot());
+    }
+
+    /**
+     * @param url JDBC url of the database, e.g. the one of a lot, with its own connection pool
+     */
+    public DataBaseConfig(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @return the database of this lot: the parkit.db.url.&lt;lot&gt; JDBC url, by default the prod database for the local lot
+     * @throws IllegalArgumentException when another lot has no parkit.db.url.&lt;lot&gt;
+     */
+    public static DataBaseConfig forLot(String lot) {
+        DataBaseConfig dataBaseConfig = new DataBaseConfig(getLotUrl(lot));
+        dataBaseConfig.setReplicas(lot);
+        return dataBaseConfig;
+    }
+
+    /**
+     * Read from the replicas of the parkit.db.replicas.&lt;lot&gt; JDBC urls, comma separated, if any.
+     */
+    private void setReplicas(String lot) {
+        String replicaUrls = System.getProperty("parkit.db.replicas." + lot, "").trim();
+        if (replicaUrls.isEmpty()) {
+            return;
+        }
+        List<DataBaseConfig> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls.split(",")) {
+            replicas.add(new DataBaseConfig(replicaUrl.trim()));
+        }
+        setReplicaSet(new ReplicaSet(this, replicas,
+                Long.getLong("parkit.db.replica.maxLagMillis", ReplicaSet.DEFAULT_MAX_LAG_MS),
+                Long.getLong("parkit.db.replica.checkIntervalMillis", ReplicaSet.DEFAULT_CHECK_INTERVAL_MS)));
+    }
+
+    public ReplicaSet getReplicaSet() {
+        return replicaSet;
+    }
+
+    /**
+     * @param replicaSet the replicas of this database to send the reads of {@link #getReadConnection()} to, null for none
+     */
+    public void setReplicaSet(ReplicaSet replicaSet) {
+        this.replicaSet = replicaSet;
+    }
+
+    /**
+     * @return the parkit.lot lot of this process, {@value #DEFAULT_LOT} by default
+     */
+    public static String getLocalLot() {
+        return System.getProperty("parkit.lot", DEFAULT_LOT);
+    }
+
+    private static String getLotUrl(String lot) {
+        String url = System.getProperty("parkit.db.url." + lot);
+        if (url != null) {
+            return url;
+        }
+        // only the database of this process may default, another lot would silently read the local one
+        if (!lot.equals(getLocalLot())) {
+            throw new IllegalArgumentException("No parkit.db.url." + lot + " JDBC url for lot " + lot);
+        }
+        return DEFAULT_URL;
+    }
+
+    /**
+     * Borrow a pooled connection. The wait, including failed ones, is recorded in the DataBaseConfig.getConnection latency.
+     */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
+        long start = System.nanoTime();
+        try {
+            return getConnectionPool().borrowConnection();
+        } finally {
+            connectionLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Borrow a connection for a read-only query that may see data up to the replica max lag old: from a replica
+     * in time, round robin, unless this thread prepared a write less than the max lag ago, so it reads its own writes.
+     * Falls back to the primary when no replica is set up or in time.
+     * Give it back with {@link #closeConnection(Connection)} like any other.
+     */
+    public Connection getReadConnection() throws ClassNotFoundException, SQLException {
+        ReplicaSet replicas = replicaSet;
+        if (replicas != null) {
+            Long lastWrite = lastWriteNanos.get();
+            if (lastWrite == null || System.nanoTime() - lastWrite > TimeUnit.MILLISECONDS.toNanos(replicas.getMaxLagMillis())) {
+                long start = System.nanoTime();
+                Connection con = replicas.borrowConnection();
+                if (con != null) {
+                    connectionLatency.record(System.nanoTime() - start);
+                    return con;
+                }
+            }
+        }
+        return getConnection();
+    }
+
+    /**
+     * Keep the reads of this thread on the primary for the replica max lag, e.g. after writes made for it
+     * by another thread. Writes prepared with {@link #prepareStatement(Connection, String)} already do.
+     */
+    public static void markWrite() {
+        lastWriteNanos.set(System.nanoTime());
+    }
+
+    /**
+     * @return true when the connection is borrowed from the pool of this database, replicas excluded
+     */
+    boolean owns(Connection con) {
+        ConnectionPool pool = pools.get(getUrl());
+        return pool != null && pool.owns(con);
+    }
+
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
         Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod?serverTimezone=UTC","root","rootroot");
+        return pools.computeIfAbsent(getUrl(), url -> new ConnectionPool(
+                () -> DriverManager.getConnection(url, getConnectionProperties()),
+                getPoolMaxSize(), getPoolMaxWaitMillis(), getPoolIdleTimeoutMillis(), getPoolValidationTimeoutSeconds(),
+                getStatementCacheSize()));
+    }
+
+    /**
+     * Prepare a statement through the statement cache of the pooled connection.
+     * Give it back with {@link #closePreparedStatement(PreparedStatement)}, never close it directly.
+     */
+    public PreparedStatement prepareStatement(Connection con, String sql) throws ClassNotFoundException, SQLException {
+        return prepareStatement(con, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys) throws ClassNotFoundException, SQLException {
+        if (replicaSet != null && isWrite(sql)) {
+            markWrite();
+        }
+        ConnectionPool pool = poolOf(con);
+        return (pool == null) ? getConnectionPool().prepareStatement(con, sql, autoGeneratedKeys)
+                : pool.prepareStatement(con, sql, autoGeneratedKeys);
+    }
+
+    private static boolean isWrite(String sql) {
+        return !sql.regionMatches(true, 0, "select", 0, 6) || sql.contains(" for update");
+    }
+
+    /**
+     * @return the pool the connection was borrowed from, the one of a replica or else the one of this database
+     */
+    private ConnectionPool poolOf(Connection con) {
+        ConnectionPool pool = pools.get(getUrl());
+        if (replicaSet == null || (pool != null && pool.owns(con))) {
+            return pool;
+        }
+        for (ConnectionPool other : pools.values()) {
+            if (other.owns(con)) {
+                return other;
+            }
+        }
+        return pool;
+    }
+
+    protected Properties getConnectionProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("user", getUser());
+        properties.setProperty("password", getPassword());
+        // statements stay open in the StatementCache, so let the server parse them once per connection
+        properties.setProperty("useServerPrepStmts", System.getProperty("parkit.db.serverPrepStmts", "true"));
+        // batched inserts are sent as one multi-row insert
+        properties.setProperty("rewriteBatchedStatements", "true");
+        // a database that stops answering fails its calls instead of holding their threads forever, 0 waits forever
+        properties.setProperty("connectTimeout", Integer.toString(getConnectTimeoutMillis()));
+        properties.setProperty("socketTimeout", Integer.toString(getSocketTimeoutMillis()));
+        return properties;
+    }
+
+    protected int getConnectTimeoutMillis() {
+        return Integer.getInteger("parkit.db.connectTimeoutMillis", DEFAULT_CONNECT_TIMEOUT_MS);
+    }
+
+    protected int getSocketTimeoutMillis() {
+        return Integer.getInteger("parkit.db.socketTimeoutMillis", DEFAULT_SOCKET_TIMEOUT_MS);
+    }
+
+    protected String getUrl() {
+        return url;
+    }
+
+    protected String getUser() {
+        return "root";
+    }
+
+    protected String getPassword() {
+        return "rootroot";
+    }
+
+    protected int getPoolMaxSize() {
+        return Integer.getInteger("parkit.db.pool.maxSize", DEFAULT_POOL_MAX_SIZE);
+    }
+
+    protected long getPoolMaxWaitMillis() {
+        return Long.getLong("parkit.db.pool.maxWaitMillis", DEFAULT_POOL_MAX_WAIT_MS);
+    }
+
+    protected long getPoolIdleTimeoutMillis() {
+        return Long.getLong("parkit.db.pool.idleTimeoutMillis", DEFAULT_POOL_IDLE_TIMEOUT_MS);
+    }
+
+    protected int getPoolValidationTimeoutSeconds() {
+        return Integer.getInteger("parkit.db.pool.validationTimeoutSeconds", DEFAULT_POOL_VALIDATION_TIMEOUT_S);
+    }
+
+    protected int getStatementCacheSize() {
+        return Integer.getInteger("parkit.db.statementCache.size", DEFAULT_STATEMENT_CACHE_SIZE);
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
+            ConnectionPool pool = poolOf(con);
+            if (pool != null) {
+                pool.releaseConnection(con);
+                return;
+            }
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Closing DB connection");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -30,8 +284,15 @@ public class DataBaseConfig {
     public void closePreparedStatement(PreparedStatement ps) {
         if(ps!=null){
             try {
+                ConnectionPool pool = poolOf(ps.getConnection());
+                if (pool != null) {
+                    pool.releaseStatement(ps);
+                    return;
+                }
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Closing Prepared Statement");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +303,9 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Closing Result Set");
+                }
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The read replicas of a primary database and how far behind each one is. The lag of a replica is the age of the
+ * last heartbeat of the primary it has received: the primary beats at most every checkIntervalMillis, from the thread
+ * borrowing a connection once the interval is over, so the lag includes the interval. Replicas more than maxLagMillis
+ * behind, or failing, get no reads until a later check finds them in time again.
+ */
+public class ReplicaSet {
+
+    private static final Logger logger = LogManager.getLogger("ReplicaSet");
+
+    public static final long DEFAULT_MAX_LAG_MS = 5000;
+    public static final long DEFAULT_CHECK_INTERVAL_MS = 1000;
+
+    static final String BEAT = "update replica_heartbeat set BEAT = now(3) where ID = 1";
+    static final String GET_BEAT_AGE = "select timestampdiff(MICROSECOND, BEAT, now(3)) div 1000 from replica_heartbeat where ID = 1";
+
+    private final DataBaseConfig primary;
+    private final List<DataBaseConfig> replicas;
+    private final long maxLagMillis;
+    private final long checkIntervalMillis;
+    private final AtomicLongArray lagMillis;
+    private final AtomicLong nextCheck = new AtomicLong();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaSet(DataBaseConfig primary, List<DataBaseConfig> replicas, long maxLagMillis, long checkIntervalMillis) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        // no reads until the first check
+        for (int i = 0; i < replicas.size(); i++) {
+            lagMillis.set(i, Long.MAX_VALUE);
+        }
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis;
+    }
+
+    /**
+     * @return the lag measured by the last check, Long.MAX_VALUE when the replica failed it or was never checked
+     */
+    public long getLagMillis(int replica) {
+        return lagMillis.get(replica);
+    }
+
+    /**
+     * Borrow a connection of the next replica in time, round robin, checking the lags first when they are due.
+     * @return null when no replica is in time
+     */
+    public Connection borrowConnection() {
+        long now = System.currentTimeMillis();
+        long due = nextCheck.get();
+        if (now >= due && nextCheck.compareAndSet(due, now + checkIntervalMillis)) {
+            checkLag();
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = (start + i) % replicas.size();
+            if (lagMillis.get(replica) > maxLagMillis) {
+                continue;
+            }
+            try {
+                return replicas.get(replica).getConnection();
+            } catch (Exception e) {
+                logger.error("Replica " + replicas.get(replica).getUrl() + " unavailable, reads go elsewhere until the next check", e);
+                lagMillis.set(replica, Long.MAX_VALUE);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true when the connection was borrowed from one of the replicas
+     */
+    boolean owns(Connection con) {
+        for (DataBaseConfig replica : replicas) {
+            if (replica.owns(con)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Measure the lag of every replica, then beat on the primary for the next check.
+     */
+    public void checkLag() {
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag = readBeatAge(replicas.get(i));
+            long previous = lagMillis.getAndSet(i, lag);
+            if (lag > maxLagMillis && previous <= maxLagMillis) {
+                logger.error("Replica " + replicas.get(i).getUrl() + " is " + ((lag == Long.MAX_VALUE) ? "unavailable" : lag + " ms behind")
+                        + ", reading from the primary instead");
+            } else if (lag <= maxLagMillis && previous > maxLagMillis) {
+                logger.info("Replica " + replicas.get(i).getUrl() + " back in time, " + lag + " ms behind");
+            }
+        }
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = primary.getConnection();
+            // prepared directly, a write prepared by the DataBaseConfig would keep the reads of this thread on the primary
+            ps = con.prepareStatement(BEAT);
+            ps.execute();
+        } catch (Exception e) {
+            logger.error("Unable to beat on the primary", e);
+        } finally {
+            primary.closePreparedStatement(ps);
+            primary.closeConnection(con);
+        }
+    }
+
+    private static long readBeatAge(DataBaseConfig replica) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = replica.getConnection();
+            ps = replica.prepareStatement(con, GET_BEAT_AGE);
+            rs = ps.executeQuery();
+            return rs.next() ? Math.max(0, rs.getLong(1)) : Long.MAX_VALUE;
+        } catch (Exception e) {
+            logger.error("Unable to read the heartbeat of replica " + replica.getUrl(), e);
+            return Long.MAX_VALUE;
+        } finally {
+            replica.closeResultSet(rs);
+            replica.closePreparedStatement(ps);
+            replica.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bring a database created by Data.sql up to date with the versioned scripts of db/migration.
+ * Applied versions are recorded in the schema_version table, so each script runs once per database.
+ * MySQL commits DDL immediately: a script failing halfway must be fixed by hand before running again.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    /**
+     * Scripts in the order they are applied, named V&lt;version&gt;__&lt;description&gt;.sql.
+     */
+    static final String[] MIGRATIONS = {
+            "V1__query_indexes.sql",
+            "V2__open_ticket_index.sql",
+            "V3__hourly_rollups.sql",
+            "V4__ticket_archive.sql",
+            "V5__replica_heartbeat.sql",
+            "V6__normalise_plates.sql"
+    };
+
+    private static final String MIGRATION_FOLDER = "/db/migration/";
+    // serializes applications started at the same time against the same database
+    private static final String LOCK_NAME = "parkit.schema_migration";
+    private static final int LOCK_TIMEOUT_S = 60;
+
+    private static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version("
+            + "VERSION int PRIMARY KEY, DESCRIPTION varchar(100) NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+    private static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+    private static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_ON) values(?,?,now())";
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Apply the scripts newer than the database version.
+     * @return the number of scripts applied
+     */
+    public int migrate() throws ClassNotFoundException, SQLException, IOException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            lock(con);
+            try {
+                execute(con, CREATE_SCHEMA_VERSION);
+                int currentVersion = getSchemaVersion(con);
+                int applied = 0;
+                for (String migration : MIGRATIONS) {
+                    int version = getVersion(migration);
+                    if (version > currentVersion) {
+                        logger.info("Applying schema migration " + migration);
+                        for (String sql : readStatements(migration)) {
+                            execute(con, sql);
+                        }
+                        saveSchemaVersion(con, version, getDescription(migration));
+                        applied++;
+                    }
+                }
+                return applied;
+            } finally {
+                execute(con, "do RELEASE_LOCK('" + LOCK_NAME + "')");
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    static int getVersion(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    static String getDescription(String migration) {
+        return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+    }
+
+    /**
+     * Split a script on the semicolons ending a line, skipping -- comments.
+     */
+    static List<String> readStatements(String migration) throws IOException {
+        InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_FOLDER + migration);
+        if (in == null) {
+            throw new IOException("Missing schema migration " + migration);
+        }
+        List<String> statements = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder statement = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("--")) {
+                    continue;
+                }
+                statement.append(line).append(' ');
+                if (line.endsWith(";")) {
+                    statements.add(statement.substring(0, statement.lastIndexOf(";")).trim());
+                    statement.setLength(0);
+                }
+            }
+            if (statement.toString().trim().length() > 0) {
+                statements.add(statement.toString().trim());
+            }
+        }
+        return statements;
+    }
+
+    private void lock(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("select GET_LOCK('" + LOCK_NAME + "', " + LOCK_TIMEOUT_S + ")")) {
+            if (!rs.next() || rs.getInt(1) != 1) {
+                throw new SQLException("Timed out waiting for another schema migration");
+            }
+        }
+    }
+
+    private int getSchemaVersion(Connection con) throws SQLException {
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery(GET_SCHEMA_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void saveSchemaVersion(Connection con, int version, String description) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(SAVE_SCHEMA_VERSION)) {
+            ps.setInt(1, version);
+            ps.setString(2, description);
+            ps.execute();
+        }
+    }
+
+    private void execute(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
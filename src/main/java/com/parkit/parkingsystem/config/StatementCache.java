@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prepared statements of one pooled connection, keyed by SQL and kept open between DAO calls.
+ * A connection is only used by the thread that borrowed it, so the cache itself is not synchronized.
+ */
+class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    StatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                if (!inUse.remove(eldest.getValue())) {
+                    close(eldest.getValue());
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return the cached statement for this SQL, or null when it is not cached or already checked out
+     */
+    PreparedStatement checkOut(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = key(sql, autoGeneratedKeys);
+        PreparedStatement ps = statements.get(key);
+        if (ps == null || inUse.contains(ps)) {
+            return null;
+        }
+        if (ps.isClosed()) {
+            statements.remove(key);
+            return null;
+        }
+        inUse.add(ps);
+        return ps;
+    }
+
+    /**
+     * Prepare a statement and keep it, unless a statement for the same SQL is already checked out.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, autoGeneratedKeys);
+        String key = key(sql, autoGeneratedKeys);
+        if (!statements.containsKey(key)) {
+            statements.put(key, ps);
+            inUse.add(ps);
+        }
+        return ps;
+    }
+
+    /**
+     * @return true when the statement belongs to this cache and stays open for the next caller
+     */
+    boolean release(PreparedStatement ps) throws SQLException {
+        if (!inUse.remove(ps)) {
+            return false;
+        }
+        // rows added but never executed must not be sent with the next caller's batch
+        ps.clearBatch();
+        ps.clearParameters();
+        return true;
+    }
+
+    void clear() {
+        for (PreparedStatement ps : statements.values()) {
+            close(ps);
+        }
+        statements.clear();
+        inUse.clear();
+    }
+
+    private static String key(String sql, int autoGeneratedKeys) {
+        return (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) ? "keys:" + sql : sql;
+    }
+
+    private static void close(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing prepared statement", e);
+        }
+    }
+}
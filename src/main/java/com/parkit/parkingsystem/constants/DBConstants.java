@@ -4,9 +4,37 @@ public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String CLAIM_AVAILABLE_PARKING_SPOTS = "select PARKING_NUMBER from parking where AVAILABLE = true and TYPE = ? order by PARKING_NUMBER limit ? for update skip locked";
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false where PARKING_NUMBER = ? and AVAILABLE = true";
+    public static final String GET_AVAILABLE_PARKING_SPOT_COUNTS = "select TYPE, count(*) from parking where AVAILABLE = true group by TYPE";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
 
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
-    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=? and OUT_TIME is null";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
     public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC  limit 1";
-    public static final String GET_TICKET_FREQ = "select COUNT(*) as 'FREQ' from ticket where OUT_TIME is not null and VEHICLE_REG_NUMBER = ?";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME is null";
+    public static final String GET_ARCHIVED_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket_archive t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME DESC  limit 1";
+    public static final String GET_CLOSED_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, exists(select 1 from ticket r where r.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and r.OUT_TIME < t.OUT_TIME)"
+            + " or exists(select 1 from ticket_archive_count c where c.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER) as 'REGULAR' from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME >= ? and t.OUT_TIME < ?";
+    public static final String GET_ARCHIVED_CLOSED_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, exists(select 1 from ticket_archive r where r.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and r.OUT_TIME < t.OUT_TIME) as 'REGULAR'"
+            + " from ticket_archive t,parking p where p.parking_number = t.parking_number and t.OUT_TIME >= ? and t.OUT_TIME < ?";
+    public static final String GET_TICKET_FREQ = "select (select COUNT(*) from ticket where OUT_TIME is not null and VEHICLE_REG_NUMBER = ?)"
+            + " + coalesce((select ARCHIVED_TICKETS from ticket_archive_count where VEHICLE_REG_NUMBER = ?), 0) as 'FREQ'";
+    public static final String GET_TICKET_FREQS = "select VEHICLE_REG_NUMBER, sum(FREQ) as 'FREQ' from (select VEHICLE_REG_NUMBER, COUNT(*) as 'FREQ' from ticket where OUT_TIME is not null group by VEHICLE_REG_NUMBER"
+            + " union all select VEHICLE_REG_NUMBER, ARCHIVED_TICKETS from ticket_archive_count) f group by VEHICLE_REG_NUMBER";
+    public static final String UPDATE_ARCHIVED_TICKET_PRICE = "update ticket_archive set PRICE=? where ID=? and OUT_TIME=?";
+
+    public static final String GET_ARCHIVE_BATCH_END = "select max(OUT_TIME) from (select OUT_TIME from ticket where OUT_TIME < ? order by OUT_TIME limit ?) b";
+    public static final String ADD_ARCHIVED_TICKET_COUNTS = "insert into ticket_archive_count(VEHICLE_REG_NUMBER, ARCHIVED_TICKETS) select c.VEHICLE_REG_NUMBER, c.N from"
+            + " (select VEHICLE_REG_NUMBER, COUNT(*) as N from ticket where OUT_TIME <= ? group by VEHICLE_REG_NUMBER) c on duplicate key update ARCHIVED_TICKETS = ARCHIVED_TICKETS + c.N";
+    public static final String ARCHIVE_TICKETS = "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)"
+            + " select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where OUT_TIME <= ?";
+    public static final String DELETE_ARCHIVED_TICKETS = "delete from ticket where OUT_TIME <= ?";
+
+    public static final String ADD_HOURLY_ROLLUP = "insert into rollup_hourly(HOUR, TYPE, CLOSED_TICKETS, REVENUE, SPOTS_TAKEN, SPOTS_FREED, OCCUPIED_SECONDS) values(?,?,?,?,?,?,?)"
+            + " on duplicate key update CLOSED_TICKETS = CLOSED_TICKETS + values(CLOSED_TICKETS), REVENUE = REVENUE + values(REVENUE), SPOTS_TAKEN = SPOTS_TAKEN + values(SPOTS_TAKEN),"
+            + " SPOTS_FREED = SPOTS_FREED + values(SPOTS_FREED), OCCUPIED_SECONDS = OCCUPIED_SECONDS + values(OCCUPIED_SECONDS)";
+    public static final String DELETE_HOURLY_ROLLUPS = "delete from rollup_hourly where HOUR >= ? and HOUR < ?";
+    public static final String GET_HOURLY_ROLLUPS = "select HOUR, TYPE, CLOSED_TICKETS, REVENUE, SPOTS_TAKEN, SPOTS_FREED, OCCUPIED_SECONDS from rollup_hourly where HOUR >= ? and HOUR < ? order by HOUR, TYPE";
 }
@@ -3,4 +3,6 @@ package com.parkit.parkingsystem.constants;
 public class Fare {
     public static final double BIKE_RATE_PER_HOUR = 1.0;
     public static final double CAR_RATE_PER_HOUR = 1.5;
+    public static final int FREE_PARKING_MINUTES = 30;
+    public static final int REGULAR_DISCOUNT_PERCENT = 5;
 }
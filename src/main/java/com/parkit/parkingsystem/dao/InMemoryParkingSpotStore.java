@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.cache.FreeSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parking spots kept in memory only, e.g. for a kiosk without database or for tests.
+ * The free spots of each type are a {@link FreeSpotIndex} bitset, so claims never block each other
+ * and always give the lowest free spot, as the database does.
+ */
+public class InMemoryParkingSpotStore implements ParkingSpotStore {
+
+    private final ConcurrentMap<Integer, ParkingType> parkingTypes = new ConcurrentHashMap<>();
+    private final FreeSpotIndex freeSpots;
+
+    /**
+     * When set, spots taken and freed are added to its hourly rollups.
+     */
+    public RollupStore rollupStore;
+
+    public InMemoryParkingSpotStore(List<ParkingSpot> parkingSpots) {
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            parkingTypes.put(parkingSpot.getId(), parkingSpot.getParkingType());
+        }
+        freeSpots = FreeSpotIndex.load(parkingSpots);
+    }
+
+    /**
+     * A free lot of carSpots car spots numbered from 1, then bikeSpots bike spots.
+     */
+    public InMemoryParkingSpotStore(int carSpots, int bikeSpots) {
+        this(freeLot(carSpots, bikeSpots));
+    }
+
+    private static List<ParkingSpot> freeLot(int carSpots, int bikeSpots) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>(carSpots + bikeSpots);
+        for (int number = 1; number <= carSpots + bikeSpots; number++) {
+            parkingSpots.add(new ParkingSpot(number, (number <= carSpots) ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        return parkingSpots;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return freeSpots.nextFree(parkingType);
+    }
+
+    @Override
+    public List<Integer> claimAvailableSlots(ParkingType parkingType, int count) {
+        List<Integer> parkingNumbers = new ArrayList<>(count);
+        int number;
+        while (parkingNumbers.size() < count && (number = freeSpots.claim(parkingType)) > 0) {
+            parkingNumbers.add(number);
+        }
+        if (!parkingNumbers.isEmpty()) {
+            addRollup(parkingType, false, parkingNumbers.size());
+        }
+        return parkingNumbers;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        ParkingType parkingType = parkingTypes.get(parkingSpot.getId());
+        if (parkingType == null) {
+            return false;
+        }
+        ParkingSpot stored = new ParkingSpot(parkingSpot.getId(), parkingType, parkingSpot.isAvailable());
+        if (stored.isAvailable()) {
+            freeSpots.release(stored);
+        } else {
+            freeSpots.claim(stored);
+        }
+        addRollup(parkingType, stored.isAvailable(), 1);
+        return true;
+    }
+
+    private void addRollup(ParkingType parkingType, boolean available, int count) {
+        RollupStore rollups = rollupStore;
+        if (rollups != null) {
+            rollups.addRollups(Collections.singletonList(Rollups.spotsChanged(parkingType, available, count, System.currentTimeMillis())));
+        }
+    }
+
+    @Override
+    public Map<ParkingType, Integer> getAvailableSlotCounts() {
+        Map<ParkingType, Integer> counts = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            counts.put(parkingType, freeSpots.countFree(parkingType));
+        }
+        return counts;
+    }
+
+    @Override
+    public List<ParkingSpot> getParkingSpots() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>(parkingTypes.size());
+        for (Map.Entry<Integer, ParkingType> parkingType : parkingTypes.entrySet()) {
+            ParkingSpot parkingSpot = new ParkingSpot(parkingType.getKey(), parkingType.getValue(), false);
+            parkingSpot.setAvailable(freeSpots.isFree(parkingSpot));
+            parkingSpots.add(parkingSpot);
+        }
+        return parkingSpots;
+    }
+}
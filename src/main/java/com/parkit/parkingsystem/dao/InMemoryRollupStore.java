@@ -0,0 +1,44 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.HourlyRollup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hourly rollups kept in memory only, added to by the in-memory stores that have it as rollupStore.
+ */
+public class InMemoryRollupStore implements RollupStore {
+
+    // guarded by this
+    private final TreeMap<Long, Map<ParkingType, HourlyRollup>> rollupsByHour = new TreeMap<>();
+
+    @Override
+    public synchronized boolean addRollups(List<HourlyRollup> rollups) {
+        for (HourlyRollup rollup : rollups) {
+            rollupsByHour.computeIfAbsent(rollup.getHour().getTime(), hour -> new EnumMap<>(ParkingType.class))
+                    .merge(rollup.getParkingType(), rollup, HourlyRollup::plus);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean replaceRollups(Date from, Date to, List<HourlyRollup> rollups) {
+        rollupsByHour.subMap(from.getTime(), to.getTime()).clear();
+        return addRollups(rollups);
+    }
+
+    @Override
+    public synchronized List<HourlyRollup> getRollups(Date from, Date to) {
+        List<HourlyRollup> rollups = new ArrayList<>();
+        for (Map<ParkingType, HourlyRollup> hour : rollupsByHour.subMap(from.getTime(), to.getTime()).values()) {
+            rollups.addAll(hour.values());
+        }
+        return rollups;
+    }
+}
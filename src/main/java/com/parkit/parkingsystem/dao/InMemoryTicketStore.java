@@ -0,0 +1,256 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Tickets kept in memory only, e.g. for a kiosk without database or for tests.
+ * Tickets are grouped by vehicle in a concurrent map, and each vehicle's tickets are locked on their own,
+ * so gates only wait for each other on the same vehicle. A vehicle has at most one open ticket.
+ * Tickets are copied in and out, as they would be by a database.
+ */
+public class InMemoryTicketStore implements TicketStore {
+
+    private final ConcurrentMap<String, VehicleTickets> vehicles = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, VehicleTickets> vehiclesByTicketId = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    /**
+     * When set, closed tickets are added to its hourly rollups.
+     */
+    public RollupStore rollupStore;
+
+    /**
+     * The tickets of one vehicle, in saving order. Guarded by its own lock.
+     */
+    private static class VehicleTickets {
+        private final List<Ticket> tickets = new ArrayList<>(2);
+
+        private Ticket open() {
+            for (Ticket ticket : tickets) {
+                if (ticket.getOutTime() == null) {
+                    return ticket;
+                }
+            }
+            return null;
+        }
+
+        private Ticket byId(int id) {
+            for (Ticket ticket : tickets) {
+                if (ticket.getId() == id) {
+                    return ticket;
+                }
+            }
+            return null;
+        }
+    }
+
+    private VehicleTickets vehicle(String vehicleRegNumber) {
+        return vehicles.computeIfAbsent(vehicleRegNumber, plate -> new VehicleTickets());
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        VehicleTickets vehicle = vehicle(ticket.getVehicleRegNumber());
+        synchronized (vehicle) {
+            if (ticket.getOutTime() == null && vehicle.open() != null) {
+                return false;
+            }
+            ticket.setId(lastId.incrementAndGet());
+            vehicle.tickets.add(copy(ticket));
+        }
+        vehiclesByTicketId.put(ticket.getId(), vehicle);
+        return true;
+    }
+
+    /**
+     * Tickets saved before one is refused are removed again, but other threads may see them meanwhile.
+     */
+    @Override
+    public boolean saveTickets(List<Ticket> tickets) {
+        for (int i = 0; i < tickets.size(); i++) {
+            if (!saveTicket(tickets.get(i))) {
+                tickets.subList(0, i).forEach(this::remove);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remove(Ticket ticket) {
+        VehicleTickets vehicle = vehiclesByTicketId.remove(ticket.getId());
+        synchronized (vehicle) {
+            vehicle.tickets.remove(vehicle.byId(ticket.getId()));
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        VehicleTickets vehicle = vehicles.get(vehicleRegNumber);
+        if (vehicle == null) {
+            return null;
+        }
+        synchronized (vehicle) {
+            Ticket last = null;
+            for (Ticket ticket : vehicle.tickets) {
+                if (last == null || !ticket.getInTime().before(last.getInTime())) {
+                    last = ticket;
+                }
+            }
+            return copy(last);
+        }
+    }
+
+    @Override
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        VehicleTickets vehicle = vehicles.get(vehicleRegNumber);
+        if (vehicle == null) {
+            return null;
+        }
+        synchronized (vehicle) {
+            return copy(vehicle.open());
+        }
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets() {
+        List<Ticket> openTickets = new ArrayList<>();
+        for (VehicleTickets vehicle : vehicles.values()) {
+            synchronized (vehicle) {
+                Ticket open = vehicle.open();
+                if (open != null) {
+                    openTickets.add(copy(open));
+                }
+            }
+        }
+        return openTickets;
+    }
+
+    @Override
+    public boolean isParked(String vehicleRegNumber) {
+        VehicleTickets vehicle = vehicles.get(vehicleRegNumber);
+        if (vehicle == null) {
+            return false;
+        }
+        synchronized (vehicle) {
+            return vehicle.open() != null;
+        }
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        VehicleTickets vehicle = vehiclesByTicketId.get(ticket.getId());
+        if (vehicle == null) {
+            return false;
+        }
+        Ticket closed;
+        synchronized (vehicle) {
+            Ticket stored = vehicle.byId(ticket.getId());
+            if (stored.getOutTime() != null) {
+                // already closed: closing it again would count its fare twice
+                return false;
+            }
+            stored.setPrice(ticket.getPrice());
+            stored.setOutTime(copy(ticket.getOutTime()));
+            closed = copy(stored);
+        }
+        RollupStore rollups = rollupStore;
+        if (rollups != null && closed.getOutTime() != null) {
+            rollups.addRollups(Rollups.ticketClosed(closed.getParkingSpot().getParkingType(),
+                    closed.getInTime(), closed.getOutTime(), closed.getPrice()));
+        }
+        return true;
+    }
+
+    @Override
+    public Integer getNbTicket(String vehicleRegNumber) {
+        VehicleTickets vehicle = vehicles.get(vehicleRegNumber);
+        if (vehicle == null) {
+            return 0;
+        }
+        synchronized (vehicle) {
+            int count = 0;
+            for (Ticket ticket : vehicle.tickets) {
+                if (ticket.getOutTime() != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Tickets are handed vehicle by vehicle, outside of the vehicle's lock.
+     */
+    @Override
+    public boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+        List<Ticket> closedTickets = new ArrayList<>();
+        List<Boolean> regulars = new ArrayList<>();
+        for (VehicleTickets vehicle : vehicles.values()) {
+            closedTickets.clear();
+            regulars.clear();
+            synchronized (vehicle) {
+                for (Ticket ticket : vehicle.tickets) {
+                    Date outTime = ticket.getOutTime();
+                    if (outTime == null || outTime.before(from) || !outTime.before(to)) {
+                        continue;
+                    }
+                    boolean regular = false;
+                    for (Ticket previous : vehicle.tickets) {
+                        regular |= previous.getOutTime() != null && previous.getOutTime().before(outTime);
+                    }
+                    closedTickets.add(copy(ticket));
+                    regulars.add(regular);
+                }
+            }
+            for (int i = 0; i < closedTickets.size(); i++) {
+                handler.accept(closedTickets.get(i), regulars.get(i));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean updateTicketPrices(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            if (!vehiclesByTicketId.containsKey(ticket.getId())) {
+                return false;
+            }
+        }
+        for (Ticket ticket : tickets) {
+            VehicleTickets vehicle = vehiclesByTicketId.get(ticket.getId());
+            synchronized (vehicle) {
+                vehicle.byId(ticket.getId()).setPrice(ticket.getPrice());
+            }
+        }
+        return true;
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        if (ticket == null) {
+            return null;
+        }
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        // the spot of a ticket is taken, as read from the database
+        copy.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(copy(ticket.getInTime()));
+        copy.setOutTime(copy(ticket.getOutTime()));
+        return copy;
+    }
+
+    private static Date copy(Date date) {
+        return (date == null) ? null : new Date(date.getTime());
+    }
+}
@@ -0,0 +1,214 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The stores of each lot, each lot having its own database and connection pool, so the lots scale and fail
+ * independently. Spots and tickets are routed by their lot, the lot of this gate when they have none.
+ * Plate lookups ask every lot in parallel and skip the lots that fail or do not answer within the timeout.
+ * Each lot has its own few lookup threads: JDBC calls to a hung database ignore interrupts, so its threads stay
+ * stuck, and once they all are its lookups are skipped at once instead of taking the threads of the other lots.
+ */
+public class LotRouter {
+
+    private static final Logger logger = LogManager.getLogger("LotRouter");
+
+    public static final long DEFAULT_LOOKUP_TIMEOUT_MS = 2000;
+    public static final int DEFAULT_LOOKUP_THREADS_PER_LOT = 2;
+
+    private final String localLot;
+    private final Map<String, ParkingSpotStore> parkingSpotStores;
+    private final Map<String, TicketStore> ticketStores;
+    private final long lookupTimeoutMillis;
+    private final Map<String, ThreadPoolExecutor> lookups = new LinkedHashMap<>();
+
+    /**
+     * @param localLot the lot of this gate, used for the spots and tickets without lot
+     * @param parkingSpotStores the spot store of each lot, localLot included
+     * @param ticketStores the ticket store of each lot, localLot included
+     */
+    public LotRouter(String localLot, Map<String, ParkingSpotStore> parkingSpotStores, Map<String, TicketStore> ticketStores,
+                     long lookupTimeoutMillis) {
+        this(localLot, parkingSpotStores, ticketStores, lookupTimeoutMillis, DEFAULT_LOOKUP_THREADS_PER_LOT);
+    }
+
+    /**
+     * @param lookupThreadsPerLot the lookups of a lot running at once, as many more may wait for them
+     */
+    public LotRouter(String localLot, Map<String, ParkingSpotStore> parkingSpotStores, Map<String, TicketStore> ticketStores,
+                     long lookupTimeoutMillis, int lookupThreadsPerLot) {
+        if (!parkingSpotStores.containsKey(localLot) || !ticketStores.keySet().equals(parkingSpotStores.keySet())) {
+            throw new IllegalArgumentException("Every lot, " + localLot + " included, needs a spot and a ticket store");
+        }
+        this.localLot = localLot;
+        this.parkingSpotStores = new LinkedHashMap<>(parkingSpotStores);
+        this.ticketStores = new LinkedHashMap<>(ticketStores);
+        this.lookupTimeoutMillis = lookupTimeoutMillis;
+        for (String lot : ticketStores.keySet()) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            // a full queue rejects the lookup: the threads of the lot are all stuck on it
+            lookups.put(lot, new ThreadPoolExecutor(lookupThreadsPerLot, lookupThreadsPerLot, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(lookupThreadsPerLot), runnable -> {
+                        Thread thread = new Thread(runnable, "lot-lookup-" + lot + "-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }));
+        }
+    }
+
+    public String getLocalLot() {
+        return localLot;
+    }
+
+    public Set<String> getLots() {
+        return Collections.unmodifiableSet(ticketStores.keySet());
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown lot
+     */
+    public ParkingSpotStore getParkingSpotStore(String lot) {
+        return get(parkingSpotStores, lot);
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown lot
+     */
+    public TicketStore getTicketStore(String lot) {
+        return get(ticketStores, lot);
+    }
+
+    /**
+     * Store the availability of the spot in the database of its lot.
+     * @throws IllegalArgumentException for an unknown lot
+     */
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        return getParkingSpotStore(parkingSpot.getLot()).updateParking(parkingSpot);
+    }
+
+    /**
+     * Store the price and out time of the ticket in the database of its lot.
+     * @throws IllegalArgumentException for an unknown lot
+     */
+    public boolean updateTicket(Ticket ticket) {
+        return getTicketStore(ticket.getLot()).updateTicket(ticket);
+    }
+
+    /**
+     * @return the last ticket of this vehicle by in time among the lots that answered, with its lot, or null
+     */
+    public Ticket findTicket(String vehicleRegNumber) {
+        Ticket latest = null;
+        for (Ticket ticket : fanOut(vehicleRegNumber, store -> store.getTicket(vehicleRegNumber))) {
+            if (latest == null || ticket.getInTime().after(latest.getInTime())) {
+                latest = ticket;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @return the ticket of this vehicle still parked in one of the lots that answered, with its lot, or null
+     */
+    public Ticket findOpenTicket(String vehicleRegNumber) {
+        List<Ticket> tickets = fanOut(vehicleRegNumber, store -> store.getOpenTicket(vehicleRegNumber));
+        return tickets.isEmpty() ? null : tickets.get(0);
+    }
+
+    /**
+     * Stop the lookup threads.
+     */
+    public void shutdown() {
+        for (ExecutorService executor : lookups.values()) {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Lookup {
+        Ticket find(TicketStore store);
+    }
+
+    private List<Ticket> fanOut(String vehicleRegNumber, Lookup lookup) {
+        Map<String, Future<Ticket>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, TicketStore> entry : ticketStores.entrySet()) {
+            String lot = entry.getKey();
+            TicketStore store = entry.getValue();
+            try {
+                results.put(lot, lookups.get(lot).submit(() -> {
+                    Ticket ticket = lookup.find(store);
+                    return (ticket == null) ? null : copy(ticket, lot);
+                }));
+            } catch (RejectedExecutionException e) {
+                logger.error("Lot " + lot + " skipped for the lookup of " + vehicleRegNumber + ": its earlier lookups are still running");
+            }
+        }
+        List<Ticket> tickets = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lookupTimeoutMillis);
+        for (Map.Entry<String, Future<Ticket>> result : results.entrySet()) {
+            String lot = result.getKey();
+            try {
+                Ticket ticket = result.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (ticket != null) {
+                    tickets.add(ticket);
+                }
+            } catch (TimeoutException e) {
+                // the lookup is cancelled, a queued one leaves the queue of the lot
+                result.getValue().cancel(true);
+                lookups.get(lot).purge();
+                logger.error("Lot " + lot + " did not answer the lookup of " + vehicleRegNumber + " within " + lookupTimeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                logger.error("Lot " + lot + " failed the lookup of " + vehicleRegNumber, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while looking up " + vehicleRegNumber, e);
+                break;
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * @return a copy of the ticket of a store, stamped with its lot, the store keeping its own objects
+     */
+    private static Ticket copy(Ticket ticket, String lot) {
+        ParkingSpot parkingSpot = new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(),
+                ticket.getParkingSpot().isAvailable());
+        parkingSpot.setLot(lot);
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setParkingSpot(parkingSpot);
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        copy.setLot(lot);
+        return copy;
+    }
+
+    private <S> S get(Map<String, S> stores, String lot) {
+        S store = stores.get((lot == null) ? localLot : lot);
+        if (store == null) {
+            throw new IllegalArgumentException("Unknown lot " + lot);
+        }
+        return store;
+    }
+}
@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.FreeSpotIndex;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
@@ -10,50 +11,301 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotStore {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    /**
+     * When set, spot updates are queued and stored in the background.
+     */
+    public WriteBehindQueue writeBehindQueue;
+
+    /**
+     * When set, spots taken and freed are added to the rollup_hourly table in the same transaction.
+     */
+    public boolean hourlyRollups;
+
+    private volatile FreeSpotIndex freeSpotIndex;
+
+    /**
+     * Load the parking table into an in-memory {@link FreeSpotIndex}, used from now on instead of
+     * querying the lowest free spot. Only valid when this process is the single writer of the parking table.
+     * When the table cannot be read, the spots keep being looked up in the database.
+     */
+    public void loadFreeSpotIndex() {
+        List<ParkingSpot> parkingSpots = getParkingSpots();
+        if (parkingSpots == null) {
+            logger.error("Unable to load the free spot index, spots are looked up in the database");
+            return;
+        }
+        freeSpotIndex = FreeSpotIndex.load(parkingSpots);
+    }
+
+    public FreeSpotIndex getFreeSpotIndex() {
+        return freeSpotIndex;
+    }
+
+    @Override
     public int getNextAvailableSlot(ParkingType parkingType){
+        FreeSpotIndex index = freeSpotIndex;
+        if (index != null) {
+            return index.nextFree(parkingType);
+        }
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT); //PARKING_NUMBER, AVAILABLE, TYPE
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_NEXT_PARKING_SPOT); //PARKING_NUMBER, AVAILABLE, TYPE
             ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
+            rs = ps.executeQuery();
             if(rs.next()){
                 result = rs.getInt(1);
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
         }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
         return result;
     }
 
+    /**
+     * Find and reserve the lowest free spots of this type.
+     * Without the free-spot index this is a single transaction that locks the spot rows and skips rows
+     * already locked by other gates. With the index the spots are claimed in memory and marked taken by
+     * conditional updates, moving on to other spots if another process took them first.
+     * @return the reserved spot numbers, fewer than count when the lot is full, null on error
+     */
+    @Override
+    public List<Integer> claimAvailableSlots(ParkingType parkingType, int count){
+        FreeSpotIndex index = freeSpotIndex;
+        if (index != null) {
+            return claimIndexedSlots(index, parkingType, count);
+        }
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<Integer> parkingNumbers = new ArrayList<>(count);
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_AVAILABLE_PARKING_SPOTS); //TYPE, LIMIT
+            ps.setString(1, parkingType.toString());
+            ps.setInt(2, count);
+            rs = ps.executeQuery();
+            while(rs.next()){
+                parkingNumbers.add(rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            rs = null;
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = null;
+            if (!parkingNumbers.isEmpty()) {
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT); //AVAILABLE, PARKING_NUMBER
+                for (int parkingNumber : parkingNumbers) {
+                    ps.setBoolean(1, false);
+                    ps.setInt(2, parkingNumber);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                if (hourlyRollups) {
+                    RollupDAO.addRollups(dataBaseConfig, con, Collections.singletonList(
+                            Rollups.spotsChanged(parkingType, false, parkingNumbers.size(), System.currentTimeMillis())));
+                }
+            }
+            con.commit();
+            return parkingNumbers;
+        }catch (Exception ex){
+            logger.error("Error claiming available slots",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private List<Integer> claimIndexedSlots(FreeSpotIndex index, ParkingType parkingType, int count) {
+        List<Integer> parkingNumbers = new ArrayList<>(count);
+        while (parkingNumbers.size() < count) {
+            List<Integer> candidates = new ArrayList<>();
+            int number;
+            while (candidates.size() < count - parkingNumbers.size() && (number = index.claim(parkingType)) > 0) {
+                candidates.add(number);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Connection con = null;
+            PreparedStatement ps = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                con.setAutoCommit(false);
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_PARKING_SPOT); //PARKING_NUMBER
+                for (int candidate : candidates) {
+                    ps.setInt(1, candidate);
+                    ps.addBatch();
+                }
+                int[] updateCounts = ps.executeBatch();
+                int claimed = 0;
+                for (int updateCount : updateCounts) {
+                    claimed += (updateCount == 1) ? 1 : 0;
+                }
+                if (hourlyRollups && claimed > 0) {
+                    RollupDAO.addRollups(dataBaseConfig, con, Collections.singletonList(
+                            Rollups.spotsChanged(parkingType, false, claimed, System.currentTimeMillis())));
+                }
+                con.commit();
+                for (int i = 0; i < candidates.size(); i++) {
+                    if (updateCounts[i] == 1) {
+                        parkingNumbers.add(candidates.get(i));
+                    } else {
+                        // taken outside this process, it stays claimed in the index
+                        logger.error("Parking spot " + candidates.get(i) + " was already taken in DB");
+                    }
+                }
+            }catch (Exception ex){
+                logger.error("Error claiming parking spots " + candidates,ex);
+                for (int candidate : candidates) {
+                    index.release(new ParkingSpot(candidate, parkingType, true));
+                }
+                return parkingNumbers.isEmpty() ? null : parkingNumbers;
+            }finally {
+                dataBaseConfig.closePreparedStatement(ps);
+                dataBaseConfig.closeConnection(con);
+            }
+        }
+        return parkingNumbers;
+    }
+
+    @Override
     public boolean updateParking(ParkingSpot parkingSpot){
         //update the availability fo that parking slot
         Connection con = null;
+        PreparedStatement ps = null;
         try {
+            if (writeBehindQueue != null) {
+                FreeSpotIndex index = freeSpotIndex;
+                ParkingSpot written = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), parkingSpot.isAvailable());
+                // the index only changes once the update is stored, so a queued release is never claimed early
+                writeBehindQueue.updateParking(written, (index == null) ? null : () -> updateIndex(index, written));
+                return true;
+            }
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT); //PARKING_NUMBER
+            if (hourlyRollups) {
+                con.setAutoCommit(false);
+            }
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT); //PARKING_NUMBER
             ps.setBoolean(1, parkingSpot.isAvailable());
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
+            if (hourlyRollups) {
+                if (updateRowCount == 1) {
+                    RollupDAO.addRollups(dataBaseConfig, con, Collections.singletonList(Rollups.spotsChanged(
+                            parkingSpot.getParkingType(), parkingSpot.isAvailable(), 1, System.currentTimeMillis())));
+                }
+                con.commit();
+            }
+            FreeSpotIndex index = freeSpotIndex;
+            if (index != null && updateRowCount == 1) {
+                updateIndex(index, parkingSpot);
+            }
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
             return false;
         }finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void updateIndex(FreeSpotIndex index, ParkingSpot parkingSpot) {
+        if (!index.covers(parkingSpot)) {
+            // a spot added to the table since the index was loaded: the index no longer matches the lot
+            if (freeSpotIndex == index) {
+                freeSpotIndex = null;
+                logger.error("Spot " + parkingSpot.getId() + " is not in the free spot index, spots are looked up in the database");
+            }
+            return;
+        }
+        if (parkingSpot.isAvailable()) {
+            index.release(parkingSpot);
+        } else {
+            index.claim(parkingSpot);
+        }
+    }
+
+    /**
+     * @return the number of free spots of each type, every type included
+     */
+    @Override
+    public Map<ParkingType, Integer> getAvailableSlotCounts(){
+        Map<ParkingType, Integer> counts = new EnumMap<>(ParkingType.class);
+        FreeSpotIndex index = freeSpotIndex;
+        for (ParkingType parkingType : ParkingType.values()) {
+            counts.put(parkingType, (index == null) ? 0 : index.countFree(parkingType));
+        }
+        if (index != null) {
+            return counts;
+        }
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            // display counts, a replica in time is recent enough
+            con = dataBaseConfig.getReadConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_AVAILABLE_PARKING_SPOT_COUNTS); //TYPE, COUNT
+            rs = ps.executeQuery();
+            while(rs.next()){
+                counts.put(ParkingType.valueOf(rs.getString(1)), rs.getInt(2));
+            }
+        }catch (Exception ex){
+            logger.error("Error counting available slots",ex);
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        return counts;
+    }
+
+    @Override
+    public List<ParkingSpot> getParkingSpots(){
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        try {
+            if (writeBehindQueue != null) {
+                writeBehindQueue.flush();
+            }
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_PARKING_SPOTS); //PARKING_NUMBER, AVAILABLE, TYPE
+            rs = ps.executeQuery();
+            while(rs.next()){
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2)));
+            }
+        }catch (Exception ex){
+            logger.error("Error fetching parking spots",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
+        return parkingSpots;
     }
 
 }
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage of the parking spots, in MySQL with {@link ParkingSpotDAO} or in memory with {@link InMemoryParkingSpotStore}.
+ */
+public interface ParkingSpotStore {
+
+    /**
+     * @return the lowest free spot number of this type, 0 when the lot is full, -1 on error
+     */
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Find and reserve the lowest free spot of this type, so two gates can never be given the same spot.
+     * @return the reserved spot number, 0 when the lot is full, -1 on error
+     * @see #claimAvailableSlots(ParkingType, int)
+     */
+    default int claimNextAvailableSlot(ParkingType parkingType) {
+        List<Integer> parkingNumbers = claimAvailableSlots(parkingType, 1);
+        if (parkingNumbers == null) {
+            return -1;
+        }
+        return parkingNumbers.isEmpty() ? 0 : parkingNumbers.get(0);
+    }
+
+    /**
+     * Find and reserve the lowest free spots of this type.
+     * @return the reserved spot numbers, fewer than count when the lot is full, null on error
+     */
+    List<Integer> claimAvailableSlots(ParkingType parkingType, int count);
+
+    /**
+     * Store the availability of the spot.
+     * @return false when the spot does not exist or could not be updated
+     */
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * @return the number of free spots of each type, every type included
+     */
+    Map<ParkingType, Integer> getAvailableSlotCounts();
+
+    /**
+     * @return every spot of the lot, null when they cannot be read
+     */
+    List<ParkingSpot> getParkingSpots();
+}
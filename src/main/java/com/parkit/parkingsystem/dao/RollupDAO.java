@@ -0,0 +1,126 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.HourlyRollup;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The rollup_hourly table. The DAOs with hourlyRollups set add to it in the transaction of their own writes,
+ * with {@link #addRollups(DataBaseConfig, Connection, List)}.
+ */
+public class RollupDAO implements RollupStore {
+
+    private static final Logger logger = LogManager.getLogger("RollupDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    @Override
+    public boolean addRollups(List<HourlyRollup> rollups) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            addRollups(dataBaseConfig, con, rollups);
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error adding hourly rollups", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Add the rollups, merged by hour and type, in the transaction of con. Rows are always added in hour then type
+     * order, so two transactions adding to the same hours cannot deadlock.
+     */
+    static void addRollups(DataBaseConfig dataBaseConfig, Connection con, List<HourlyRollup> rollups) throws SQLException, ClassNotFoundException {
+        List<HourlyRollup> merged = Rollups.merge(rollups);
+        if (merged.isEmpty()) {
+            return;
+        }
+        merged.sort((first, second) -> (first.getHour().equals(second.getHour()))
+                ? first.getParkingType().compareTo(second.getParkingType())
+                : first.getHour().compareTo(second.getHour()));
+        PreparedStatement ps = null;
+        try {
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.ADD_HOURLY_ROLLUP); //HOUR, TYPE, CLOSED_TICKETS, REVENUE, SPOTS_TAKEN, SPOTS_FREED, OCCUPIED_SECONDS
+            for (HourlyRollup rollup : merged) {
+                ps.setTimestamp(1, new Timestamp(rollup.getHour().getTime()));
+                ps.setString(2, rollup.getParkingType().toString());
+                ps.setInt(3, rollup.getClosedTickets());
+                ps.setDouble(4, rollup.getRevenue());
+                ps.setInt(5, rollup.getSpotsTaken());
+                ps.setInt(6, rollup.getSpotsFreed());
+                ps.setLong(7, rollup.getOccupiedSeconds());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    @Override
+    public boolean replaceRollups(Date from, Date to, List<HourlyRollup> rollups) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.DELETE_HOURLY_ROLLUPS); //HOUR from, HOUR to
+            ps.setTimestamp(1, new Timestamp(from.getTime()));
+            ps.setTimestamp(2, new Timestamp(to.getTime()));
+            ps.execute();
+            addRollups(dataBaseConfig, con, rollups);
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error replacing hourly rollups", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public List<HourlyRollup> getRollups(Date from, Date to) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_HOURLY_ROLLUPS); //HOUR from, HOUR to
+            ps.setTimestamp(1, new Timestamp(from.getTime()));
+            ps.setTimestamp(2, new Timestamp(to.getTime()));
+            rs = ps.executeQuery(); //HOUR, TYPE, CLOSED_TICKETS, REVENUE, SPOTS_TAKEN, SPOTS_FREED, OCCUPIED_SECONDS
+            List<HourlyRollup> rollups = new ArrayList<>();
+            while (rs.next()) {
+                rollups.add(new HourlyRollup(new Date(rs.getTimestamp(1).getTime()), ParkingType.valueOf(rs.getString(2)),
+                        rs.getInt(3), rs.getDouble(4), rs.getInt(5), rs.getInt(6), rs.getLong(7)));
+            }
+            return rollups;
+        } catch (Exception ex) {
+            logger.error("Error reading hourly rollups", ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.HourlyRollup;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Storage of the {@link HourlyRollup}s, in MySQL with {@link RollupDAO} or in memory with {@link InMemoryRollupStore}.
+ */
+public interface RollupStore {
+
+    /**
+     * Add the changes to the rollups of their hour and type, created when missing.
+     * @return false when nothing was added
+     */
+    boolean addRollups(List<HourlyRollup> rollups);
+
+    /**
+     * Replace the rollups of the hours in [from, to) by these ones, all or none.
+     * @return false when nothing was replaced
+     */
+    boolean replaceRollups(Date from, Date to, List<HourlyRollup> rollups);
+
+    /**
+     * @return the rollups of the hours in [from, to) by hour then type, null on error
+     */
+    List<HourlyRollup> getRollups(Date from, Date to);
+}
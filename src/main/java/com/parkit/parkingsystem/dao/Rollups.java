@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.HourlyRollup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link HourlyRollup} changes made by a closed ticket or by spots changing state.
+ * Hours start on whole hours since the epoch, which are the local hours of the whole-hour time zones.
+ */
+public final class Rollups {
+
+    public static final long HOUR_MS = 3600 * 1000L;
+
+    private Rollups() {
+    }
+
+    public static long hourOf(long time) {
+        return Math.floorDiv(time, HOUR_MS) * HOUR_MS;
+    }
+
+    /**
+     * @return the ticket counted and priced in the hour it was closed, its parked time spread over the hours of its stay
+     */
+    public static List<HourlyRollup> ticketClosed(ParkingType parkingType, Date inTime, Date outTime, double price) {
+        return ticket(parkingType, inTime, outTime, price, false, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Same as {@link #ticketClosed} with its spot taken in the hour it came and freed in the hour it left,
+     * keeping only what falls in [from, to), to rebuild the rollups of a period from the tickets.
+     * An open ticket, without outTime, only takes its spot.
+     */
+    public static List<HourlyRollup> ticketHistory(ParkingType parkingType, Date inTime, Date outTime, double price, long from, long to) {
+        return ticket(parkingType, inTime, outTime, price, true, from, to);
+    }
+
+    private static List<HourlyRollup> ticket(ParkingType parkingType, Date inTime, Date outTime, double price,
+                                             boolean spots, long from, long to) {
+        List<HourlyRollup> rollups = new ArrayList<>();
+        long in = inTime.getTime();
+        if (spots && in >= from && in < to) {
+            rollups.add(new HourlyRollup(new Date(hourOf(in)), parkingType, 0, 0, 1, 0, 0));
+        }
+        if (outTime == null) {
+            return rollups;
+        }
+        long out = outTime.getTime();
+        if (out >= from && out < to) {
+            rollups.add(new HourlyRollup(new Date(hourOf(out)), parkingType, 1, price, 0, spots ? 1 : 0, 0));
+        }
+        long end = Math.min(out, to);
+        for (long hour = hourOf(Math.max(in, from)); hour < end; hour += HOUR_MS) {
+            long parkedMillis = Math.min(end, hour + HOUR_MS) - Math.max(Math.max(in, from), hour);
+            if (parkedMillis >= 1000) {
+                rollups.add(new HourlyRollup(new Date(hour), parkingType, 0, 0, 0, 0, parkedMillis / 1000));
+            }
+        }
+        return rollups;
+    }
+
+    /**
+     * @return count spots of this type taken, or freed when available, in the hour of time
+     */
+    public static HourlyRollup spotsChanged(ParkingType parkingType, boolean available, int count, long time) {
+        return new HourlyRollup(new Date(hourOf(time)), parkingType, 0, 0, available ? 0 : count, available ? count : 0, 0);
+    }
+
+    /**
+     * @return one rollup per hour and type, in the order they first appear
+     */
+    public static List<HourlyRollup> merge(Collection<HourlyRollup> rollups) {
+        Map<String, HourlyRollup> merged = new LinkedHashMap<>();
+        for (HourlyRollup rollup : rollups) {
+            merged.merge(rollup.getHour().getTime() + rollup.getParkingType().name(), rollup, HourlyRollup::plus);
+        }
+        return new ArrayList<>(merged.values());
+    }
+}
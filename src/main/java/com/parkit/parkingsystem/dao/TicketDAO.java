@@ -1,5 +1,7 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.cache.OpenTicketCache;
+import com.parkit.parkingsystem.cache.TicketFrequencyCache;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
@@ -11,96 +13,543 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
 
-public class TicketDAO {
+public class TicketDAO implements TicketStore {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
-    public void saveTicket(Ticket ticket){
+    /**
+     * When set, ticket writes are queued and stored in the background.
+     */
+    public WriteBehindQueue writeBehindQueue;
+
+    /**
+     * When set, closed tickets are added to the rollup_hourly table in the same transaction.
+     */
+    public boolean hourlyRollups;
+
+    private volatile TicketFrequencyCache ticketFrequencyCache;
+
+    /**
+     * Count the closed tickets of each vehicle in one streamed query into a {@link TicketFrequencyCache}
+     * of at most maxEntries vehicles, used from now on by {@link #getNbTicket(String)}.
+     * Only valid when this process is the single writer of the ticket table.
+     */
+    public void loadTicketFrequencyCache(int maxEntries) {
+        TicketFrequencyCache cache = new TicketFrequencyCache(maxEntries);
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET); //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+            // not taken from the statement cache: the streaming fetch size must not leak to other queries
+            ps = con.prepareStatement(DBConstants.GET_TICKET_FREQS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                if (!cache.load(rs.getString(1), rs.getInt(2))) {
+                    // vehicles beyond maxEntries are read from the database on demand
+                    break;
+                }
+            }
+            ticketFrequencyCache = cache;
+        } catch (Exception ex) {
+            logger.error("Error loading ticket frequencies", ex);
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public TicketFrequencyCache getTicketFrequencyCache() {
+        return ticketFrequencyCache;
+    }
+
+    private volatile OpenTicketCache openTicketCache;
+
+    /**
+     * Load the tickets without an out time into an {@link OpenTicketCache}, used from now on to find
+     * the ticket of an exiting vehicle and to refuse a vehicle already parked.
+     * Only valid when this process is the single writer of the ticket table.
+     */
+    public void loadOpenTicketCache() {
+        List<Ticket> tickets = getOpenTickets();
+        if (tickets != null) {
+            openTicketCache = OpenTicketCache.load(tickets);
+        }
+    }
+
+    public OpenTicketCache getOpenTicketCache() {
+        return openTicketCache;
+    }
+
+    /**
+     * Save the ticket and set its generated ID.
+     * @return false when it was not saved, or the vehicle is already parked according to the open ticket cache
+     */
+    @Override
+    public boolean saveTicket(Ticket ticket){
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        OpenTicketCache cache = (ticket.getOutTime() == null) ? openTicketCache : null;
+        if (cache != null && !cache.open(ticket)) {
+            logger.error("Vehicle " + ticket.getVehicleRegNumber() + " already has an open ticket");
+            return false;
+        }
+        try {
+            if (writeBehindQueue != null) {
+                writeBehindQueue.saveTicket(ticket);
+                return true;
+            }
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS); //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
             ps.setInt(1,ticket.getParkingSpot().getId());
             ps.setString(2, ticket.getVehicleRegNumber());
             ps.setDouble(3, ticket.getPrice());
             ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
             ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
             ps.execute();
+            rs = ps.getGeneratedKeys();
+            if (rs.next()) {
+                ticket.setId(rs.getInt(1));
+            }
+            return true;
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error saving ticket",ex);
         }finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
-            return;
         }
+        if (cache != null) {
+            cache.close(ticket);
+        }
+        return false;
     }
 
-    public Ticket getTicket(String vehicleRegNumber) {
+    /**
+     * Insert all tickets in one JDBC batch and transaction, and set their generated IDs.
+     * @return false when nothing was saved
+     */
+    @Override
+    public boolean saveTickets(List<Ticket> tickets){
         Connection con = null;
-        Ticket ticket = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        OpenTicketCache cache = openTicketCache;
+        List<Ticket> opened = new ArrayList<>(tickets.size());
+        if (cache != null) {
+            for (Ticket ticket : tickets) {
+                if (ticket.getOutTime() != null) {
+                    continue;
+                }
+                if (!cache.open(ticket)) {
+                    logger.error("Vehicle " + ticket.getVehicleRegNumber() + " already has an open ticket");
+                    opened.forEach(cache::close);
+                    return false;
+                }
+                opened.add(ticket);
+            }
+        }
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET); //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
-            ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+            con.setAutoCommit(false);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS); //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+            for (Ticket ticket : tickets) {
+                ps.setInt(1,ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            rs = ps.getGeneratedKeys();
+            for (Ticket ticket : tickets) {
+                if (rs.next()) {
+                    ticket.setId(rs.getInt(1));
+                }
+            }
+            con.commit();
+            return true;
+        }catch (Exception ex){
+            logger.error("Error saving tickets",ex);
+            if (cache != null) {
+                opened.forEach(cache::close);
             }
+            return false;
+        }finally {
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * @return the latest ticket of this vehicle, read from the archive only when the ticket table has none
+     */
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return getTicket(vehicleRegNumber, true);
+    }
+
+    private Ticket getTicket(String vehicleRegNumber, boolean orArchived) {
+        Connection con = null;
+        Ticket ticket = null;
+        try {
+            flushPendingWrites(vehicleRegNumber);
+            con = dataBaseConfig.getConnection();
+            ticket = readTicket(con, DBConstants.GET_TICKET, vehicleRegNumber);
+            // archived tickets are all older than the ones left in the ticket table
+            if (ticket == null && orArchived) {
+                ticket = readTicket(con, DBConstants.GET_ARCHIVED_TICKET, vehicleRegNumber);
+            }
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
         }finally {
             dataBaseConfig.closeConnection(con);
+        }
+        return ticket;
+    }
+
+    private Ticket readTicket(Connection con, String sql, String vehicleRegNumber) throws Exception {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = dataBaseConfig.prepareStatement(con, sql); //VEHICLE_REG_NUMBER
+            ps.setString(1,vehicleRegNumber);
+            rs = ps.executeQuery(); //PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, TYPE
+            if(!rs.next()){
+                return null;
+            }
+            Ticket ticket = new Ticket();
+            ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setId(rs.getInt(2));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(rs.getDouble(3));
+            ticket.setInTime(rs.getTimestamp(4));
+            ticket.setOutTime(rs.getTimestamp(5));
             return ticket;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
         }
     }
 
-    public boolean updateTicket(Ticket ticket) {
+    /**
+     * @return the ticket of this vehicle still parked, or null. Served from the open ticket cache when loaded.
+     */
+    @Override
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        OpenTicketCache cache = openTicketCache;
+        if (cache != null) {
+            return cache.get(vehicleRegNumber);
+        }
+        // an open ticket is never archived
+        Ticket ticket = getTicket(vehicleRegNumber, false);
+        return (ticket == null || ticket.getOutTime() != null) ? null : ticket;
+    }
+
+    /**
+     * @return the tickets without an out time, read from the database even when the open ticket cache is loaded
+     */
+    @Override
+    public List<Ticket> getOpenTickets() {
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         try {
+            if (writeBehindQueue != null) {
+                writeBehindQueue.flush();
+            }
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET); //PRICE, OUT_TIME, ID
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3,ticket.getId());
-            ps.execute();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_OPEN_TICKETS); //PARKING_NUMBER, ID, VEHICLE_REG_NUMBER, PRICE, IN_TIME, TYPE
+            rs = ps.executeQuery();
+            List<Ticket> tickets = new ArrayList<>();
+            while (rs.next()) {
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false));
+                ticket.setId(rs.getInt(2));
+                ticket.setVehicleRegNumber(rs.getString(3));
+                ticket.setPrice(rs.getDouble(4));
+                ticket.setInTime(rs.getTimestamp(5));
+                tickets.add(ticket);
+            }
+            return tickets;
+        } catch (Exception ex) {
+            logger.error("Error loading open tickets", ex);
+            return null;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * @return true when the open ticket cache holds a ticket of this vehicle, always false when it is not loaded
+     */
+    @Override
+    public boolean isParked(String vehicleRegNumber) {
+        OpenTicketCache cache = openTicketCache;
+        return cache != null && cache.isParked(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            if (writeBehindQueue != null) {
+                // counted once the writer has closed it, the update finds no row when it was closed already
+                String vehicleRegNumber = ticket.getVehicleRegNumber();
+                writeBehindQueue.updateTicket(ticket, () -> countClosedTicket(vehicleRegNumber));
+            } else {
+                con = dataBaseConfig.getConnection();
+                if (hourlyRollups) {
+                    con.setAutoCommit(false);
+                }
+                ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET); //PRICE, OUT_TIME, ID
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setInt(3,ticket.getId());
+                // no row when the ticket is unknown or already closed: closing it again would count its fare twice
+                if (ps.executeUpdate() != 1) {
+                    if (hourlyRollups) {
+                        con.rollback();
+                    }
+                    logger.error("Ticket " + ticket.getId() + " of vehicle " + ticket.getVehicleRegNumber() + " is not open, not closed again");
+                    return false;
+                }
+                if (hourlyRollups) {
+                    RollupDAO.addRollups(dataBaseConfig, con, Rollups.ticketClosed(ticket.getParkingSpot().getParkingType(),
+                            ticket.getInTime(), ticket.getOutTime(), ticket.getPrice()));
+                    con.commit();
+                }
+                countClosedTicket(ticket.getVehicleRegNumber());
+            }
+            OpenTicketCache openTickets = openTicketCache;
+            if (openTickets != null) {
+                openTickets.close(ticket);
+            }
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
         }finally {
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
         return false;
     }
 
+    /**
+     * Add a closed ticket to the frequency cache, only called once its ticket was found open and closed.
+     */
+    private void countClosedTicket(String vehicleRegNumber) {
+        TicketFrequencyCache cache = ticketFrequencyCache;
+        if (cache != null) {
+            cache.increment(vehicleRegNumber);
+        }
+    }
+
+    /**
+     * Stream the tickets closed in [from, to) to the handler one row at a time, so memory use does not depend on
+     * the number of tickets. The handler also gets whether the vehicle had a ticket closed before this one,
+     * the regular customer rule of the exit. It runs while the query is still streaming.
+     * The ticket table is read first, then the partitions of the archive holding the period.
+     * Read from a replica in time when the database has replicas.
+     * @return false when the tickets could not all be read
+     */
+    @Override
+    public boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+        return streamClosedTickets(DBConstants.GET_CLOSED_TICKETS, from, to, handler)
+                && streamClosedTickets(DBConstants.GET_ARCHIVED_CLOSED_TICKETS, from, to, handler);
+    }
+
+    private boolean streamClosedTickets(String sql, Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getReadConnection();
+            // not taken from the statement cache: the streaming fetch size must not leak to other queries
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY); //OUT_TIME from, OUT_TIME to
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setTimestamp(1, new Timestamp(from.getTime()));
+            ps.setTimestamp(2, new Timestamp(to.getTime()));
+            rs = ps.executeQuery(); //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, TYPE, REGULAR
+            while (rs.next()) {
+                Ticket ticket = new Ticket();
+                ticket.setId(rs.getInt(1));
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(7)), false));
+                ticket.setVehicleRegNumber(rs.getString(3));
+                ticket.setPrice(rs.getDouble(4));
+                ticket.setInTime(rs.getTimestamp(5));
+                ticket.setOutTime(rs.getTimestamp(6));
+                handler.accept(ticket, rs.getBoolean(8));
+            }
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error reading closed tickets", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Store the price of closed tickets in one JDBC batch and transaction, whether they are archived or not.
+     * @return false when nothing was stored
+     */
+    @Override
+    public boolean updateTicketPrices(List<Ticket> tickets) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        PreparedStatement archived = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET_PRICE); //PRICE, ID
+            archived = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_ARCHIVED_TICKET_PRICE); //PRICE, ID, OUT_TIME
+            for (Ticket ticket : tickets) {
+                Timestamp outTime = new Timestamp(ticket.getOutTime().getTime());
+                ps.setDouble(1, ticket.getPrice());
+                ps.setInt(2, ticket.getId());
+                ps.addBatch();
+                archived.setDouble(1, ticket.getPrice());
+                archived.setInt(2, ticket.getId());
+                archived.setTimestamp(3, outTime);
+                archived.addBatch();
+            }
+            ps.executeBatch();
+            archived.executeBatch();
+            con.commit();
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error saving ticket prices", ex);
+            return false;
+        } finally {
+            dataBaseConfig.closePreparedStatement(archived);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Move the tickets closed before the given date, at most about batchSize of the oldest ones, to the ticket_archive
+     * table, and add them to the archived counts of their vehicles, in one short transaction. Tickets closed at the same
+     * time as the last one of the batch move with it, so the archive only ever holds tickets closed before the ones
+     * left in the ticket table.
+     * @return the number of tickets moved, 0 when none is left to move, -1 on error
+     */
+    public int archiveClosedTickets(Date before, int batchSize) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_ARCHIVE_BATCH_END); //OUT_TIME before, batch size
+            ps.setTimestamp(1, new Timestamp(before.getTime()));
+            ps.setInt(2, batchSize);
+            rs = ps.executeQuery();
+            Timestamp batchEnd = rs.next() ? rs.getTimestamp(1) : null;
+            dataBaseConfig.closeResultSet(rs);
+            rs = null;
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = null;
+            if (batchEnd == null) {
+                return 0;
+            }
+            con.setAutoCommit(false);
+            executeUpdate(con, DBConstants.ADD_ARCHIVED_TICKET_COUNTS, batchEnd);
+            int copied = executeUpdate(con, DBConstants.ARCHIVE_TICKETS, batchEnd);
+            int deleted = executeUpdate(con, DBConstants.DELETE_ARCHIVED_TICKETS, batchEnd);
+            if (copied != deleted) {
+                con.rollback();
+                logger.error("Archived " + copied + " tickets but deleted " + deleted + ", rolled back");
+                return -1;
+            }
+            con.commit();
+            return deleted;
+        } catch (Exception ex) {
+            logger.error("Error archiving tickets", ex);
+            return -1;
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int executeUpdate(Connection con, String sql, Timestamp outTime) throws Exception {
+        PreparedStatement ps = null;
+        try {
+            ps = dataBaseConfig.prepareStatement(con, sql); //OUT_TIME
+            ps.setTimestamp(1, outTime);
+            return ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    @Override
     public Integer getNbTicket(String vehicleRegNumber) {
 
         Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
         int count = 0;
+        TicketFrequencyCache cache = ticketFrequencyCache;
+        long cacheVersion = 0;
+        if (cache != null) {
+            Integer cached = cache.get(vehicleRegNumber);
+            if (cached != null) {
+                return cached;
+            }
+            cacheVersion = cache.getVersion();
+        }
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET_FREQ); // OUT_TIME, VEHICLE_REG_NUMBER
+            flushPendingWrites(vehicleRegNumber);
+            // the count cached must be exact, counts to serve once may come from a replica in time
+            con = (cache != null) ? dataBaseConfig.getConnection() : dataBaseConfig.getReadConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET_FREQ); // VEHICLE_REG_NUMBER, VEHICLE_REG_NUMBER
             ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
+            ps.setString(2, vehicleRegNumber);
+            rs = ps.executeQuery();
             if(rs.next()) {
                 count = rs.getInt("FREQ");
             }
+            if (cache != null) {
+                cache.putIfUnchanged(vehicleRegNumber, count, cacheVersion);
+            }
         } catch (Exception ex) {
             logger.error("Error count number of ticket, can't define user frequency", ex);
         } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
         }
         return count;
     }
+
+    private void flushPendingWrites(String vehicleRegNumber) throws InterruptedException {
+        if (writeBehindQueue != null && writeBehindQueue.hasPendingWrites(vehicleRegNumber)) {
+            writeBehindQueue.flush();
+            // written by the writer thread, read by this one
+            DataBaseConfig.markWrite();
+        }
+    }
 }
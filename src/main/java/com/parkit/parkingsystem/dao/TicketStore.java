@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage of the tickets, in MySQL with {@link TicketDAO} or in memory with {@link InMemoryTicketStore}.
+ */
+public interface TicketStore {
+
+    /**
+     * Save the ticket and set its generated ID.
+     * @return false when it was not saved, or the vehicle already has an open ticket
+     * (checked by {@link TicketDAO} only once its open ticket cache is loaded)
+     */
+    boolean saveTicket(Ticket ticket);
+
+    /**
+     * Save all tickets or none, and set their generated IDs.
+     * @return false when nothing was saved
+     */
+    boolean saveTickets(List<Ticket> tickets);
+
+    /**
+     * @return the last ticket of this vehicle by in time, or null
+     */
+    Ticket getTicket(String vehicleRegNumber);
+
+    /**
+     * @return the ticket of this vehicle still parked, or null
+     */
+    Ticket getOpenTicket(String vehicleRegNumber);
+
+    /**
+     * @return the tickets of the vehicles still parked, null on error
+     */
+    List<Ticket> getOpenTickets();
+
+    /**
+     * @return true when the vehicle has an open ticket
+     * (always false with {@link TicketDAO} until its open ticket cache is loaded)
+     */
+    boolean isParked(String vehicleRegNumber);
+
+    /**
+     * Store the price and out time of the ticket.
+     * @return false when it could not be stored
+     */
+    boolean updateTicket(Ticket ticket);
+
+    /**
+     * @return the number of closed tickets of this vehicle
+     */
+    Integer getNbTicket(String vehicleRegNumber);
+
+    /**
+     * Hand the tickets closed in [from, to) to the handler one at a time, with whether the vehicle had a ticket
+     * closed before this one.
+     * @return false when the tickets could not all be read
+     */
+    boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler);
+
+    /**
+     * Store the price of closed tickets, all or none.
+     * @return false when nothing was stored
+     */
+    boolean updateTicketPrices(List<Ticket> tickets);
+}
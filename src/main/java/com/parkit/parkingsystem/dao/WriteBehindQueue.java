@@ -0,0 +1,386 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.HourlyRollup;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind mode of the DAOs: ticket and spot updates are queued and a background writer
+ * stores them in group-committed JDBC batches, so the gate does not wait for the MySQL commit.
+ * Writes are applied in the order they were queued. A full queue blocks the caller until the writer
+ * catches up. A batch that fails is retried one write at a time; writes failing again are logged and lost.
+ */
+public class WriteBehindQueue {
+
+    private static final Logger logger = LogManager.getLogger("WriteBehindQueue");
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 10;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private enum WriteType {
+        SAVE_TICKET(DBConstants.SAVE_TICKET),
+        UPDATE_TICKET(DBConstants.UPDATE_TICKET),
+        UPDATE_PARKING(DBConstants.UPDATE_PARKING_SPOT);
+
+        private final String sql;
+
+        WriteType(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Values are copied when the write is queued, the ticket is kept to receive its generated ID.
+     */
+    private static class PendingWrite {
+        private final WriteType type;
+        private final Ticket ticket;
+        private final String vehicleRegNumber;
+        private final int parkingNumber;
+        private final ParkingType parkingType;
+        private final boolean available;
+        private final double price;
+        private final Date inTime;
+        private final Date outTime;
+        private final Runnable onWritten;
+        private final long queuedAt = System.currentTimeMillis();
+        // false for a ticket update that matched no open ticket, or a write that was lost
+        private boolean applied = true;
+
+        private PendingWrite(WriteType type, Ticket ticket, ParkingSpot parkingSpot, boolean available, Runnable onWritten) {
+            this.type = type;
+            this.ticket = ticket;
+            this.vehicleRegNumber = (ticket == null) ? null : ticket.getVehicleRegNumber();
+            this.parkingNumber = parkingSpot.getId();
+            this.parkingType = parkingSpot.getParkingType();
+            this.available = available;
+            this.price = (ticket == null) ? 0 : ticket.getPrice();
+            this.inTime = (ticket == null) ? null : ticket.getInTime();
+            this.outTime = (ticket == null) ? null : ticket.getOutTime();
+            this.onWritten = onWritten;
+        }
+    }
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Map<String, Integer> pendingVehicles = new ConcurrentHashMap<>();
+    private final Thread writer;
+
+    private final Object progress = new Object();
+    private long queuedCount;
+    private long writtenCount;
+    private volatile boolean flushRequested;
+    private volatile boolean running = true;
+
+    /**
+     * When set, closed tickets and spot updates are added to the rollup_hourly table in the transaction of their batch.
+     */
+    public volatile boolean hourlyRollups;
+
+    public WriteBehindQueue(DataBaseConfig dataBaseConfig, int capacity, int batchSize, long flushIntervalMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Build a queue from the parkit.writeBehind.* system properties.
+     */
+    public static WriteBehindQueue fromSystemProperties(DataBaseConfig dataBaseConfig) {
+        return new WriteBehindQueue(dataBaseConfig,
+                Integer.getInteger("parkit.writeBehind.capacity", DEFAULT_CAPACITY),
+                Integer.getInteger("parkit.writeBehind.batchSize", DEFAULT_BATCH_SIZE),
+                Long.getLong("parkit.writeBehind.flushIntervalMillis", DEFAULT_FLUSH_INTERVAL_MS));
+    }
+
+    public void saveTicket(Ticket ticket) throws InterruptedException {
+        enqueue(new PendingWrite(WriteType.SAVE_TICKET, ticket, ticket.getParkingSpot(), false, null));
+    }
+
+    public void updateTicket(Ticket ticket) throws InterruptedException {
+        updateTicket(ticket, null);
+    }
+
+    /**
+     * @param onClosed run by the writer once the ticket is closed and committed, not when it was closed already, may be null
+     */
+    public void updateTicket(Ticket ticket, Runnable onClosed) throws InterruptedException {
+        enqueue(new PendingWrite(WriteType.UPDATE_TICKET, ticket, ticket.getParkingSpot(), false, onClosed));
+    }
+
+    /**
+     * @param onWritten run by the writer once the update is committed, may be null
+     */
+    public void updateParking(ParkingSpot parkingSpot, Runnable onWritten) throws InterruptedException {
+        enqueue(new PendingWrite(WriteType.UPDATE_PARKING, null, parkingSpot, parkingSpot.isAvailable(), onWritten));
+    }
+
+    /**
+     * @return true while a ticket write of this vehicle is still queued, reads must flush first
+     */
+    public boolean hasPendingWrites(String vehicleRegNumber) {
+        return pendingVehicles.containsKey(vehicleRegNumber);
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Wait until every write queued before this call is committed.
+     */
+    public void flush() throws InterruptedException {
+        synchronized (progress) {
+            long target = queuedCount;
+            while (writtenCount < target) {
+                flushRequested = true;
+                progress.wait(flushIntervalMillis + 100);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting writes, store everything still queued and stop the writer.
+     */
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flushRequested = true;
+        writer.join();
+    }
+
+    private void enqueue(PendingWrite write) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Write-behind queue is shut down");
+        }
+        if (write.vehicleRegNumber != null) {
+            pendingVehicles.merge(write.vehicleRegNumber, 1, Integer::sum);
+        }
+        synchronized (progress) {
+            // counted before it is queued so a flush never returns before this write is stored
+            queuedCount++;
+        }
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            completed(Collections.singletonList(write), false);
+            throw e;
+        }
+    }
+
+    private void drain() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(Math.max(flushIntervalMillis, 1), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // wait for more writes to share the commit, unless someone is waiting on a flush
+                long deadline = System.currentTimeMillis() + flushIntervalMillis;
+                while (batch.size() < batchSize && !flushRequested) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    // the writer must outlive any batch, or flushes and full queues would wait forever
+                    for (PendingWrite write : batch) {
+                        lost(write);
+                    }
+                    logger.error("Lost batch of " + batch.size() + " writes", e);
+                }
+                completed(batch, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Write-behind writer interrupted, " + queue.size() + " writes not stored");
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try {
+                writeInOrder(con, batch);
+                con.commit();
+                return;
+            } catch (SQLException e) {
+                logger.error("Error writing batch of " + batch.size() + " writes, retrying one by one", e);
+                con.rollback();
+            }
+            for (PendingWrite write : batch) {
+                try {
+                    writeInOrder(con, Collections.singletonList(write));
+                    con.commit();
+                } catch (SQLException e) {
+                    lost(write);
+                    logger.error("Lost " + write.type + " write of ticket " + write.vehicleRegNumber + " spot " + write.parkingNumber, e);
+                    con.rollback();
+                }
+            }
+        } catch (Exception ex) {
+            for (PendingWrite write : batch) {
+                lost(write);
+            }
+            logger.error("Lost batch of " + batch.size() + " writes", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Mark a write as not stored. A saved ticket loses the ID it may have got from a batch rolled back since,
+     * so a later update of the ticket fails instead of targeting a row that does not exist.
+     */
+    private static void lost(PendingWrite write) {
+        write.applied = false;
+        if (write.type == WriteType.SAVE_TICKET) {
+            write.ticket.setId(0);
+        }
+    }
+
+    /**
+     * Send each run of consecutive writes of the same type as one JDBC batch, then their hourly rollups if enabled.
+     */
+    private void writeInOrder(Connection con, List<PendingWrite> writes) throws SQLException, ClassNotFoundException {
+        int start = 0;
+        while (start < writes.size()) {
+            WriteType type = writes.get(start).type;
+            int end = start;
+            while (end < writes.size() && writes.get(end).type == type) {
+                end++;
+            }
+            writeRun(con, type, writes.subList(start, end));
+            start = end;
+        }
+        if (hourlyRollups) {
+            List<HourlyRollup> rollups = new ArrayList<>();
+            for (PendingWrite write : writes) {
+                if (write.type == WriteType.UPDATE_TICKET && write.applied) {
+                    rollups.addAll(Rollups.ticketClosed(write.parkingType, write.inTime, write.outTime, write.price));
+                } else if (write.type == WriteType.UPDATE_PARKING) {
+                    rollups.add(Rollups.spotsChanged(write.parkingType, write.available, 1, write.queuedAt));
+                }
+            }
+            RollupDAO.addRollups(dataBaseConfig, con, rollups);
+        }
+    }
+
+    private void writeRun(Connection con, WriteType type, List<PendingWrite> writes) throws SQLException, ClassNotFoundException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            int generatedKeys = (type == WriteType.SAVE_TICKET) ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
+            ps = dataBaseConfig.prepareStatement(con, type.sql, generatedKeys);
+            for (PendingWrite write : writes) {
+                switch (type) {
+                    case SAVE_TICKET: //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+                        ps.setInt(1, write.parkingNumber);
+                        ps.setString(2, write.vehicleRegNumber);
+                        ps.setDouble(3, write.price);
+                        ps.setTimestamp(4, new Timestamp(write.inTime.getTime()));
+                        ps.setTimestamp(5, (write.outTime == null) ? null : new Timestamp(write.outTime.getTime()));
+                        break;
+                    case UPDATE_TICKET: //PRICE, OUT_TIME, ID
+                        ps.setDouble(1, write.price);
+                        ps.setTimestamp(2, new Timestamp(write.outTime.getTime()));
+                        // read now, the ticket may have been inserted earlier in this batch
+                        ps.setInt(3, write.ticket.getId());
+                        break;
+                    case UPDATE_PARKING: //AVAILABLE, PARKING_NUMBER
+                        ps.setBoolean(1, write.available);
+                        ps.setInt(2, write.parkingNumber);
+                        break;
+                }
+                ps.addBatch();
+            }
+            int[] updateCounts = ps.executeBatch();
+            if (type == WriteType.UPDATE_TICKET) {
+                for (int i = 0; i < writes.size(); i++) {
+                    // SUCCESS_NO_INFO when the driver cannot tell, only 0 means the ticket was not open
+                    writes.get(i).applied = updateCounts[i] != 0;
+                    if (!writes.get(i).applied) {
+                        logger.error("Ticket " + writes.get(i).ticket.getId() + " of vehicle " + writes.get(i).vehicleRegNumber + " is not open, not closed again");
+                    }
+                }
+            }
+            if (type == WriteType.SAVE_TICKET) {
+                rs = ps.getGeneratedKeys();
+                for (PendingWrite write : writes) {
+                    if (rs.next()) {
+                        write.ticket.setId(rs.getInt(1));
+                    }
+                }
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    private void completed(List<PendingWrite> batch, boolean written) {
+        for (PendingWrite write : batch) {
+            if (write.vehicleRegNumber != null) {
+                pendingVehicles.computeIfPresent(write.vehicleRegNumber, (vehicle, count) -> (count == 1) ? null : count - 1);
+            }
+            if (written && write.applied && write.onWritten != null) {
+                try {
+                    write.onWritten.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error after the " + write.type + " write of ticket " + write.vehicleRegNumber + " spot " + write.parkingNumber, e);
+                }
+            }
+        }
+        synchronized (progress) {
+            writtenCount += batch.size();
+            if (writtenCount >= queuedCount) {
+                flushRequested = false;
+            }
+            progress.notifyAll();
+        }
+    }
+}
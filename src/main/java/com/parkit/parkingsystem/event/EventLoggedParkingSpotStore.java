@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ParkingSpotStore} recording in a {@link GateEventLog} the spots it takes and frees, once stored.
+ */
+public class EventLoggedParkingSpotStore implements ParkingSpotStore {
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final GateEventLog eventLog;
+
+    public EventLoggedParkingSpotStore(ParkingSpotStore parkingSpotStore, GateEventLog eventLog) {
+        this.parkingSpotStore = parkingSpotStore;
+        this.eventLog = eventLog;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return parkingSpotStore.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public List<Integer> claimAvailableSlots(ParkingType parkingType, int count) {
+        List<Integer> parkingNumbers = parkingSpotStore.claimAvailableSlots(parkingType, count);
+        if (parkingNumbers != null) {
+            long now = System.currentTimeMillis();
+            for (int parkingNumber : parkingNumbers) {
+                eventLog.append(GateEvent.spotTaken(now, new ParkingSpot(parkingNumber, parkingType, false)));
+            }
+        }
+        return parkingNumbers;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        if (!parkingSpotStore.updateParking(parkingSpot)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        eventLog.append(parkingSpot.isAvailable() ? GateEvent.spotFreed(now, parkingSpot) : GateEvent.spotTaken(now, parkingSpot));
+        return true;
+    }
+
+    @Override
+    public Map<ParkingType, Integer> getAvailableSlotCounts() {
+        return parkingSpotStore.getAvailableSlotCounts();
+    }
+
+    @Override
+    public List<ParkingSpot> getParkingSpots() {
+        return parkingSpotStore.getParkingSpots();
+    }
+}
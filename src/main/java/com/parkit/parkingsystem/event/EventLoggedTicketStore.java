@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link TicketStore} recording in a {@link GateEventLog} the tickets it opens and closes, with their fare,
+ * and the fares it changes, once stored.
+ */
+public class EventLoggedTicketStore implements TicketStore {
+
+    private final TicketStore ticketStore;
+    private final GateEventLog eventLog;
+
+    public EventLoggedTicketStore(TicketStore ticketStore, GateEventLog eventLog) {
+        this.ticketStore = ticketStore;
+        this.eventLog = eventLog;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (!ticketStore.saveTicket(ticket)) {
+            return false;
+        }
+        record(ticket, System.currentTimeMillis());
+        return true;
+    }
+
+    @Override
+    public boolean saveTickets(List<Ticket> tickets) {
+        if (!ticketStore.saveTickets(tickets)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Ticket ticket : tickets) {
+            record(ticket, now);
+        }
+        return true;
+    }
+
+    /**
+     * Tickets saved already closed, e.g. imported, are recorded as closed.
+     */
+    private void record(Ticket ticket, long now) {
+        eventLog.append((ticket.getOutTime() == null) ? GateEvent.ticketOpened(now, ticket) : GateEvent.ticketClosed(now, ticket));
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return ticketStore.getTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        return ticketStore.getOpenTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets() {
+        return ticketStore.getOpenTickets();
+    }
+
+    @Override
+    public boolean isParked(String vehicleRegNumber) {
+        return ticketStore.isParked(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        if (!ticketStore.updateTicket(ticket)) {
+            return false;
+        }
+        eventLog.append(GateEvent.ticketClosed(System.currentTimeMillis(), ticket));
+        return true;
+    }
+
+    @Override
+    public Integer getNbTicket(String vehicleRegNumber) {
+        return ticketStore.getNbTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+        return ticketStore.streamClosedTickets(from, to, handler);
+    }
+
+    @Override
+    public boolean updateTicketPrices(List<Ticket> tickets) {
+        if (!ticketStore.updateTicketPrices(tickets)) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (Ticket ticket : tickets) {
+            eventLog.append(GateEvent.fareChanged(now, ticket));
+        }
+        return true;
+    }
+}
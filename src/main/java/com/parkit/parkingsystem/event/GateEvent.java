@@ -0,0 +1,132 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+
+/**
+ * One change made by a gate, as recorded in the {@link GateEventLog}. Immutable: the spot and ticket fields
+ * are copied when the event is made, so later changes of the spot or ticket do not alter the history.
+ */
+public final class GateEvent {
+
+    public enum Type {
+        SPOT_TAKEN,
+        SPOT_FREED,
+        /** A vehicle came in: its ticket was saved open. */
+        TICKET_OPENED,
+        /** A vehicle left: its ticket was closed with its out time and fare. */
+        TICKET_CLOSED,
+        /** The fare of a closed ticket was recomputed, e.g. by the repricing job. */
+        FARE_CHANGED
+    }
+
+    private final Type type;
+    private final long time;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final String vehicleRegNumber;
+    private final long inTime;
+    private final long outTime;
+    private final double price;
+
+    /**
+     * @param time when the change was made, in milliseconds since the epoch
+     * @param parkingType null when unknown
+     * @param vehicleRegNumber null for the spot events
+     * @param inTime 0 when there is no ticket
+     * @param outTime 0 while the ticket is open
+     */
+    public GateEvent(Type type, long time, int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+                     long inTime, long outTime, double price) {
+        this.type = type;
+        this.time = time;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.price = price;
+    }
+
+    public static GateEvent spotTaken(long time, ParkingSpot parkingSpot) {
+        return new GateEvent(Type.SPOT_TAKEN, time, parkingSpot.getId(), parkingSpot.getParkingType(), null, 0, 0, 0);
+    }
+
+    public static GateEvent spotFreed(long time, ParkingSpot parkingSpot) {
+        return new GateEvent(Type.SPOT_FREED, time, parkingSpot.getId(), parkingSpot.getParkingType(), null, 0, 0, 0);
+    }
+
+    public static GateEvent ticketOpened(long time, Ticket ticket) {
+        return ofTicket(Type.TICKET_OPENED, time, ticket);
+    }
+
+    public static GateEvent ticketClosed(long time, Ticket ticket) {
+        return ofTicket(Type.TICKET_CLOSED, time, ticket);
+    }
+
+    public static GateEvent fareChanged(long time, Ticket ticket) {
+        return ofTicket(Type.FARE_CHANGED, time, ticket);
+    }
+
+    private static GateEvent ofTicket(Type type, long time, Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        return new GateEvent(type, time, (parkingSpot == null) ? 0 : parkingSpot.getId(),
+                (parkingSpot == null) ? null : parkingSpot.getParkingType(), ticket.getVehicleRegNumber(),
+                (ticket.getInTime() == null) ? 0 : ticket.getInTime().getTime(),
+                (ticket.getOutTime() == null) ? 0 : ticket.getOutTime().getTime(), ticket.getPrice());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public long getInTime() {
+        return inTime;
+    }
+
+    public long getOutTime() {
+        return outTime;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    /**
+     * @return a new ticket with the fields of this event, without ID
+     */
+    public Ticket toTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, outTime != 0));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime((outTime == 0) ? null : new Date(outTime));
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    @Override
+    public String toString() {
+        return type + " at " + time + ", spot " + parkingNumber + " " + parkingType
+                + ((vehicleRegNumber == null) ? "" : ", vehicle " + vehicleRegNumber + ", in " + inTime + ", out " + outTime + ", price " + price);
+    }
+}
@@ -0,0 +1,264 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only history of the {@link GateEvent}s of the gates, one file per day, kept after the day is over.
+ * The live {@link GateProjections} are applied every event as it is appended, and rebuilt at startup by replaying
+ * the files of the directory in day order. Unlike the {@link com.parkit.parkingsystem.journal.GateJournal},
+ * which only holds what recovery needs since its last snapshot, this log holds every change, fares included.
+ * <p>
+ * Each append is written to the file, so it survives a crash of the process but not of the machine. A record
+ * is its payload length (short), its type (byte), its payload and the CRC32 of type and payload (int): replay
+ * of a file stops at the first record torn by a crash.
+ */
+public class GateEventLog implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("GateEventLog");
+
+    static final String FILE_PREFIX = "gate-events-";
+    static final String FILE_SUFFIX = ".log";
+
+    // length, type, CRC
+    private static final int RECORD_OVERHEAD = 2 + 1 + 4;
+    private static final int MAX_PLATE_BYTES = 254;
+    // time, spot number, spot type, plate length, plate, in time, out time, price
+    private static final int MAX_PAYLOAD = 8 + 4 + 1 + 1 + MAX_PLATE_BYTES + 8 + 8 + 8;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+
+    private static final GateEvent.Type[] EVENT_TYPES = GateEvent.Type.values();
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final Path directory;
+    private final ZoneId zone;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + MAX_PAYLOAD);
+    private final CRC32 crc = new CRC32();
+    private final GateProjections projections = new GateProjections();
+    private FileChannel channel;
+    private LocalDate day;
+
+    /**
+     * Open the event log of this directory, creating it when missing, and rebuild the projections from its files.
+     * @param zone the time zone of the days the files are split by
+     * @throws IOException when the directory cannot be read
+     */
+    public GateEventLog(Path directory, ZoneId zone) throws IOException {
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.zone = zone;
+        long start = System.nanoTime();
+        for (Path file : listFiles(directory)) {
+            long validLength = read(file, projections::apply);
+            if (validLength < Files.size(file)) {
+                // appends must not follow a record torn by a crash, replay would stop before them
+                try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    out.truncate(validLength);
+                }
+                logger.info("Truncated the torn record at the end of " + file);
+            }
+        }
+        logger.info("Replayed " + projections.getEventCount() + " gate events in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * Open the event log of the parkit.events.dir directory, split by days of the system time zone.
+     */
+    public static GateEventLog fromSystemProperties(Path directory) throws IOException {
+        return new GateEventLog(directory, ZoneId.systemDefault());
+    }
+
+    /**
+     * @return the file of the events of this day in the directory
+     */
+    public static Path fileOf(Path directory, LocalDate day) {
+        return directory.resolve(FILE_PREFIX + day + FILE_SUFFIX);
+    }
+
+    /**
+     * @return the event files of the directory, oldest day first
+     */
+    public static List<Path> listFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // ISO dates sort by name
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Record the event in the file of its day and apply it to the projections.
+     */
+    public synchronized void append(GateEvent event) {
+        if (!encode(event)) {
+            return;
+        }
+        try {
+            LocalDate eventDay = Instant.ofEpochMilli(event.getTime()).atZone(zone).toLocalDate();
+            if (!eventDay.equals(day)) {
+                openDay(eventDay);
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to record gate event " + event, e);
+            return;
+        }
+        projections.apply(event);
+    }
+
+    private void openDay(LocalDate eventDay) throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        channel = FileChannel.open(fileOf(directory, eventDay), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        day = eventDay;
+    }
+
+    /**
+     * Run a query on the live projections, under the lock of the log, so it sees no half applied event.
+     */
+    public synchronized <R> R query(Function<GateProjections, R> query) {
+        return query.apply(projections);
+    }
+
+    /**
+     * Put the record of the event in the record buffer, ready to be written.
+     * @return false when the event cannot be recorded
+     */
+    private boolean encode(GateEvent event) {
+        byte[] plate = (event.getVehicleRegNumber() == null) ? new byte[0] : event.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        if (plate.length > MAX_PLATE_BYTES) {
+            logger.error("Unable to record gate event of vehicle " + event.getVehicleRegNumber() + ": registration number too long");
+            return false;
+        }
+        record.clear();
+        record.putShort((short) 0);
+        record.put((byte) event.getType().ordinal());
+        record.putLong(event.getTime());
+        record.putInt(event.getParkingNumber());
+        record.put((byte) ((event.getParkingType() == null) ? -1 : event.getParkingType().ordinal()));
+        record.put((byte) ((event.getVehicleRegNumber() == null) ? -1 : plate.length));
+        record.put(plate);
+        record.putLong(event.getInTime());
+        record.putLong(event.getOutTime());
+        record.putDouble(event.getPrice());
+        int payloadLength = record.position() - 3;
+        record.putShort(0, (short) payloadLength);
+        crc.reset();
+        crc.update(record.array(), 2, payloadLength + 1);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        return true;
+    }
+
+    /**
+     * Read the events of a file in order, up to the first torn or unknown record.
+     * @return the number of events read
+     */
+    public static long replay(Path file, Consumer<GateEvent> handler) throws IOException {
+        long[] events = new long[1];
+        read(file, event -> {
+            handler.accept(event);
+            events[0]++;
+        });
+        return events[0];
+    }
+
+    /**
+     * @return the length of the valid records at the start of the file
+     */
+    private static long read(Path file, Consumer<GateEvent> handler) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        CRC32 crc = new CRC32();
+        long validLength = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.flip();
+            while (true) {
+                if (buffer.remaining() < RECORD_OVERHEAD + MAX_PAYLOAD) {
+                    buffer.compact();
+                    int read = in.read(buffer);
+                    buffer.flip();
+                    if (read < 0 && !buffer.hasRemaining()) {
+                        return validLength;
+                    }
+                }
+                int position = buffer.position();
+                int payloadLength = buffer.getShort(position);
+                if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD || buffer.remaining() < RECORD_OVERHEAD + payloadLength) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.array(), position + 2, payloadLength + 1);
+                if ((int) crc.getValue() != buffer.getInt(position + 3 + payloadLength)) {
+                    break;
+                }
+                buffer.position(position + 2);
+                GateEvent event = decode(buffer);
+                if (event == null) {
+                    break;
+                }
+                buffer.position(position + RECORD_OVERHEAD + payloadLength);
+                validLength += RECORD_OVERHEAD + payloadLength;
+                handler.accept(event);
+            }
+        }
+        logger.error("Stopped replaying " + file + " at a torn record, after " + validLength + " bytes");
+        return validLength;
+    }
+
+    private static GateEvent decode(ByteBuffer buffer) {
+        int type = buffer.get();
+        if (type < 0 || type >= EVENT_TYPES.length) {
+            return null;
+        }
+        long time = buffer.getLong();
+        int parkingNumber = buffer.getInt();
+        int parkingType = buffer.get();
+        int plateLength = buffer.get();
+        String vehicleRegNumber = null;
+        if (plateLength != -1) {
+            plateLength &= 0xFF;
+            vehicleRegNumber = new String(buffer.array(), buffer.position(), plateLength, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + plateLength);
+        }
+        return new GateEvent(EVENT_TYPES[type], time, parkingNumber,
+                (parkingType >= 0 && parkingType < PARKING_TYPES.length) ? PARKING_TYPES[parkingType] : null,
+                vehicleRegNumber, buffer.getLong(), buffer.getLong(), buffer.getDouble());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            day = null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.cache.LongIntHashMap;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of the gates built from their {@link GateEvent}s alone: spots occupied per type, open tickets, and
+ * closed tickets per vehicle. Applying the events of a log in order rebuilds the state they led to.
+ * Closed ticket counts are kept by {@link PlateCodec} code, plates that cannot be packed by String.
+ * Not thread-safe: the live projections are guarded by the lock of their {@link GateEventLog}.
+ */
+public class GateProjections {
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+
+    private final BitSet[] takenSpots = new BitSet[TYPES.length];
+    private final int[] occupied = new int[TYPES.length];
+    private final Map<String, GateEvent> openTickets = new HashMap<>();
+    private final LongIntHashMap closedTickets = new LongIntHashMap(1024);
+    private final Map<String, Integer> otherClosedTickets = new HashMap<>();
+    private long eventCount;
+
+    public GateProjections() {
+        for (ParkingType type : TYPES) {
+            takenSpots[type.ordinal()] = new BitSet();
+        }
+    }
+
+    public void apply(GateEvent event) {
+        eventCount++;
+        switch (event.getType()) {
+            case SPOT_TAKEN:
+                setTaken(event, true);
+                break;
+            case SPOT_FREED:
+                setTaken(event, false);
+                break;
+            case TICKET_OPENED:
+                openTickets.put(event.getVehicleRegNumber(), event);
+                break;
+            case TICKET_CLOSED:
+                openTickets.remove(event.getVehicleRegNumber());
+                countClosedTicket(event.getVehicleRegNumber());
+                break;
+            case FARE_CHANGED:
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Spot events may repeat, e.g. a spot freed again by a recovery, so the spots are tracked and not just counted.
+     */
+    private void setTaken(GateEvent event, boolean taken) {
+        if (event.getParkingType() == null || event.getParkingNumber() < 0) {
+            return;
+        }
+        int type = event.getParkingType().ordinal();
+        if (takenSpots[type].get(event.getParkingNumber()) != taken) {
+            takenSpots[type].set(event.getParkingNumber(), taken);
+            occupied[type] += taken ? 1 : -1;
+        }
+    }
+
+    private void countClosedTicket(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        if (code == PlateCodec.NONE) {
+            otherClosedTickets.merge(vehicleRegNumber, 1, Integer::sum);
+            return;
+        }
+        int slot = closedTickets.indexOf(code);
+        if (slot < 0) {
+            closedTickets.put(code, 1, 0);
+        } else {
+            closedTickets.setValueAt(slot, closedTickets.valueAt(slot) + 1);
+        }
+    }
+
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public int getOccupied(ParkingType parkingType) {
+        return occupied[parkingType.ordinal()];
+    }
+
+    /**
+     * @return the number of occupied spots of each type, every type included
+     */
+    public Map<ParkingType, Integer> getOccupancy() {
+        Map<ParkingType, Integer> occupancy = new EnumMap<>(ParkingType.class);
+        for (ParkingType type : TYPES) {
+            occupancy.put(type, occupied[type.ordinal()]);
+        }
+        return occupancy;
+    }
+
+    public int getOpenTicketCount() {
+        return openTickets.size();
+    }
+
+    /**
+     * @return a copy of the open ticket of this vehicle, without ID, or null
+     */
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        GateEvent opened = openTickets.get(vehicleRegNumber);
+        return (opened == null) ? null : opened.toTicket();
+    }
+
+    /**
+     * @return copies of the open tickets, without ID
+     */
+    public List<Ticket> getOpenTickets() {
+        List<Ticket> tickets = new ArrayList<>(openTickets.size());
+        for (GateEvent opened : openTickets.values()) {
+            tickets.add(opened.toTicket());
+        }
+        return tickets;
+    }
+
+    public int getClosedTicketCount(String vehicleRegNumber) {
+        long code = PlateCodec.encode(vehicleRegNumber);
+        if (code == PlateCodec.NONE) {
+            return otherClosedTickets.getOrDefault(vehicleRegNumber, 0);
+        }
+        return closedTickets.get(code, 0);
+    }
+
+    /**
+     * @return the number of vehicles with closed tickets
+     */
+    public int getVehicleCount() {
+        return closedTickets.size() + otherClosedTickets.size();
+    }
+}
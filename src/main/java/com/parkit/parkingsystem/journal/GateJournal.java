@@ -0,0 +1,393 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Append-only journal of the gate mutations (spot taken or freed, ticket opened or closed), so the
+ * {@link GateState} can be rebuilt after a crash.
+ * <p>
+ * Records are written to a memory-mapped file: an append is a few puts into the page cache under a lock,
+ * and survives a crash of the process. A background thread forces the mapping to disk every
+ * syncIntervalMillis when records were appended, so a crash of the machine loses at most that interval;
+ * with 0, every append is forced. When the journal is full, the state is written to a snapshot file and the
+ * journal starts over, so recovery reads the snapshot then replays the journal written after it.
+ * <p>
+ * A record is its payload length (short), its type (byte), its payload and the CRC32 of type and payload (int):
+ * replay stops at the first record torn by a crash. The journal header holds the generation of the snapshot
+ * it follows, so a journal left behind by a crash during a snapshot is ignored, its records being in the snapshot.
+ */
+public class GateJournal implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("GateJournal");
+
+    public static final int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 10;
+
+    static final String JOURNAL_FILE = "gate.journal";
+    static final String SNAPSHOT_FILE = "gate.snapshot";
+
+    private static final int JOURNAL_MAGIC = 0x504B4A31;
+    private static final int SNAPSHOT_MAGIC = 0x504B5331;
+    // magic, unused, generation
+    private static final int HEADER_SIZE = 16;
+    private static final int GENERATION_OFFSET = 8;
+    // length, type, CRC
+    private static final int RECORD_OVERHEAD = 2 + 1 + 4;
+    private static final int MAX_PLATE_BYTES = 255;
+    // spot number, spot type, in time, plate length, plate
+    private static final int MAX_PAYLOAD = 4 + 1 + 8 + 1 + MAX_PLATE_BYTES;
+    private static final int MIN_CAPACITY = 4096;
+
+    private static final byte SPOT_TAKEN = 1;
+    private static final byte SPOT_FREED = 2;
+    private static final byte TICKET_OPENED = 3;
+    private static final byte TICKET_CLOSED = 4;
+
+    private static final ParkingType[] TYPES = ParkingType.values();
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final MappedByteBuffer journal;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + MAX_PAYLOAD);
+    private final CRC32 crc = new CRC32();
+    private final GateState state = new GateState();
+    private final long syncIntervalMillis;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final Thread syncer;
+    private volatile boolean running = true;
+
+    private long generation;
+    private int replayedCount;
+
+    /**
+     * Open the journal of this directory, creating it when missing, and rebuild the state from its snapshot
+     * and records.
+     * @param capacity size of the journal file in bytes, a snapshot is taken each time it is full
+     * @param syncIntervalMillis maximum delay before appended records are forced to disk, 0 to force every append
+     * @throws IOException when the files cannot be opened, or the snapshot is corrupt
+     */
+    public GateJournal(Path directory, int capacity, long syncIntervalMillis) throws IOException {
+        if (capacity < MIN_CAPACITY || syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("capacity must be at least " + MIN_CAPACITY + " bytes and syncIntervalMillis positive");
+        }
+        Files.createDirectories(directory);
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+        this.syncIntervalMillis = syncIntervalMillis;
+        if (Files.exists(snapshotPath)) {
+            readSnapshot();
+        }
+        this.channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // a journal written with a larger capacity is read whole
+        this.journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), capacity));
+        if (journal.getInt(0) == JOURNAL_MAGIC && journal.getLong(GENERATION_OFFSET) == generation) {
+            replay();
+        } else {
+            if (journal.getInt(0) != 0) {
+                logger.info("Ignoring journal of generation " + journal.getLong(GENERATION_OFFSET) + ", already in the snapshot");
+            }
+            zero(0, journal.capacity());
+            journal.force();
+            journal.putInt(0, JOURNAL_MAGIC);
+            journal.putLong(GENERATION_OFFSET, generation);
+            journal.position(HEADER_SIZE);
+            journal.force();
+        }
+        if (syncIntervalMillis > 0) {
+            this.syncer = new Thread(this::syncLoop, "gate-journal-sync");
+            this.syncer.setDaemon(true);
+            this.syncer.start();
+        } else {
+            this.syncer = null;
+        }
+    }
+
+    /**
+     * Open the journal of the parkit.journal.dir directory with the parkit.journal.* system properties.
+     */
+    public static GateJournal fromSystemProperties(Path directory) throws IOException {
+        return new GateJournal(directory,
+                Integer.getInteger("parkit.journal.capacity", DEFAULT_CAPACITY),
+                Long.getLong("parkit.journal.syncIntervalMillis", DEFAULT_SYNC_INTERVAL_MS));
+    }
+
+    public void spotTaken(ParkingSpot parkingSpot) {
+        append(SPOT_TAKEN, parkingSpot.getId(), parkingSpot.getParkingType(), null, 0);
+    }
+
+    public void spotFreed(ParkingSpot parkingSpot) {
+        append(SPOT_FREED, parkingSpot.getId(), parkingSpot.getParkingType(), null, 0);
+    }
+
+    public void ticketOpened(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        append(TICKET_OPENED, parkingSpot.getId(), parkingSpot.getParkingType(), ticket.getVehicleRegNumber(), ticket.getInTime().getTime());
+    }
+
+    public void ticketClosed(Ticket ticket) {
+        append(TICKET_CLOSED, 0, null, ticket.getVehicleRegNumber(), 0);
+    }
+
+    /**
+     * @return a copy of the state described by the snapshot and the journal
+     */
+    public synchronized GateState getState() {
+        return new GateState(state);
+    }
+
+    /**
+     * @return the number of records replayed when the journal was opened
+     */
+    public int getReplayedCount() {
+        return replayedCount;
+    }
+
+    private synchronized void append(byte type, int parkingNumber, ParkingType parkingType, String vehicleRegNumber, long inTime) {
+        record.clear();
+        record.putShort((short) 0);
+        record.put(type);
+        if (type != TICKET_CLOSED) {
+            record.putInt(parkingNumber);
+            record.put((byte) parkingType.ordinal());
+        }
+        if (type == TICKET_OPENED) {
+            record.putLong(inTime);
+        }
+        if (vehicleRegNumber != null) {
+            byte[] plate = vehicleRegNumber.getBytes(StandardCharsets.UTF_8);
+            if (plate.length > MAX_PLATE_BYTES) {
+                logger.error("Unable to journal vehicle " + vehicleRegNumber + ": registration number too long");
+                return;
+            }
+            record.put((byte) plate.length);
+            record.put(plate);
+        }
+        int payloadLength = record.position() - 3;
+        record.putShort(0, (short) payloadLength);
+        crc.reset();
+        crc.update(record.array(), 2, payloadLength + 1);
+        record.putInt((int) crc.getValue());
+        record.flip();
+        if (journal.remaining() < record.limit()) {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                logger.error("Unable to snapshot the full journal, record lost", e);
+                return;
+            }
+        }
+        journal.put(record);
+        record.position(2);
+        apply(record);
+        if (syncer == null) {
+            journal.force();
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Apply the record at the position of the buffer, its type followed by its payload.
+     * @return false when its type is unknown
+     */
+    private boolean apply(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case SPOT_TAKEN:
+                state.spotTaken(buffer.getInt(), TYPES[buffer.get()]);
+                return true;
+            case SPOT_FREED:
+                int freedNumber = buffer.getInt();
+                buffer.get();
+                state.spotFreed(freedNumber);
+                return true;
+            case TICKET_OPENED:
+                int parkingNumber = buffer.getInt();
+                ParkingType parkingType = TYPES[buffer.get()];
+                long inTime = buffer.getLong();
+                state.ticketOpened(parkingNumber, parkingType, readPlate(buffer), inTime);
+                return true;
+            case TICKET_CLOSED:
+                state.ticketClosed(readPlate(buffer));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String readPlate(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        String plate = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return plate;
+    }
+
+    /**
+     * Apply the valid records of the journal and position it after the last one.
+     */
+    private void replay() {
+        int position = HEADER_SIZE;
+        int limit = journal.capacity();
+        while (position + RECORD_OVERHEAD <= limit) {
+            int payloadLength = journal.getShort(position);
+            if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD || position + RECORD_OVERHEAD + payloadLength > limit) {
+                break;
+            }
+            record.clear();
+            for (int i = 0; i <= payloadLength; i++) {
+                record.put(journal.get(position + 2 + i));
+            }
+            crc.reset();
+            crc.update(record.array(), 0, payloadLength + 1);
+            if ((int) crc.getValue() != journal.getInt(position + 3 + payloadLength)) {
+                break;
+            }
+            record.flip();
+            if (!apply(record)) {
+                break;
+            }
+            position += RECORD_OVERHEAD + payloadLength;
+            replayedCount++;
+        }
+        // a record torn by a crash must not be read again after the next appends
+        zero(position, Math.min(position + RECORD_OVERHEAD + MAX_PAYLOAD, limit));
+        journal.position(position);
+        logger.info("Replayed " + replayedCount + " journal records of generation " + generation);
+    }
+
+    /**
+     * Write the state to the snapshot file and start the journal over.
+     */
+    public synchronized void snapshot() throws IOException {
+        writeSnapshot(generation + 1);
+        generation++;
+        // the old records are erased on disk before the header names the new generation
+        zero(HEADER_SIZE, journal.position());
+        journal.force();
+        journal.putLong(GENERATION_OFFSET, generation);
+        journal.position(HEADER_SIZE);
+        journal.force();
+        dirty.set(false);
+    }
+
+    private void writeSnapshot(long nextGeneration) throws IOException {
+        Path temporaryPath = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(out)), new CRC32());
+            DataOutputStream data = new DataOutputStream(checked);
+            data.writeInt(SNAPSHOT_MAGIC);
+            data.writeLong(nextGeneration);
+            Map<Integer, ParkingType> takenSpots = state.getTakenSpots();
+            data.writeInt(takenSpots.size());
+            for (Map.Entry<Integer, ParkingType> spot : takenSpots.entrySet()) {
+                data.writeInt(spot.getKey());
+                data.writeByte(spot.getValue().ordinal());
+            }
+            data.writeInt(state.getOpenTickets().size());
+            for (Ticket ticket : state.getOpenTickets()) {
+                data.writeInt(ticket.getParkingSpot().getId());
+                data.writeByte(ticket.getParkingSpot().getParkingType().ordinal());
+                data.writeLong(ticket.getInTime().getTime());
+                data.writeUTF(ticket.getVehicleRegNumber());
+            }
+            data.writeLong(checked.getChecksum().getValue());
+            data.flush();
+            out.force(true);
+        }
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void readSnapshot() throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)), new CRC32())) {
+            DataInputStream data = new DataInputStream(checked);
+            if (data.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a gate snapshot: " + snapshotPath);
+            }
+            generation = data.readLong();
+            int takenSpots = data.readInt();
+            for (int i = 0; i < takenSpots; i++) {
+                state.spotTaken(data.readInt(), TYPES[data.readByte()]);
+            }
+            int openTickets = data.readInt();
+            for (int i = 0; i < openTickets; i++) {
+                int parkingNumber = data.readInt();
+                ParkingType parkingType = TYPES[data.readByte()];
+                long inTime = data.readLong();
+                state.ticketOpened(parkingNumber, parkingType, data.readUTF(), inTime);
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (data.readLong() != checksum) {
+                throw new IOException("Corrupt gate snapshot: " + snapshotPath);
+            }
+        }
+    }
+
+    private void zero(int from, int to) {
+        journal.position(from);
+        while (journal.position() < to) {
+            journal.put(ZEROS, 0, Math.min(ZEROS.length, to - journal.position()));
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            try {
+                Thread.sleep(syncIntervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (dirty.getAndSet(false)) {
+                journal.force();
+            }
+        }
+    }
+
+    /**
+     * Stop the sync thread and snapshot the state, so the next start has no journal to replay.
+     * The journal must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (syncer != null) {
+            syncer.interrupt();
+            try {
+                syncer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            snapshot();
+        } finally {
+            channel.close();
+        }
+    }
+}
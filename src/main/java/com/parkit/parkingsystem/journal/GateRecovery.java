@@ -0,0 +1,126 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Brings the stores back in line with the {@link GateState} of the journal after a restart: the in-memory stores
+ * get their parked vehicles back, and the entries and exits a crash stopped halfway are completed or undone.
+ * Only the spots and vehicles known to the journal are touched, so other gates sharing the database are left alone.
+ */
+public class GateRecovery {
+
+    private static final Logger logger = LogManager.getLogger("GateRecovery");
+
+    // the database stores whole seconds
+    private static final long TIME_PRECISION_MS = 1000;
+
+    private GateRecovery() {
+    }
+
+    /**
+     * Run with the stores themselves, not their journaled decorators: the fixes are journaled here.
+     * <ul>
+     * <li>an open ticket missing from the store is saved again, unless the store has it closed: then the exit
+     * was stored but not journaled, and the ticket is closed in the journal</li>
+     * <li>a taken spot without open ticket in the journal nor the store is freed: its entry stopped before
+     * the ticket was saved, or its exit before the spot was freed</li>
+     * <li>a taken spot with an open ticket is taken again in the store when it is free there</li>
+     * </ul>
+     * @return the number of fixes, -1 when the open tickets or the spots of the store could not be read
+     */
+    public static int reconcile(GateJournal journal, ParkingSpotStore parkingSpotStore, TicketStore ticketStore) {
+        List<Ticket> storeOpenTickets = ticketStore.getOpenTickets();
+        if (storeOpenTickets == null) {
+            logger.error("Unable to read the open tickets, gate state not reconciled");
+            return -1;
+        }
+        List<ParkingSpot> storeSpots = parkingSpotStore.getParkingSpots();
+        if (storeSpots == null) {
+            logger.error("Unable to read the parking spots, gate state not reconciled");
+            return -1;
+        }
+        Set<String> storeParked = new HashSet<>();
+        Map<Integer, Ticket> storeTicketsBySpot = new HashMap<>();
+        for (Ticket ticket : storeOpenTickets) {
+            storeParked.add(ticket.getVehicleRegNumber());
+            storeTicketsBySpot.put(ticket.getParkingSpot().getId(), ticket);
+        }
+        int fixes = 0;
+        for (Ticket ticket : journal.getState().getOpenTickets()) {
+            if (storeParked.contains(ticket.getVehicleRegNumber())) {
+                continue;
+            }
+            Ticket lastTicket = ticketStore.getTicket(ticket.getVehicleRegNumber());
+            if (lastTicket != null && lastTicket.getOutTime() != null
+                    && lastTicket.getInTime().getTime() > ticket.getInTime().getTime() - TIME_PRECISION_MS) {
+                logger.info("Vehicle " + ticket.getVehicleRegNumber() + " already left, closing its journaled ticket");
+                journal.ticketClosed(ticket);
+                fixes++;
+                continue;
+            }
+            Ticket restored = new Ticket();
+            restored.setParkingSpot(new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), false));
+            restored.setVehicleRegNumber(ticket.getVehicleRegNumber());
+            restored.setInTime(new Date(ticket.getInTime().getTime()));
+            if (ticketStore.saveTicket(restored)) {
+                logger.info("Restored the open ticket of vehicle " + ticket.getVehicleRegNumber());
+                storeTicketsBySpot.put(restored.getParkingSpot().getId(), restored);
+                fixes++;
+            } else {
+                logger.error("Unable to restore the open ticket of vehicle " + ticket.getVehicleRegNumber());
+            }
+        }
+
+        Set<Integer> freeSpots = new HashSet<>();
+        for (ParkingSpot parkingSpot : storeSpots) {
+            if (parkingSpot.isAvailable()) {
+                freeSpots.add(parkingSpot.getId());
+            }
+        }
+        GateState state = journal.getState();
+        Set<Integer> journalTicketSpots = new HashSet<>();
+        for (Ticket ticket : state.getOpenTickets()) {
+            journalTicketSpots.add(ticket.getParkingSpot().getId());
+        }
+        for (Map.Entry<Integer, ParkingType> spot : state.getTakenSpots().entrySet()) {
+            int parkingNumber = spot.getKey();
+            ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, spot.getValue(), false);
+            Ticket storeTicket = storeTicketsBySpot.get(parkingNumber);
+            if (!journalTicketSpots.contains(parkingNumber) && storeTicket != null) {
+                // the ticket was stored but not journaled
+                journal.ticketOpened(storeTicket);
+                fixes++;
+            } else if (!journalTicketSpots.contains(parkingNumber)) {
+                parkingSpot.setAvailable(true);
+                if (!freeSpots.contains(parkingNumber) && !parkingSpotStore.updateParking(parkingSpot)) {
+                    logger.error("Unable to free spot " + parkingNumber + " taken without ticket");
+                    continue;
+                }
+                logger.info("Freed spot " + parkingNumber + " taken without ticket");
+                journal.spotFreed(parkingSpot);
+                fixes++;
+            } else if (freeSpots.contains(parkingNumber)) {
+                if (parkingSpotStore.updateParking(parkingSpot)) {
+                    logger.info("Took back spot " + parkingNumber + " of a parked vehicle");
+                    fixes++;
+                } else {
+                    logger.error("Unable to take back spot " + parkingNumber + " of a parked vehicle");
+                }
+            }
+        }
+        return fixes;
+    }
+}
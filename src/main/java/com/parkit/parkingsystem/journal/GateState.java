@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What the journal knows of the lot: the spots taken through this gate process and the tickets still open,
+ * rebuilt from the last snapshot and the journal records written after it.
+ * Not thread-safe: guarded by the lock of its {@link GateJournal}.
+ */
+public class GateState {
+
+    private final Map<Integer, ParkingType> takenSpots = new HashMap<>();
+    private final Map<String, Ticket> openTickets = new HashMap<>();
+
+    GateState() {
+    }
+
+    GateState(GateState state) {
+        takenSpots.putAll(state.takenSpots);
+        openTickets.putAll(state.openTickets);
+    }
+
+    void spotTaken(int parkingNumber, ParkingType parkingType) {
+        takenSpots.put(parkingNumber, parkingType);
+    }
+
+    void spotFreed(int parkingNumber) {
+        takenSpots.remove(parkingNumber);
+    }
+
+    void ticketOpened(int parkingNumber, ParkingType parkingType, String vehicleRegNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        openTickets.put(vehicleRegNumber, ticket);
+    }
+
+    void ticketClosed(String vehicleRegNumber) {
+        openTickets.remove(vehicleRegNumber);
+    }
+
+    /**
+     * @return the type of each taken spot, by spot number
+     */
+    public Map<Integer, ParkingType> getTakenSpots() {
+        return Collections.unmodifiableMap(takenSpots);
+    }
+
+    /**
+     * @return the open tickets, without ID nor price
+     */
+    public Collection<Ticket> getOpenTickets() {
+        return Collections.unmodifiableCollection(openTickets.values());
+    }
+
+    /**
+     * @return the taken spots without an open ticket: an entry stopped before its ticket was saved,
+     * or an exit stopped before its spot was freed
+     */
+    public List<ParkingSpot> getOrphanSpots() {
+        Set<Integer> ticketSpots = new HashSet<>();
+        for (Ticket ticket : openTickets.values()) {
+            ticketSpots.add(ticket.getParkingSpot().getId());
+        }
+        List<ParkingSpot> orphanSpots = new ArrayList<>();
+        for (Map.Entry<Integer, ParkingType> spot : takenSpots.entrySet()) {
+            if (!ticketSpots.contains(spot.getKey())) {
+                orphanSpots.add(new ParkingSpot(spot.getKey(), spot.getValue(), false));
+            }
+        }
+        return orphanSpots;
+    }
+}
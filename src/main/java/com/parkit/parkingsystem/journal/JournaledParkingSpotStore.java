@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ParkingSpotStore} recording in a {@link GateJournal} the spots it takes and frees, once stored.
+ */
+public class JournaledParkingSpotStore implements ParkingSpotStore {
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final GateJournal journal;
+
+    public JournaledParkingSpotStore(ParkingSpotStore parkingSpotStore, GateJournal journal) {
+        this.parkingSpotStore = parkingSpotStore;
+        this.journal = journal;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return parkingSpotStore.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public List<Integer> claimAvailableSlots(ParkingType parkingType, int count) {
+        List<Integer> parkingNumbers = parkingSpotStore.claimAvailableSlots(parkingType, count);
+        if (parkingNumbers != null) {
+            for (int parkingNumber : parkingNumbers) {
+                journal.spotTaken(new ParkingSpot(parkingNumber, parkingType, false));
+            }
+        }
+        return parkingNumbers;
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        if (!parkingSpotStore.updateParking(parkingSpot)) {
+            return false;
+        }
+        if (parkingSpot.isAvailable()) {
+            journal.spotFreed(parkingSpot);
+        } else {
+            journal.spotTaken(parkingSpot);
+        }
+        return true;
+    }
+
+    @Override
+    public Map<ParkingType, Integer> getAvailableSlotCounts() {
+        return parkingSpotStore.getAvailableSlotCounts();
+    }
+
+    @Override
+    public List<ParkingSpot> getParkingSpots() {
+        return parkingSpotStore.getParkingSpots();
+    }
+}
@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link TicketStore} recording in a {@link GateJournal} the tickets it opens and closes, once stored.
+ * Price changes of closed tickets are not gate state and are not journaled.
+ */
+public class JournaledTicketStore implements TicketStore {
+
+    private final TicketStore ticketStore;
+    private final GateJournal journal;
+
+    public JournaledTicketStore(TicketStore ticketStore, GateJournal journal) {
+        this.ticketStore = ticketStore;
+        this.journal = journal;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (!ticketStore.saveTicket(ticket)) {
+            return false;
+        }
+        journal(ticket);
+        return true;
+    }
+
+    @Override
+    public boolean saveTickets(List<Ticket> tickets) {
+        if (!ticketStore.saveTickets(tickets)) {
+            return false;
+        }
+        tickets.forEach(this::journal);
+        return true;
+    }
+
+    /**
+     * Tickets saved already closed, e.g. imported, do not change the gate state.
+     */
+    private void journal(Ticket ticket) {
+        if (ticket.getOutTime() == null) {
+            journal.ticketOpened(ticket);
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return ticketStore.getTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        return ticketStore.getOpenTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets() {
+        return ticketStore.getOpenTickets();
+    }
+
+    @Override
+    public boolean isParked(String vehicleRegNumber) {
+        return ticketStore.isParked(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        if (!ticketStore.updateTicket(ticket)) {
+            return false;
+        }
+        journal.ticketClosed(ticket);
+        return true;
+    }
+
+    @Override
+    public Integer getNbTicket(String vehicleRegNumber) {
+        return ticketStore.getNbTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+        return ticketStore.streamClosedTickets(from, to, handler);
+    }
+
+    @Override
+    public boolean updateTicketPrices(List<Ticket> tickets) {
+        return ticketStore.updateTicketPrices(tickets);
+    }
+}
@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.model.LatencyStats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency distribution of one operation, recorded without lock nor allocation: a sample increments one bucket
+ * of an atomic array. Buckets are log-linear, 32 per power of two, so a reported latency is at most 3% above
+ * the recorded one, from 1 ns to about 18 minutes; longer samples are counted as 18 minutes.
+ * Samples go to the current interval; {@link #resetInterval()} adds it to the total and starts a new one.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final long MAX_NANOS = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray intervalCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong intervalSum = new AtomicLong();
+    private final AtomicLong intervalMax = new AtomicLong();
+    private volatile long intervalStartMillis = System.currentTimeMillis();
+
+    // guarded by this
+    private final long[] totalCounts = new long[BUCKETS];
+    private long totalSum;
+    private long totalMax;
+    private final long startMillis = intervalStartMillis;
+
+    /**
+     * Record the latency of one call, e.g. System.nanoTime() after the call minus before.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_NANOS);
+        intervalCounts.incrementAndGet(bucket(value));
+        intervalSum.addAndGet(value);
+        long max;
+        while (value > (max = intervalMax.get()) && !intervalMax.compareAndSet(max, value)) {
+            // another sample raised the maximum meanwhile
+        }
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest latency counted in this bucket
+     */
+    static long highestNanos(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    @Override
+    public LatencyStats getInterval() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = intervalCounts.get(i);
+        }
+        return stats(counts, intervalSum.get(), intervalMax.get(), System.currentTimeMillis() - intervalStartMillis);
+    }
+
+    @Override
+    public synchronized LatencyStats getTotal() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = totalCounts[i] + intervalCounts.get(i);
+        }
+        return stats(counts, totalSum + intervalSum.get(), Math.max(totalMax, intervalMax.get()), System.currentTimeMillis() - startMillis);
+    }
+
+    /**
+     * Each bucket is emptied atomically, so a sample recorded meanwhile is in either interval, never lost.
+     */
+    @Override
+    public synchronized LatencyStats resetInterval() {
+        long now = System.currentTimeMillis();
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = intervalCounts.getAndSet(i, 0);
+            totalCounts[i] += counts[i];
+        }
+        long sum = intervalSum.getAndSet(0);
+        long max = intervalMax.getAndSet(0);
+        totalSum += sum;
+        totalMax = Math.max(totalMax, max);
+        LatencyStats stats = stats(counts, sum, max, now - intervalStartMillis);
+        intervalStartMillis = now;
+        return stats;
+    }
+
+    private static LatencyStats stats(long[] counts, long sum, long max, long periodMillis) {
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return new LatencyStats(0, 0, 0, 0, 0, 0, periodMillis);
+        }
+        return new LatencyStats(count, micros(sum) / count, micros(percentile(counts, count, 0.5, max)),
+                micros(percentile(counts, count, 0.99, max)), micros(percentile(counts, count, 0.999, max)),
+                micros(max), periodMillis);
+    }
+
+    private static long percentile(long[] counts, long count, double quantile, long max) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestNanos(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,26 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.model.LatencyStats;
+
+/**
+ * JMX view of a {@link LatencyHistogram}, registered by {@link Metrics} as
+ * com.parkit.parkingsystem:type=Latency,name=&lt;operation&gt;.
+ */
+public interface LatencyHistogramMXBean {
+
+    /**
+     * @return the samples of the current interval
+     */
+    LatencyStats getInterval();
+
+    /**
+     * @return the samples since startup, current interval included
+     */
+    LatencyStats getTotal();
+
+    /**
+     * Close the current interval and start a new one, so a scraper reads each sample once.
+     * @return the samples of the closed interval
+     */
+    LatencyStats resetInterval();
+}
@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The latency histograms of the process by operation name, each registered in the platform MBean server
+ * as com.parkit.parkingsystem:type=Latency,name=&lt;operation&gt; when first asked for, e.g. for jconsole.
+ */
+public final class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    public static final String DOMAIN = "com.parkit.parkingsystem";
+
+    private static final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the histogram of this operation, created and registered on the first call
+     */
+    public static LatencyHistogram latency(String operation) {
+        return latencies.computeIfAbsent(operation, Metrics::register);
+    }
+
+    public static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Latency,name=" + ObjectName.quote(operation));
+    }
+
+    private static LatencyHistogram register(String operation) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(histogram, objectName(operation));
+        } catch (JMException e) {
+            logger.error("Unable to register latency MBean " + operation, e);
+        }
+        return histogram;
+    }
+}
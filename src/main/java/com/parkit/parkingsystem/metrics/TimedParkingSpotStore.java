@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ParkingSpotStore} recording the latency of each method of the store it wraps,
+ * named after the store class, e.g. ParkingSpotDAO.claimAvailableSlots.
+ */
+public class TimedParkingSpotStore implements ParkingSpotStore {
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final LatencyHistogram getNextAvailableSlot;
+    private final LatencyHistogram claimAvailableSlots;
+    private final LatencyHistogram updateParking;
+    private final LatencyHistogram getAvailableSlotCounts;
+    private final LatencyHistogram getParkingSpots;
+
+    public TimedParkingSpotStore(ParkingSpotStore parkingSpotStore) {
+        this.parkingSpotStore = parkingSpotStore;
+        String store = parkingSpotStore.getClass().getSimpleName();
+        this.getNextAvailableSlot = Metrics.latency(store + ".getNextAvailableSlot");
+        this.claimAvailableSlots = Metrics.latency(store + ".claimAvailableSlots");
+        this.updateParking = Metrics.latency(store + ".updateParking");
+        this.getAvailableSlotCounts = Metrics.latency(store + ".getAvailableSlotCounts");
+        this.getParkingSpots = Metrics.latency(store + ".getParkingSpots");
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return parkingSpotStore.getNextAvailableSlot(parkingType);
+        } finally {
+            getNextAvailableSlot.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Integer> claimAvailableSlots(ParkingType parkingType, int count) {
+        long start = System.nanoTime();
+        try {
+            return parkingSpotStore.claimAvailableSlots(parkingType, count);
+        } finally {
+            claimAvailableSlots.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        long start = System.nanoTime();
+        try {
+            return parkingSpotStore.updateParking(parkingSpot);
+        } finally {
+            updateParking.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<ParkingType, Integer> getAvailableSlotCounts() {
+        long start = System.nanoTime();
+        try {
+            return parkingSpotStore.getAvailableSlotCounts();
+        } finally {
+            getAvailableSlotCounts.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<ParkingSpot> getParkingSpots() {
+        long start = System.nanoTime();
+        try {
+            return parkingSpotStore.getParkingSpots();
+        } finally {
+            getParkingSpots.record(System.nanoTime() - start);
+        }
+    }
+}
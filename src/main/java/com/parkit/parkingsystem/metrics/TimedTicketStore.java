@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * A {@link TicketStore} recording the latency of each method of the store it wraps,
+ * named after the store class, e.g. TicketDAO.saveTicket.
+ */
+public class TimedTicketStore implements TicketStore {
+
+    private final TicketStore ticketStore;
+    private final LatencyHistogram saveTicket;
+    private final LatencyHistogram saveTickets;
+    private final LatencyHistogram getTicket;
+    private final LatencyHistogram getOpenTicket;
+    private final LatencyHistogram getOpenTickets;
+    private final LatencyHistogram isParked;
+    private final LatencyHistogram updateTicket;
+    private final LatencyHistogram getNbTicket;
+    private final LatencyHistogram streamClosedTickets;
+    private final LatencyHistogram updateTicketPrices;
+
+    public TimedTicketStore(TicketStore ticketStore) {
+        this.ticketStore = ticketStore;
+        String store = ticketStore.getClass().getSimpleName();
+        this.saveTicket = Metrics.latency(store + ".saveTicket");
+        this.saveTickets = Metrics.latency(store + ".saveTickets");
+        this.getTicket = Metrics.latency(store + ".getTicket");
+        this.getOpenTicket = Metrics.latency(store + ".getOpenTicket");
+        this.getOpenTickets = Metrics.latency(store + ".getOpenTickets");
+        this.isParked = Metrics.latency(store + ".isParked");
+        this.updateTicket = Metrics.latency(store + ".updateTicket");
+        this.getNbTicket = Metrics.latency(store + ".getNbTicket");
+        this.streamClosedTickets = Metrics.latency(store + ".streamClosedTickets");
+        this.updateTicketPrices = Metrics.latency(store + ".updateTicketPrices");
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.saveTicket(ticket);
+        } finally {
+            saveTicket.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean saveTickets(List<Ticket> tickets) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.saveTickets(tickets);
+        } finally {
+            saveTickets.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.getTicket(vehicleRegNumber);
+        } finally {
+            getTicket.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.getOpenTicket(vehicleRegNumber);
+        } finally {
+            getOpenTicket.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets() {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.getOpenTickets();
+        } finally {
+            getOpenTickets.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean isParked(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.isParked(vehicleRegNumber);
+        } finally {
+            isParked.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.updateTicket(ticket);
+        } finally {
+            updateTicket.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Integer getNbTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.getNbTicket(vehicleRegNumber);
+        } finally {
+            getNbTicket.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.streamClosedTickets(from, to, handler);
+        } finally {
+            streamClosedTickets.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean updateTicketPrices(List<Ticket> tickets) {
+        long start = System.nanoTime();
+        try {
+            return ticketStore.updateTicketPrices(tickets);
+        } finally {
+            updateTicketPrices.record(System.nanoTime() - start);
+        }
+    }
+}
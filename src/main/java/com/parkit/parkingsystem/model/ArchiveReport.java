@@ -0,0 +1,44 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a move of closed tickets to the archive.
+ */
+public class ArchiveReport {
+    private final long moved;
+    private final int batches;
+    private final long elapsedMillis;
+    private final boolean complete;
+
+    public ArchiveReport(long moved, int batches, long elapsedMillis, boolean complete) {
+        this.moved = moved;
+        this.batches = batches;
+        this.elapsedMillis = elapsedMillis;
+        this.complete = complete;
+    }
+
+    public long getMoved() {
+        return moved;
+    }
+
+    /**
+     * @return transactions that moved tickets
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return false when a batch failed and the tickets left to move were not
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getRowsPerSecond() {
+        return moved * 1000 / Math.max(elapsedMillis, 1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/**
+ * Activity of one type of spot during one hour, or the change to add to it.
+ */
+public class HourlyRollup {
+    private final Date hour;
+    private final ParkingType parkingType;
+    private final int closedTickets;
+    private final double revenue;
+    private final int spotsTaken;
+    private final int spotsFreed;
+    private final long occupiedSeconds;
+
+    public HourlyRollup(Date hour, ParkingType parkingType, int closedTickets, double revenue,
+                        int spotsTaken, int spotsFreed, long occupiedSeconds) {
+        this.hour = hour;
+        this.parkingType = parkingType;
+        this.closedTickets = closedTickets;
+        this.revenue = revenue;
+        this.spotsTaken = spotsTaken;
+        this.spotsFreed = spotsFreed;
+        this.occupiedSeconds = occupiedSeconds;
+    }
+
+    /**
+     * @return the start of the hour
+     */
+    public Date getHour() {
+        return hour;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * @return tickets closed during the hour
+     */
+    public int getClosedTickets() {
+        return closedTickets;
+    }
+
+    /**
+     * @return price of the tickets closed during the hour
+     */
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public int getSpotsTaken() {
+        return spotsTaken;
+    }
+
+    public int getSpotsFreed() {
+        return spotsFreed;
+    }
+
+    /**
+     * @return parked time during the hour of the tickets closed so far, e.g. 1800 for one spot taken half the hour
+     */
+    public long getOccupiedSeconds() {
+        return occupiedSeconds;
+    }
+
+    public HourlyRollup plus(HourlyRollup other) {
+        return new HourlyRollup(hour, parkingType, closedTickets + other.closedTickets, revenue + other.revenue,
+                spotsTaken + other.spotsTaken, spotsFreed + other.spotsFreed, occupiedSeconds + other.occupiedSeconds);
+    }
+}
@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem.model;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latency distribution of an operation over a period, in microseconds. Percentiles are at most 3% above
+ * the recorded latencies, and never above the maximum.
+ */
+public class LatencyStats {
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+    private final long periodMillis;
+
+    @ConstructorProperties({"count", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros", "periodMillis"})
+    public LatencyStats(long count, double meanMicros, double p50Micros, double p99Micros, double p999Micros, double maxMicros, long periodMillis) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+        this.periodMillis = periodMillis;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * @return how long the samples were recorded
+     */
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    @Override
+    public String toString() {
+        return count + " ops, mean " + meanMicros + " us, p50 " + p50Micros + " us, p99 " + p99Micros
+                + " us, p999 " + p999Micros + " us, max " + maxMicros + " us over " + periodMillis + " ms";
+    }
+}
@@ -0,0 +1,22 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Free and occupied spots of one type at a point in time.
+ */
+public class Occupancy {
+    private final int free;
+    private final int occupied;
+
+    public Occupancy(int free, int occupied) {
+        this.free = free;
+        this.occupied = occupied;
+    }
+
+    public int getFree() {
+        return free;
+    }
+
+    public int getOccupied() {
+        return occupied;
+    }
+}
@@ -2,10 +2,13 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
+import java.util.Objects;
+
 public class ParkingSpot {
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private String lot;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
         this.number = number;
@@ -37,16 +40,27 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    /**
+     * @return the lot of the spot, spot numbers being unique within a lot only; null for the lot of this gate
+     */
+    public String getLot() {
+        return lot;
+    }
+
+    public void setLot(String lot) {
+        this.lot = lot;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return number == that.number && Objects.equals(lot, that.lot);
     }
 
     @Override
     public int hashCode() {
-        return number;
+        return 31 * Objects.hashCode(lot) + number;
     }
 }
@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a replay of gate event files.
+ */
+public class ReplayReport {
+    private final int files;
+    private final long events;
+    private final long elapsedNanos;
+
+    public ReplayReport(int files, long events, long elapsedNanos) {
+        this.files = files;
+        this.events = events;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    public long getEventsPerSecond() {
+        return events * 1000000000L / Math.max(elapsedNanos, 1);
+    }
+}
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a re-pricing of closed tickets.
+ */
+public class RepricingReport {
+    private final long read;
+    private final long changed;
+    private final long failed;
+    private final long elapsedMillis;
+    private final boolean complete;
+
+    public RepricingReport(long read, long changed, long failed, long elapsedMillis, boolean complete) {
+        this.read = read;
+        this.changed = changed;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.complete = complete;
+    }
+
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * @return tickets whose new price was stored
+     */
+    public long getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return tickets whose price could not be computed or stored
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return false when reading the tickets stopped on an error
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getRowsPerSecond() {
+        return read * 1000 / Math.max(elapsedMillis, 1);
+    }
+}
@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * Outcome of a traffic simulation.
+ */
+public class SimulationReport {
+    private final long arrivals;
+    private final long entries;
+    private final long allocationFailures;
+    private final long doubleAllocations;
+    private final long exits;
+    private final long failedExits;
+    private final long elapsedMillis;
+    private final LatencyStats entryLatency;
+    private final LatencyStats exitLatency;
+
+    public SimulationReport(long arrivals, long entries, long allocationFailures, long doubleAllocations, long exits,
+                            long failedExits, long elapsedMillis, LatencyStats entryLatency, LatencyStats exitLatency) {
+        this.arrivals = arrivals;
+        this.entries = entries;
+        this.allocationFailures = allocationFailures;
+        this.doubleAllocations = doubleAllocations;
+        this.exits = exits;
+        this.failedExits = failedExits;
+        this.elapsedMillis = elapsedMillis;
+        this.entryLatency = entryLatency;
+        this.exitLatency = exitLatency;
+    }
+
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * @return arrivals that were given a spot and a ticket
+     */
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return arrivals that got no ticket: lot full, or an error
+     */
+    public long getAllocationFailures() {
+        return allocationFailures;
+    }
+
+    /**
+     * @return tickets saved on a spot already held by another open ticket
+     */
+    public long getDoubleAllocations() {
+        return doubleAllocations;
+    }
+
+    public long getExits() {
+        return exits;
+    }
+
+    /**
+     * @return departures whose ticket could not be closed
+     */
+    public long getFailedExits() {
+        return failedExits;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public LatencyStats getEntryLatency() {
+        return entryLatency;
+    }
+
+    public LatencyStats getExitLatency() {
+        return exitLatency;
+    }
+
+    public long getOperationsPerSecond() {
+        return (arrivals + exits + failedExits) * 1000 / Math.max(elapsedMillis, 1);
+    }
+}
@@ -9,6 +9,7 @@ public class Ticket {
     private double price;
     private Date inTime;
     private Date outTime;
+    private String lot;
 
     public int getId() {
         return id;
@@ -57,4 +58,15 @@ public class Ticket {
     public void setOutTime(Date outTime) {
         this.outTime = outTime;
     }
+
+    /**
+     * @return the lot whose database holds the ticket, null for the lot of this gate
+     */
+    public String getLot() {
+        return lot;
+    }
+
+    public void setLot(String lot) {
+        this.lot = lot;
+    }
 }
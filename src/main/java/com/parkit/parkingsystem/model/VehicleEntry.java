@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * One vehicle of a batch entry and its outcome: the saved ticket, or the reason it was refused.
+ */
+public class VehicleEntry {
+    private String vehicleRegNumber;
+    private ParkingType parkingType;
+    private Ticket ticket;
+    private String error;
+
+    public VehicleEntry(String vehicleRegNumber, ParkingType parkingType) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public void setParkingType(ParkingType parkingType) {
+        this.parkingType = parkingType;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean isAccepted() {
+        return ticket != null && error == null;
+    }
+}
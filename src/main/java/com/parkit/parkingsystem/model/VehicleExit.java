@@ -0,0 +1,42 @@
+package com.parkit.parkingsystem.model;
+
+/**
+ * One exiting vehicle and its outcome: the closed ticket with its fare, or the reason it was refused.
+ */
+public class VehicleExit {
+    private String vehicleRegNumber;
+    private Ticket ticket;
+    private String error;
+
+    public VehicleExit(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean isAccepted() {
+        return ticket != null && error == null;
+    }
+}
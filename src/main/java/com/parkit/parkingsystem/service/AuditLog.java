@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Audit events of the gates, one key=value line per vehicle entry or exit on the "Audit" logger, which log4j2.xml
+ * writes asynchronously to a rolling file. Times are epoch milliseconds. Numbers are boxed with log4j2's reusable
+ * boxes and messages have at most ten parameters, so an event allocates nothing in log4j2 garbage-free mode.
+ */
+final class AuditLog {
+
+    private static final Logger audit = LogManager.getLogger("Audit");
+
+    private AuditLog() {
+    }
+
+    static void entry(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        audit.info("event=ENTRY ticket={} vehicle={} spot={} type={} inTime={}",
+                box(ticket.getId()), ticket.getVehicleRegNumber(), box(parkingSpot.getId()), parkingSpot.getParkingType(),
+                box(ticket.getInTime().getTime()));
+    }
+
+    /**
+     * @param discount whether the regular customer discount was applied to the fare
+     */
+    static void exit(Ticket ticket, boolean discount) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        audit.info("event=EXIT ticket={} vehicle={} spot={} type={} inTime={} outTime={} price={} discount={}",
+                box(ticket.getId()), ticket.getVehicleRegNumber(), box(parkingSpot.getId()), parkingSpot.getParkingType(),
+                box(ticket.getInTime().getTime()), box(ticket.getOutTime().getTime()), box(ticket.getPrice()), box(discount));
+    }
+}
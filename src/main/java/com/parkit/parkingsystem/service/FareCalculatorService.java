@@ -1,10 +1,19 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.model.Ticket;
 
 public class FareCalculatorService {
 
+    private final Tariff tariff;
+
+    public FareCalculatorService() {
+        this(Tariff.defaultTariff());
+    }
+
+    public FareCalculatorService(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
     public void calculateFare(Ticket ticket){
         calculateFare(ticket, false);
     }
@@ -24,51 +33,17 @@ public class FareCalculatorService {
     }
 
     /**
-     * Calculate parking fare depending on duration, type of vehicle and discount.
+     * Calculate parking fare depending on duration, type of vehicle and discount, from the {@link Tariff}.
      * @param ticket parking ticket including in/out time, vehicle RegNumber and parking spot
-     * @param discount 5% discount for regular users
-     * @return parking fare price in double
+     * @param discount discount for regular users
+     * @return parking fare price in double, truncated to the cent
      */
-    private static double calculatePrice(Ticket ticket, boolean discount) {
-        double duration = parkingTime(ticket);
-        double price = 0;
-
-        if(isEligibleToFree(duration)) {
-            return price;
-        }
-
-        switch (ticket.getParkingSpot().getParkingType()) {
-            case CAR: {
-                price = duration * Fare.CAR_RATE_PER_HOUR;
-                break;
-            }
-            case BIKE: {
-                price = duration * Fare.BIKE_RATE_PER_HOUR;
-                break;
-            }
-            default:
-                throw new IllegalArgumentException("Unkown Parking Type");
-        }
-
-        if(discount) {
-            price = price - (0.05 * price);
-        }
-
-        return FareCalculatorService.truncatePrice(price);
-    }
-
-    private static double parkingTime(Ticket ticket) {
-        long inTimeMs = ticket.getInTime().getTime();
-        long outTimeMs = ticket.getOutTime().getTime();
-
-        return (outTimeMs - inTimeMs) / (1000.*3600);
-    }
-
-    private static boolean isEligibleToFree(double duration) {
-        return duration < 0.5;
+    private double calculatePrice(Ticket ticket, boolean discount) {
+        return tariff.priceInCents(ticket.getParkingSpot().getParkingType(),
+                ticket.getInTime().getTime(), ticket.getOutTime().getTime(), discount) / 100.;
     }
 
     public static double truncatePrice(double price){
         return Math.floor(price * 100) / 100;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.GateEventLog;
+import com.parkit.parkingsystem.event.GateProjections;
+import com.parkit.parkingsystem.model.ReplayReport;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rebuild the gate state from the files of a {@link GateEventLog}, offline: a day replays as fast as the files
+ * are read, whatever the rate the events were recorded at. Nothing is written, so it runs next to the gates.
+ */
+public class GateEventReplay {
+
+    private GateEventReplay() {
+    }
+
+    /**
+     * Replay the events of the parkit.events.dir directory: of the day given as yyyy-MM-dd, or of every day.
+     */
+    public static void launch(String[] args) throws IOException {
+        String directory = System.getProperty("parkit.events.dir");
+        if (directory == null) {
+            System.out.println("Set parkit.events.dir to the directory of the gate events");
+            return;
+        }
+        List<Path> files;
+        if (args.length > 1) {
+            Path file = GateEventLog.fileOf(Paths.get(directory), LocalDate.parse(args[1]));
+            if (!Files.exists(file)) {
+                System.out.println("No gate events in " + file);
+                return;
+            }
+            files = Collections.singletonList(file);
+        } else {
+            files = GateEventLog.listFiles(Paths.get(directory));
+        }
+        GateProjections projections = new GateProjections();
+        ReplayReport report = replay(files, projections);
+        System.out.println("Replayed " + report.getEvents() + " events of " + report.getFiles() + " days in "
+                + report.getElapsedMillis() + " ms (" + report.getEventsPerSecond() + " events/s)");
+        for (ParkingType parkingType : ParkingType.values()) {
+            System.out.println(parkingType + " spots occupied: " + projections.getOccupied(parkingType));
+        }
+        System.out.println("Open tickets: " + projections.getOpenTicketCount());
+        System.out.println("Vehicles with closed tickets: " + projections.getVehicleCount());
+    }
+
+    /**
+     * Apply the events of the files, in the given order, to the projections.
+     */
+    public static ReplayReport replay(List<Path> files, GateProjections projections) throws IOException {
+        long start = System.nanoTime();
+        long events = 0;
+        for (Path file : files) {
+            events += GateEventLog.replay(file, projections::apply);
+        }
+        return new ReplayReport(files.size(), events, System.nanoTime() - start);
+    }
+}
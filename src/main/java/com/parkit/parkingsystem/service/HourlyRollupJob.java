@@ -0,0 +1,133 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryRollupStore;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.RollupStore;
+import com.parkit.parkingsystem.dao.Rollups;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.HourlyRollup;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Revenue and occupancy reports per hour and type read from the {@link RollupStore} alone, and the backfill
+ * rebuilding the rollups of a period from the tickets, for the history before the rollups were enabled
+ * or after a re-pricing.
+ */
+public class HourlyRollupJob {
+
+    private static final Logger logger = LogManager.getLogger("HourlyRollupJob");
+
+    private final TicketStore ticketStore;
+    private final RollupStore rollupStore;
+
+    public HourlyRollupJob(TicketStore ticketStore, RollupStore rollupStore) {
+        this.ticketStore = ticketStore;
+        this.rollupStore = rollupStore;
+    }
+
+    /**
+     * Run args[1], backfill or report, for the hours from args[2] (included) to args[3] (excluded),
+     * both yyyy-MM-dd, by default all hours until now.
+     */
+    public static void launch(String[] args) throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date from = (args.length > 2) ? dateFormat.parse(args[2]) : new Date(0);
+        Date to = (args.length > 3) ? dateFormat.parse(args[3]) : new Date();
+        TicketDAO ticketDAO = new TicketDAO();
+        try {
+            new SchemaMigrator(ticketDAO.dataBaseConfig).migrate();
+        } catch (Exception e) {
+            logger.error("Unable to migrate database schema", e);
+        }
+        HourlyRollupJob job = new HourlyRollupJob(ticketDAO, new RollupDAO());
+        long start = System.currentTimeMillis();
+        if (args.length > 1 && "backfill".equals(args[1])) {
+            int rollups = job.backfill(from, to);
+            System.out.println((rollups < 0) ? "Backfill failed, rollups unchanged"
+                    : "Rebuilt " + rollups + " hourly rollups from " + from + " to " + to + " in " + (System.currentTimeMillis() - start) + " ms");
+            return;
+        }
+        Map<ParkingType, HourlyRollup> totals = job.totals(from, to);
+        if (totals == null) {
+            System.out.println("Unable to read the hourly rollups");
+            return;
+        }
+        long hours = Math.max(1, (Rollups.hourOf(to.getTime() + Rollups.HOUR_MS - 1) - Rollups.hourOf(from.getTime())) / Rollups.HOUR_MS);
+        System.out.println("From " + from + " to " + to + ", read in " + (System.currentTimeMillis() - start) + " ms:");
+        for (HourlyRollup total : totals.values()) {
+            System.out.println(String.format(Locale.ROOT, "%s: %d tickets, revenue %.2f, %d spots taken, %d freed, %.2f spots occupied on average",
+                    total.getParkingType(), total.getClosedTickets(), total.getRevenue(), total.getSpotsTaken(),
+                    total.getSpotsFreed(), total.getOccupiedSeconds() / (hours * 3600.0)));
+        }
+    }
+
+    /**
+     * @return the rollups of the hours in [from, to) by hour, null on error
+     */
+    public List<HourlyRollup> report(Date from, Date to) {
+        return rollupStore.getRollups(new Date(Rollups.hourOf(from.getTime())), to);
+    }
+
+    /**
+     * @return the rollups of the hours in [from, to) summed per type, every type included, null on error
+     */
+    public Map<ParkingType, HourlyRollup> totals(Date from, Date to) {
+        List<HourlyRollup> rollups = report(from, to);
+        if (rollups == null) {
+            return null;
+        }
+        Map<ParkingType, HourlyRollup> totals = new EnumMap<>(ParkingType.class);
+        Date hour = new Date(Rollups.hourOf(from.getTime()));
+        for (ParkingType parkingType : ParkingType.values()) {
+            totals.put(parkingType, new HourlyRollup(hour, parkingType, 0, 0, 0, 0, 0));
+        }
+        for (HourlyRollup rollup : rollups) {
+            totals.merge(rollup.getParkingType(), rollup, HourlyRollup::plus);
+        }
+        return totals;
+    }
+
+    /**
+     * Replace the rollups of the hours from the one of from to the one before to by what the tickets give:
+     * each ticket takes its spot in the hour it came, and once closed, is priced and frees its spot in the hour
+     * it left. Spots taken without ticket are not found again. Updates made by the gates to these hours while
+     * the tickets are read are lost, so run it on past hours or while the gates are stopped.
+     * @return the number of rollups written, -1 when the tickets could not all be read or the rollups not written
+     */
+    public int backfill(Date from, Date to) {
+        long start = Rollups.hourOf(from.getTime());
+        long end = Rollups.hourOf(to.getTime() + Rollups.HOUR_MS - 1);
+        // tickets closed after the period may have parked during it
+        Date readUntil = new Date(Math.max(end, System.currentTimeMillis()) + Rollups.HOUR_MS);
+        InMemoryRollupStore rebuilt = new InMemoryRollupStore();
+        boolean complete = ticketStore.streamClosedTickets(new Date(start), readUntil, (ticket, regular) -> add(rebuilt, ticket, start, end));
+        List<Ticket> openTickets = ticketStore.getOpenTickets();
+        if (!complete || openTickets == null) {
+            logger.error("Unable to read the tickets, rollups not rebuilt");
+            return -1;
+        }
+        for (Ticket ticket : openTickets) {
+            add(rebuilt, ticket, start, end);
+        }
+        List<HourlyRollup> rollups = rebuilt.getRollups(new Date(start), new Date(end));
+        return rollupStore.replaceRollups(new Date(start), new Date(end), rollups) ? rollups.size() : -1;
+    }
+
+    private static void add(InMemoryRollupStore rebuilt, Ticket ticket, long start, long end) {
+        rebuilt.addRollups(Rollups.ticketHistory(ticket.getParkingSpot().getParkingType(), ticket.getInTime(),
+                ticket.getOutTime(), ticket.getPrice(), start, end));
+    }
+}
@@ -0,0 +1,318 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.VehicleEntry;
+import com.parkit.parkingsystem.model.VehicleExit;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.PlateCodec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server mode of the app: every gate sends its entries and exits to one JVM over HTTP.
+ * <ul>
+ *     <li>POST /entry?vehicleRegNumber=...&amp;type=CAR|BIKE</li>
+ *     <li>POST /exit?vehicleRegNumber=...</li>
+ *     <li>GET /availability</li>
+ *     <li>GET /occupancy, from the counts of the {@link ParkingService} rather than the database, for display boards</li>
+ *     <li>GET /ticket?vehicleRegNumber=..., the last ticket of the vehicle in any lot, when given a {@link LotRouter}</li>
+ * </ul>
+ * Parameters are read from the query string or a form body of at most {@value #MAX_BODY_BYTES} bytes.
+ * Registration numbers must be plates {@link PlateCodec} can pack. Answers are JSON: 200 when done,
+ * 400 for invalid parameters, 404 when no lot has a ticket of the vehicle, 409 when the entry or exit is refused,
+ * 413 for a larger body.
+ * Requests run on a fixed pool of workers sharing one {@link ParkingService}. When all workers are busy
+ * and the queue is full, the thread accepting connections runs the request itself, so it stops accepting new ones.
+ */
+public class ParkingHttpServer {
+
+    private static final Logger logger = LogManager.getLogger("ParkingHttpServer");
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+    public static final int MAX_BODY_BYTES = 4096;
+
+    private final ParkingService parkingService;
+    private final LotRouter lotRouter;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+
+    private interface Endpoint {
+        Response handle(Map<String, String> parameters) throws Exception;
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private BodyTooLargeException() {
+            super("Request body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    public ParkingHttpServer(ParkingService parkingService, int port, int workerCount, int queueCapacity) throws IOException {
+        this(parkingService, null, port, workerCount, queueCapacity);
+    }
+
+    /**
+     * @param lotRouter the stores of every lot, for GET /ticket; null leaves it out
+     */
+    public ParkingHttpServer(ParkingService parkingService, LotRouter lotRouter, int port, int workerCount, int queueCapacity) throws IOException {
+        this.parkingService = parkingService;
+        this.lotRouter = lotRouter;
+        AtomicInteger workerNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "gate-worker-" + workerNumber.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(workers);
+        server.createContext("/entry", exchange -> handle(exchange, "POST", this::entry));
+        server.createContext("/exit", exchange -> handle(exchange, "POST", this::exit));
+        server.createContext("/availability", exchange -> handle(exchange, "GET", parameters -> availability()));
+        server.createContext("/occupancy", exchange -> handle(exchange, "GET", parameters -> occupancy()));
+        if (lotRouter != null) {
+            server.createContext("/ticket", exchange -> handle(exchange, "GET", this::ticket));
+        }
+    }
+
+    /**
+     * Start the server mode with the parkit.server.* system properties, and stop it cleanly on JVM shutdown.
+     */
+    public static void launch() throws IOException {
+        ParkingSystem parkingSystem = ParkingSystem.fromSystemProperties(new InputReaderUtil());
+        // more workers than pooled connections would only wait for a connection
+        int workerCount = Integer.getInteger("parkit.server.workers",
+                Integer.getInteger("parkit.db.pool.maxSize", DataBaseConfig.DEFAULT_POOL_MAX_SIZE));
+        ParkingHttpServer parkingHttpServer = new ParkingHttpServer(parkingSystem.getParkingService(), parkingSystem.getLotRouter(),
+                Integer.getInteger("parkit.server.port", DEFAULT_PORT), workerCount,
+                Integer.getInteger("parkit.server.queueCapacity", DEFAULT_QUEUE_CAPACITY));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            parkingHttpServer.stop(1);
+            parkingSystem.shutdown();
+        }, "shutdown"));
+        parkingHttpServer.start();
+        System.out.println("Parking System listening on port " + parkingHttpServer.getPort());
+    }
+
+    public void start() {
+        server.start();
+        logger.info("HTTP server started on port " + getPort() + " with " + workers.getCorePoolSize() + " workers");
+    }
+
+    /**
+     * Stop accepting requests, wait up to delaySeconds for the ones in progress, then stop the workers.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(delaySeconds, TimeUnit.SECONDS)) {
+                logger.error("Workers still busy after " + delaySeconds + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private Response entry(Map<String, String> parameters) {
+        String vehicleRegNumber = plate(parameters);
+        if (vehicleRegNumber == null) {
+            return error(400, "Invalid vehicle registration number");
+        }
+        ParkingType parkingType;
+        try {
+            parkingType = ParkingType.valueOf(String.valueOf(parameters.get("type")).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return error(400, "Invalid vehicle type");
+        }
+        VehicleEntry entry = parkingService.processIncomingVehicle(vehicleRegNumber, parkingType);
+        if (!entry.isAccepted()) {
+            return error(409, entry.getError());
+        }
+        return new Response(200, ticketJson(entry.getTicket()));
+    }
+
+    private Response exit(Map<String, String> parameters) {
+        String vehicleRegNumber = plate(parameters);
+        if (vehicleRegNumber == null) {
+            return error(400, "Invalid vehicle registration number");
+        }
+        VehicleExit exit = parkingService.processExitingVehicle(vehicleRegNumber);
+        if (!exit.isAccepted()) {
+            return error(409, exit.getError());
+        }
+        return new Response(200, ticketJson(exit.getTicket()));
+    }
+
+    private Response ticket(Map<String, String> parameters) {
+        String vehicleRegNumber = plate(parameters);
+        if (vehicleRegNumber == null) {
+            return error(400, "Invalid vehicle registration number");
+        }
+        Ticket ticket = lotRouter.findTicket(vehicleRegNumber);
+        if (ticket == null) {
+            return error(404, "No ticket found");
+        }
+        return new Response(200, ticketJson(ticket));
+    }
+
+    /**
+     * @return the normalised vehicleRegNumber parameter, null when missing or not a plate that fits the ticket table
+     */
+    private static String plate(Map<String, String> parameters) {
+        String vehicleRegNumber = parameters.get("vehicleRegNumber");
+        if (PlateCodec.encode(vehicleRegNumber) == PlateCodec.NONE) {
+            return null;
+        }
+        return PlateCodec.normalise(vehicleRegNumber);
+    }
+
+    private Response availability() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<ParkingType, Integer> count : parkingService.getAvailableSpots().entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(quote(count.getKey().toString())).append(':').append(count.getValue());
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private Response occupancy() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<ParkingType, Occupancy> count : parkingService.getOccupancy().entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(quote(count.getKey().toString()))
+                    .append(":{\"free\":").append(count.getValue().getFree())
+                    .append(",\"occupied\":").append(count.getValue().getOccupied()).append('}');
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                response = error(405, "Use " + method);
+            } else {
+                response = endpoint.handle(readParameters(exchange));
+            }
+        } catch (BodyTooLargeException e) {
+            response = error(413, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error handling " + exchange.getRequestURI(), e);
+            response = error(500, "Internal error");
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseParameters(exchange.getRequestURI().getRawQuery(), parameters);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    throw new BodyTooLargeException();
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        parseParameters(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+        return parameters;
+    }
+
+    private static void parseParameters(String encoded, Map<String, String> parameters) throws IOException {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + quote(message) + "}");
+    }
+
+    private static String ticketJson(Ticket ticket) {
+        StringBuilder json = new StringBuilder("{")
+                .append("\"vehicleRegNumber\":").append(quote(ticket.getVehicleRegNumber()));
+        if (ticket.getLot() != null) {
+            json.append(",\"lot\":").append(quote(ticket.getLot()));
+        }
+        json.append(",\"parkingNumber\":").append(ticket.getParkingSpot().getId())
+                .append(",\"parkingType\":").append(quote(ticket.getParkingSpot().getParkingType().toString()))
+                .append(",\"inTime\":").append(quote(format(ticket.getInTime())));
+        if (ticket.getOutTime() != null) {
+            json.append(",\"outTime\":").append(quote(format(ticket.getOutTime())))
+                    .append(",\"price\":").append(ticket.getPrice());
+        }
+        return json.append('}').toString();
+    }
+
+    private static String format(Date date) {
+        return date.toInstant().toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
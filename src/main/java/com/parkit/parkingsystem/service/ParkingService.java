@@ -1,39 +1,82 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.cache.LongIntHashMap;
+import com.parkit.parkingsystem.cache.OccupancyCounters;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.Occupancy;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.VehicleEntry;
+import com.parkit.parkingsystem.model.VehicleExit;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.util.PlateCodec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final LatencyHistogram entryLatency = Metrics.latency("ParkingService.processIncomingVehicle");
+    private static final LatencyHistogram batchEntryLatency = Metrics.latency("ParkingService.processIncomingVehicles");
+    private static final LatencyHistogram exitLatency = Metrics.latency("ParkingService.processExitingVehicle");
+
+    // reads of the spots tried when vehicles come or leave during them
+    private static final int RECONCILE_ATTEMPTS = 3;
 
     private final InputReaderUtil inputReaderUtil;
-    private final ParkingSpotDAO parkingSpotDAO;
-    private final TicketDAO ticketDAO;
+    private final ParkingSpotStore parkingSpotDAO;
+    private final TicketStore ticketDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final OccupancyCounters occupancyCounters = new OccupancyCounters();
+
+    /**
+     * Where the prompts and answers of the console flows are printed, System.out when null.
+     */
+    public PrintStream console;
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, new FareCalculatorService());
+    }
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO, FareCalculatorService fareCalculatorService){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
     }
 
     public void processIncomingVehicle() {
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
+            ParkingSpot parkingSpot = claimNextParkingNumberIfAvailable();
             if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);
+                String vehicleRegNumber;
+                try {
+                    vehicleRegNumber = getVehichleRegNumber();
+                } catch (Exception e) {
+                    releaseParkingSpot(parkingSpot);
+                    throw e;
+                }
+                if (ticketDAO.isParked(vehicleRegNumber)) {
+                    releaseParkingSpot(parkingSpot);
+                    console().println("Vehicle number:" + vehicleRegNumber + " is already parked");
+                    return;
+                }
 
                 Date inTime = new Date();
                 Ticket ticket = new Ticket();
@@ -42,13 +85,18 @@ public class ParkingService {
                 ticket.setPrice(0);
                 ticket.setInTime(inTime);
                 ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                if (!ticketDAO.saveTicket(ticket)) {
+                    releaseParkingSpot(parkingSpot);
+                    console().println("Unable to save ticket information. Error occurred");
+                    return;
+                }
+                AuditLog.entry(ticket);
+                console().println("Generated Ticket and saved in DB");
+                console().println("Please park your vehicle in spot number:"+parkingSpot.getId());
+                console().println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
 
                 if (isEligibleToDiscount(ticket)) {
-                    System.out.println("Heureux de vous revoir ! En tant qu’utilisateur régulier de notre parking, vous allez obtenir une remise de 5%");
+                    console().println("Heureux de vous revoir ! En tant qu’utilisateur régulier de notre parking, vous allez obtenir une remise de 5%");
                 }
             }
         }catch(Exception e){
@@ -56,26 +104,147 @@ public class ParkingService {
         }
     }
 
+    /**
+     * Let one vehicle in without reading the console.
+     * @return the entry with its ticket, or the reason it was refused
+     */
+    public VehicleEntry processIncomingVehicle(String vehicleRegNumber, ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return letIn(Collections.singletonList(new VehicleEntry(vehicleRegNumber, parkingType))).get(0);
+        } finally {
+            entryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Let a group of vehicles in at once: spots are claimed per type in one query and all tickets are
+     * saved in one batch. Each entry gets either its ticket or the reason it was refused.
+     * @return the same entries, in order
+     */
+    public List<VehicleEntry> processIncomingVehicles(List<VehicleEntry> entries) {
+        long start = System.nanoTime();
+        try {
+            return letIn(entries);
+        } finally {
+            batchEntryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private List<VehicleEntry> letIn(List<VehicleEntry> entries) {
+        Map<ParkingType, List<VehicleEntry>> entriesByType = new EnumMap<>(ParkingType.class);
+        // duplicates are found by plate code, the plates that cannot be packed by String
+        LongIntHashMap plateCodes = new LongIntHashMap(entries.size());
+        Set<String> otherVehicleRegNumbers = new HashSet<>();
+        for (VehicleEntry entry : entries) {
+            String vehicleRegNumber = PlateCodec.normalise(entry.getVehicleRegNumber());
+            entry.setVehicleRegNumber(vehicleRegNumber);
+            long plateCode = PlateCodec.encode(vehicleRegNumber);
+            if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+                entry.setError("Invalid vehicle registration number");
+            } else if (entry.getParkingType() == null) {
+                entry.setError("Invalid vehicle type");
+            } else if ((plateCode == PlateCodec.NONE) ? !otherVehicleRegNumbers.add(vehicleRegNumber) : plateCodes.put(plateCode, 1, 0) != 0) {
+                entry.setError("Vehicle registration number already in this batch");
+            } else if (ticketDAO.isParked(vehicleRegNumber)) {
+                entry.setError("Vehicle already parked");
+            } else {
+                entriesByType.computeIfAbsent(entry.getParkingType(), type -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        Date inTime = new Date();
+        List<Ticket> tickets = new ArrayList<>();
+        List<VehicleEntry> ticketEntries = new ArrayList<>();
+        for (Map.Entry<ParkingType, List<VehicleEntry>> typeEntries : entriesByType.entrySet()) {
+            ParkingType parkingType = typeEntries.getKey();
+            List<VehicleEntry> vehicles = typeEntries.getValue();
+            List<Integer> parkingNumbers = parkingSpotDAO.claimAvailableSlots(parkingType, vehicles.size());
+            if (parkingNumbers != null) {
+                occupancyCounters.taken(parkingType, parkingNumbers.size());
+            }
+            for (int i = 0; i < vehicles.size(); i++) {
+                VehicleEntry entry = vehicles.get(i);
+                if (parkingNumbers == null) {
+                    entry.setError("Error fetching parking number from DB");
+                } else if (i >= parkingNumbers.size()) {
+                    entry.setError("No available parking slot for " + parkingType);
+                } else {
+                    Ticket ticket = new Ticket();
+                    ticket.setParkingSpot(new ParkingSpot(parkingNumbers.get(i), parkingType, false));
+                    ticket.setVehicleRegNumber(entry.getVehicleRegNumber());
+                    ticket.setPrice(0);
+                    ticket.setInTime(inTime);
+                    ticket.setOutTime(null);
+                    tickets.add(ticket);
+                    ticketEntries.add(entry);
+                }
+            }
+        }
+
+        if (!tickets.isEmpty()) {
+            boolean saved = ticketDAO.saveTickets(tickets);
+            for (int i = 0; i < tickets.size(); i++) {
+                if (saved) {
+                    ticketEntries.get(i).setTicket(tickets.get(i));
+                    AuditLog.entry(tickets.get(i));
+                } else {
+                    releaseParkingSpot(tickets.get(i).getParkingSpot());
+                    ticketEntries.get(i).setError("Unable to save ticket");
+                }
+            }
+        }
+        return entries;
+    }
+
     public boolean isEligibleToDiscount(Ticket ticket) {
         String vehicleRegNumber = ticket.getVehicleRegNumber();
         return ticketDAO.getNbTicket(vehicleRegNumber) > 0;
     }
 
     private String getVehichleRegNumber() throws Exception {
-        System.out.println("Please type the vehicle registration number and press enter key");
-        return inputReaderUtil.readVehicleRegistrationNumber();
+        console().println("Please type the vehicle registration number and press enter key");
+        String vehicleRegNumber = PlateCodec.normalise(inputReaderUtil.readVehicleRegistrationNumber());
+        if (vehicleRegNumber == null || vehicleRegNumber.isEmpty()) {
+            throw new IllegalArgumentException("Invalid input provided");
+        }
+        return vehicleRegNumber;
     }
 
     public ParkingSpot getNextParkingNumberIfAvailable(){
+        return findParkingSpot(parkingSpotDAO::getNextAvailableSlot, true);
+    }
+
+    /**
+     * Same as {@link #getNextParkingNumberIfAvailable()} but the spot is already reserved in DB,
+     * so no other gate can be given it.
+     */
+    public ParkingSpot claimNextParkingNumberIfAvailable(){
+        ParkingSpot parkingSpot = findParkingSpot(parkingSpotDAO::claimNextAvailableSlot, false);
+        if (parkingSpot != null) {
+            occupancyCounters.taken(parkingSpot.getParkingType(), 1);
+        }
+        return parkingSpot;
+    }
+
+    private void releaseParkingSpot(ParkingSpot parkingSpot) {
+        parkingSpot.setAvailable(true);
+        if (parkingSpotDAO.updateParking(parkingSpot)) {
+            occupancyCounters.freed(parkingSpot.getParkingType());
+        }
+    }
+
+    private ParkingSpot findParkingSpot(ToIntFunction<ParkingType> slotFinder, boolean available){
         int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try{
             ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            parkingNumber = slotFinder.applyAsInt(parkingType);
             if(parkingNumber > 0){
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
+                parkingSpot = new ParkingSpot(parkingNumber,parkingType, available);
             }else{
-                throw new Exception("Error fetching parking number from DB. Parking slots might be full");
+                // a full lot is an answer of the gate, not an error
+                console().println("No parking spot available for this vehicle type, the parking might be full");
             }
         }catch(IllegalArgumentException ie){
             logger.error("Error parsing user input for type of vehicle", ie);
@@ -85,10 +254,15 @@ public class ParkingService {
         return parkingSpot;
     }
 
+    private PrintStream console() {
+        PrintStream out = console;
+        return (out == null) ? System.out : out;
+    }
+
     private ParkingType getVehichleType(){
-        System.out.println("Please select vehicle type from menu");
-        System.out.println("1 CAR");
-        System.out.println("2 BIKE");
+        console().println("Please select vehicle type from menu");
+        console().println("1 CAR");
+        console().println("2 BIKE");
         int input = inputReaderUtil.readSelection();
         switch(input){
             case 1: {
@@ -98,7 +272,7 @@ public class ParkingService {
                 return ParkingType.BIKE;
             }
             default: {
-                System.out.println("Incorrect input provided");
+                console().println("Incorrect input provided");
                 throw new IllegalArgumentException("Entered input is invalid");
             }
         }
@@ -107,28 +281,92 @@ public class ParkingService {
     public void processExitingVehicle() {
         try{
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-
-            if (isEligibleToDiscount(ticket)) {
-                boolean discount = true;
-                fareCalculatorService.calculateFare(ticket, discount);
-            } else {
-                fareCalculatorService.calculateFare(ticket);
-            }
-
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+            VehicleExit exit = processExitingVehicle(vehicleRegNumber);
+            if (exit.isAccepted()) {
+                Ticket ticket = exit.getTicket();
+                console().println("Please pay the parking fare:" + ticket.getPrice());
+                console().println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
             }else{
-                System.out.println("Unable to update ticket information. Error occurred");
+                console().println(exit.getError());
             }
         }catch(Exception e){
             logger.error("Unable to process exiting vehicle",e);
         }
     }
+
+    /**
+     * Close the open ticket of this vehicle with its fare and free its spot, without reading the console.
+     * @return the closed ticket, or the reason the exit was refused
+     */
+    public VehicleExit processExitingVehicle(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return letOut(vehicleRegNumber);
+        } finally {
+            exitLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private VehicleExit letOut(String vehicleRegNumber) {
+        vehicleRegNumber = PlateCodec.normalise(vehicleRegNumber);
+        VehicleExit exit = new VehicleExit(vehicleRegNumber);
+        Ticket ticket = ticketDAO.getOpenTicket(vehicleRegNumber);
+        if (ticket == null) {
+            exit.setError("No parked vehicle found for vehicle number:" + vehicleRegNumber);
+            return exit;
+        }
+        ticket.setOutTime(new Date());
+        boolean discount = isEligibleToDiscount(ticket);
+        fareCalculatorService.calculateFare(ticket, discount);
+
+        if (!ticketDAO.updateTicket(ticket)) {
+            exit.setError("Unable to update ticket information. Error occurred");
+            return exit;
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        parkingSpot.setAvailable(true);
+        if (parkingSpotDAO.updateParking(parkingSpot)) {
+            occupancyCounters.freed(parkingSpot.getParkingType());
+        }
+        AuditLog.exit(ticket, discount);
+        exit.setTicket(ticket);
+        return exit;
+    }
+
+    /**
+     * @return the number of free spots of each type
+     */
+    public Map<ParkingType, Integer> getAvailableSpots() {
+        return parkingSpotDAO.getAvailableSlotCounts();
+    }
+
+    /**
+     * Free and occupied spots of each type as counted by this service, without querying the store.
+     * The counts start at 0 and are meaningful once {@link #reconcileOccupancy()} has loaded them.
+     */
+    public Map<ParkingType, Occupancy> getOccupancy() {
+        return occupancyCounters.snapshot();
+    }
+
+    /**
+     * Reset the occupancy counts from the parking spots of the store, to load them or to correct their drift
+     * when other processes share the store. The spots are read again, a few times at most, when a vehicle came
+     * or left during the read.
+     * @return the total correction, -1 when the spots could not be read or vehicles came or left during every read
+     */
+    public int reconcileOccupancy() {
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            long version = occupancyCounters.getVersion();
+            List<ParkingSpot> parkingSpots = parkingSpotDAO.getParkingSpots();
+            if (parkingSpots == null) {
+                logger.error("Unable to read the parking spots, occupancy not reconciled");
+                return -1;
+            }
+            int drift = occupancyCounters.reconcile(parkingSpots, version);
+            if (drift >= 0) {
+                return drift;
+            }
+        }
+        return -1;
+    }
 }
@@ -0,0 +1,300 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.cache.TicketFrequencyCache;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryRollupStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.RollupStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.WriteBehindQueue;
+import com.parkit.parkingsystem.event.EventLoggedParkingSpotStore;
+import com.parkit.parkingsystem.event.EventLoggedTicketStore;
+import com.parkit.parkingsystem.event.GateEventLog;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.GateRecovery;
+import com.parkit.parkingsystem.journal.JournaledParkingSpotStore;
+import com.parkit.parkingsystem.journal.JournaledTicketStore;
+import com.parkit.parkingsystem.metrics.TimedParkingSpotStore;
+import com.parkit.parkingsystem.metrics.TimedTicketStore;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stores and the {@link ParkingService} shared by the shell and the HTTP server,
+ * migrated and configured from the parkit.* system properties.
+ */
+public class ParkingSystem {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSystem");
+
+    public static final int DEFAULT_MEMORY_CAR_SPOTS = 3;
+    public static final int DEFAULT_MEMORY_BIKE_SPOTS = 2;
+    public static final int DEFAULT_OCCUPANCY_RECONCILE_INTERVAL_SECONDS = 60;
+    // consecutive reconciliations skipped before each further one is warned about
+    private static final int OCCUPANCY_SKIPS_WARNED = 3;
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final TicketStore ticketStore;
+    private final RollupStore rollupStore;
+    private final WriteBehindQueue writeBehindQueue;
+    private final GateJournal gateJournal;
+    private final ParkingService parkingService;
+    private GateEventLog gateEventLog;
+    private ScheduledExecutorService occupancyReconciler;
+    private LotRouter lotRouter;
+
+    public ParkingSystem(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotStore, TicketStore ticketStore, RollupStore rollupStore,
+                         WriteBehindQueue writeBehindQueue, GateJournal gateJournal, Tariff tariff) {
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+        this.rollupStore = rollupStore;
+        this.writeBehindQueue = writeBehindQueue;
+        this.gateJournal = gateJournal;
+        this.parkingService = new ParkingService(inputReaderUtil, parkingSpotStore, ticketStore, new FareCalculatorService(tariff));
+    }
+
+    /**
+     * With -Dparkit.hourlyRollups=true, the stores add their closed tickets and spot changes to the hourly rollups.
+     * The gate belongs to the parkit.lot lot and stores in its parkit.db.url.&lt;lot&gt; database. The other lots
+     * of parkit.lots, comma separated, are only read by the plate lookups of the {@link LotRouter}.
+     * @throws IOException when the parkit.tariff file or the parkit.journal.dir journal cannot be read
+     * @throws IllegalArgumentException when its rate definitions are invalid, or another lot has no parkit.db.url.&lt;lot&gt;
+     */
+    public static ParkingSystem fromSystemProperties(InputReaderUtil inputReaderUtil) throws IOException {
+        Tariff tariff = Tariff.fromSystemProperties();
+        boolean hourlyRollups = Boolean.getBoolean("parkit.hourlyRollups");
+        String lot = DataBaseConfig.getLocalLot();
+        if ("memory".equals(System.getProperty("parkit.storage"))) {
+            InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(
+                    Integer.getInteger("parkit.storage.carSpots", DEFAULT_MEMORY_CAR_SPOTS),
+                    Integer.getInteger("parkit.storage.bikeSpots", DEFAULT_MEMORY_BIKE_SPOTS));
+            InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+            InMemoryRollupStore rollupStore = null;
+            if (hourlyRollups) {
+                rollupStore = new InMemoryRollupStore();
+                parkingSpotStore.rollupStore = rollupStore;
+                ticketStore.rollupStore = rollupStore;
+            }
+            ParkingSystem parkingSystem = assemble(inputReaderUtil, parkingSpotStore, ticketStore, rollupStore, null, tariff);
+            parkingSystem.routeLots(lot, new LinkedHashMap<>(), new LinkedHashMap<>());
+            return parkingSystem;
+        }
+        // the other lots are set up first, so a lot without database fails before this one is touched
+        Map<String, ParkingSpotStore> otherParkingSpotStores = new LinkedHashMap<>();
+        Map<String, TicketStore> otherTicketStores = new LinkedHashMap<>();
+        for (String otherLot : System.getProperty("parkit.lots", lot).split(",")) {
+            otherLot = otherLot.trim();
+            if (otherLot.isEmpty() || otherLot.equals(lot)) {
+                continue;
+            }
+            ParkingSpotDAO otherParkingSpotDAO = new ParkingSpotDAO();
+            otherParkingSpotDAO.dataBaseConfig = DataBaseConfig.forLot(otherLot);
+            TicketDAO otherTicketDAO = new TicketDAO();
+            otherTicketDAO.dataBaseConfig = otherParkingSpotDAO.dataBaseConfig;
+            otherParkingSpotStores.put(otherLot, otherParkingSpotDAO);
+            otherTicketStores.put(otherLot, otherTicketDAO);
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        try {
+            new SchemaMigrator(parkingSpotDAO.dataBaseConfig).migrate();
+        } catch (Exception e) {
+            logger.error("Unable to migrate database schema", e);
+        }
+        if (Boolean.getBoolean("parkit.freeSpotIndex")) {
+            parkingSpotDAO.loadFreeSpotIndex();
+        }
+        TicketDAO ticketDAO = new TicketDAO();
+        if (Boolean.getBoolean("parkit.openTicketCache")) {
+            ticketDAO.loadOpenTicketCache();
+        }
+        if (Boolean.getBoolean("parkit.ticketFrequencyCache")) {
+            ticketDAO.loadTicketFrequencyCache(Integer.getInteger("parkit.ticketFrequencyCache.maxEntries", TicketFrequencyCache.DEFAULT_MAX_ENTRIES));
+        }
+        WriteBehindQueue writeBehindQueue = null;
+        if (Boolean.getBoolean("parkit.writeBehind")) {
+            writeBehindQueue = WriteBehindQueue.fromSystemProperties(ticketDAO.dataBaseConfig);
+            ticketDAO.writeBehindQueue = writeBehindQueue;
+            parkingSpotDAO.writeBehindQueue = writeBehindQueue;
+        }
+        RollupDAO rollupDAO = null;
+        if (hourlyRollups) {
+            rollupDAO = new RollupDAO();
+            ticketDAO.hourlyRollups = true;
+            parkingSpotDAO.hourlyRollups = true;
+            if (writeBehindQueue != null) {
+                writeBehindQueue.hourlyRollups = true;
+            }
+        }
+        ParkingSystem parkingSystem = assemble(inputReaderUtil, parkingSpotDAO, ticketDAO, rollupDAO, writeBehindQueue, tariff);
+        parkingSystem.routeLots(lot, otherParkingSpotStores, otherTicketStores);
+        return parkingSystem;
+    }
+
+    /**
+     * Route the stores of this system as the ones of its lot, along with the stores of the other lots.
+     */
+    private void routeLots(String lot, Map<String, ParkingSpotStore> otherParkingSpotStores, Map<String, TicketStore> otherTicketStores) {
+        Map<String, ParkingSpotStore> parkingSpotStores = new LinkedHashMap<>();
+        Map<String, TicketStore> ticketStores = new LinkedHashMap<>();
+        parkingSpotStores.put(lot, parkingSpotStore);
+        ticketStores.put(lot, ticketStore);
+        parkingSpotStores.putAll(otherParkingSpotStores);
+        ticketStores.putAll(otherTicketStores);
+        lotRouter = new LotRouter(lot, parkingSpotStores, ticketStores,
+                Long.getLong("parkit.lots.lookupTimeoutMillis", LotRouter.DEFAULT_LOOKUP_TIMEOUT_MS),
+                Integer.getInteger("parkit.lots.lookupThreadsPerLot", LotRouter.DEFAULT_LOOKUP_THREADS_PER_LOT));
+    }
+
+    /**
+     * Record the latency of the store methods, and when parkit.events.dir is set, record their changes as gate events
+     * in its event log. When parkit.journal.dir is set, recover the gate state of its journal into the stores and
+     * journal their changes from now on. The occupancy counts are loaded once the stores are recovered.
+     */
+    private static ParkingSystem assemble(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotStore, TicketStore ticketStore,
+                                          RollupStore rollupStore, WriteBehindQueue writeBehindQueue, Tariff tariff) throws IOException {
+        parkingSpotStore = new TimedParkingSpotStore(parkingSpotStore);
+        ticketStore = new TimedTicketStore(ticketStore);
+        String eventDirectory = System.getProperty("parkit.events.dir");
+        GateEventLog gateEventLog = null;
+        if (eventDirectory != null) {
+            gateEventLog = GateEventLog.fromSystemProperties(Paths.get(eventDirectory));
+            parkingSpotStore = new EventLoggedParkingSpotStore(parkingSpotStore, gateEventLog);
+            ticketStore = new EventLoggedTicketStore(ticketStore, gateEventLog);
+        }
+        String journalDirectory = System.getProperty("parkit.journal.dir");
+        ParkingSystem parkingSystem;
+        if (journalDirectory == null) {
+            parkingSystem = new ParkingSystem(inputReaderUtil, parkingSpotStore, ticketStore, rollupStore, writeBehindQueue, null, tariff);
+        } else {
+            GateJournal gateJournal = GateJournal.fromSystemProperties(Paths.get(journalDirectory));
+            int fixes = GateRecovery.reconcile(gateJournal, parkingSpotStore, ticketStore);
+            logger.info("Recovered gate state from " + journalDirectory + " with " + fixes + " fixes");
+            parkingSystem = new ParkingSystem(inputReaderUtil, new JournaledParkingSpotStore(parkingSpotStore, gateJournal),
+                    new JournaledTicketStore(ticketStore, gateJournal), rollupStore, writeBehindQueue, gateJournal, tariff);
+        }
+        parkingSystem.gateEventLog = gateEventLog;
+        parkingSystem.startOccupancyReconciler(occupancyReconcileInterval());
+        return parkingSystem;
+    }
+
+    /**
+     * Load the occupancy counts of the parking service, then correct their drift every intervalSeconds
+     * on a daemon thread; 0 disables the correction.
+     */
+    public void startOccupancyReconciler(int intervalSeconds) {
+        int drift = parkingService.reconcileOccupancy();
+        logger.info("Loaded occupancy counts, " + drift + " spots corrected");
+        if (intervalSeconds <= 0) {
+            return;
+        }
+        occupancyReconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int[] skipped = new int[1];
+        occupancyReconciler.scheduleWithFixedDelay(() -> {
+            int correction = parkingService.reconcileOccupancy();
+            if (correction < 0) {
+                // the counts drift for as long as the reconciliation is skipped
+                if (++skipped[0] >= OCCUPANCY_SKIPS_WARNED) {
+                    logger.warn("Occupancy counts not reconciled for " + skipped[0] + " runs in a row");
+                }
+                return;
+            }
+            skipped[0] = 0;
+            if (correction > 0) {
+                logger.info("Corrected occupancy counts by " + correction + " spots");
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private static int occupancyReconcileInterval() {
+        return Integer.getInteger("parkit.occupancy.reconcileIntervalSeconds", DEFAULT_OCCUPANCY_RECONCILE_INTERVAL_SECONDS);
+    }
+
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    public ParkingSpotStore getParkingSpotStore() {
+        return parkingSpotStore;
+    }
+
+    public TicketStore getTicketStore() {
+        return ticketStore;
+    }
+
+    /**
+     * @return the stores of every lot, set up by {@link #fromSystemProperties(InputReaderUtil)} only
+     */
+    public LotRouter getLotRouter() {
+        return lotRouter;
+    }
+
+    /**
+     * @return the event log the stores record their changes in, null unless parkit.events.dir is set
+     */
+    public GateEventLog getGateEventLog() {
+        return gateEventLog;
+    }
+
+    /**
+     * @return the hourly rollups the stores add to, null unless parkit.hourlyRollups is set
+     */
+    public RollupStore getRollupStore() {
+        return rollupStore;
+    }
+
+    /**
+     * Stop the occupancy reconciler and the lot lookups, store the updates still queued by the write-behind mode,
+     * snapshot the gate journal and close the gate event log, if enabled.
+     */
+    public void shutdown() {
+        if (occupancyReconciler != null) {
+            occupancyReconciler.shutdownNow();
+        }
+        if (lotRouter != null) {
+            lotRouter.shutdown();
+        }
+        if (writeBehindQueue != null) {
+            System.out.println("Saving " + writeBehindQueue.getPendingCount() + " pending updates");
+            try {
+                writeBehindQueue.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while saving pending updates", e);
+            }
+        }
+        if (gateJournal != null) {
+            try {
+                gateJournal.close();
+            } catch (IOException e) {
+                logger.error("Unable to snapshot the gate journal", e);
+            }
+        }
+        if (gateEventLog != null) {
+            try {
+                gateEventLog.close();
+            } catch (IOException e) {
+                logger.error("Unable to close the gate event log", e);
+            }
+        }
+    }
+}
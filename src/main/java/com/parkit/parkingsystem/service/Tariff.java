@@ -0,0 +1,226 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * Rates of every parking type, compiled once into flat tables indexed by type ordinal and quarter hour of the day,
+ * so a fare is a few array reads and multiplications.
+ * <p>
+ * Rate definitions are properties, amounts in the currency with at most two decimals:
+ * <ul>
+ *     <li>{@code CAR.rate=1.5}: rate per hour of the type</li>
+ *     <li>{@code CAR.band.2000-0800=0.75}: rate per hour from 20:00 to 08:00, replacing the type rate.
+ *     Bands start and end on a quarter hour, may wrap midnight, and must not overlap</li>
+ *     <li>{@code CAR.dailyCap=15}: maximum price of each started 24 hours from the entry</li>
+ *     <li>{@code freeMinutes=30}: stays shorter than this are free</li>
+ *     <li>{@code discountPercent=5}: discount of regular customers</li>
+ *     <li>{@code timeZone=Europe/Paris}: zone of the bands, the system one by default</li>
+ * </ul>
+ * Types without rate use the {@link Fare} ones. Bands follow the wall clock of the entry: the real duration is charged,
+ * but on a daylight saving change during the stay the bands after it are one hour early or late.
+ * Prices are truncated to the cent.
+ */
+public final class Tariff {
+
+    private static final int BUCKET_MINUTES = 15;
+    private static final long MS_PER_HOUR = 3600 * 1000L;
+    private static final long MS_PER_DAY = 24 * MS_PER_HOUR;
+    private static final long BUCKET_MS = BUCKET_MINUTES * 60 * 1000L;
+    private static final int BUCKETS_PER_DAY = (int) (MS_PER_DAY / BUCKET_MS);
+    private static final int TYPES = ParkingType.values().length;
+
+    // per type ordinal * BUCKETS_PER_DAY + bucket: rate in cents per hour, and cost from midnight to the bucket start
+    // in cents per hour times milliseconds, divided by MS_PER_HOUR once the fare is summed
+    private final long[] rates = new long[TYPES * BUCKETS_PER_DAY];
+    private final long[] costsBefore = new long[TYPES * BUCKETS_PER_DAY];
+    // per type ordinal, in the same unit as costsBefore
+    private final long[] dayCosts = new long[TYPES];
+    private final long[] dailyCaps = new long[TYPES];
+    private final long[] cappedDayCosts = new long[TYPES];
+    private final long freeMs;
+    private final long discountedPercent;
+    private final TimeZone timeZone;
+
+    private Tariff(Properties properties) {
+        Arrays.fill(rates, -1);
+        Arrays.fill(dailyCaps, Long.MAX_VALUE);
+        long[] typeRates = new long[TYPES];
+        Arrays.fill(typeRates, -1);
+        long freeMinutes = Fare.FREE_PARKING_MINUTES;
+        long discountPercent = Fare.REGULAR_DISCOUNT_PERCENT;
+        TimeZone zone = TimeZone.getDefault();
+
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            if (key.equals("freeMinutes")) {
+                freeMinutes = parseNumber(key, value, 24 * 60);
+            } else if (key.equals("discountPercent")) {
+                discountPercent = parseNumber(key, value, 100);
+            } else if (key.equals("timeZone")) {
+                zone = TimeZone.getTimeZone(value);
+            } else {
+                int dot = key.indexOf('.');
+                int type = parseType(key, dot);
+                String definition = key.substring(dot + 1);
+                if (definition.equals("rate")) {
+                    typeRates[type] = parseCents(key, value);
+                } else if (definition.equals("dailyCap")) {
+                    dailyCaps[type] = parseCents(key, value) * MS_PER_HOUR;
+                } else if (definition.startsWith("band.")) {
+                    addBand(key, type, definition.substring("band.".length()), parseCents(key, value));
+                } else {
+                    throw new IllegalArgumentException("Unknown tariff property:" + key);
+                }
+            }
+        }
+
+        for (int type = 0; type < TYPES; type++) {
+            if (typeRates[type] < 0) {
+                throw new IllegalArgumentException("No rate for " + ParkingType.values()[type]);
+            }
+            long cost = 0;
+            for (int bucket = 0; bucket < BUCKETS_PER_DAY; bucket++) {
+                int index = type * BUCKETS_PER_DAY + bucket;
+                if (rates[index] < 0) {
+                    rates[index] = typeRates[type];
+                }
+                costsBefore[index] = cost;
+                cost += rates[index] * BUCKET_MS;
+            }
+            dayCosts[type] = cost;
+            cappedDayCosts[type] = Math.min(cost, dailyCaps[type]);
+        }
+        this.freeMs = freeMinutes * 60 * 1000;
+        this.discountedPercent = 100 - discountPercent;
+        this.timeZone = zone;
+    }
+
+    /**
+     * @return the {@link Fare} rates, without bands nor daily caps
+     */
+    public static Tariff defaultTariff() {
+        return load(new Properties());
+    }
+
+    /**
+     * @param properties rate definitions, on top of the {@link Fare} rates
+     * @throws IllegalArgumentException when a definition is invalid
+     */
+    public static Tariff load(Properties properties) {
+        Properties definitions = new Properties();
+        definitions.setProperty(ParkingType.CAR + ".rate", String.valueOf(Fare.CAR_RATE_PER_HOUR));
+        definitions.setProperty(ParkingType.BIKE + ".rate", String.valueOf(Fare.BIKE_RATE_PER_HOUR));
+        definitions.putAll(properties);
+        return new Tariff(definitions);
+    }
+
+    /**
+     * @return the tariff of the properties file named by parkit.tariff, or the default one
+     */
+    public static Tariff fromSystemProperties() throws IOException {
+        String path = System.getProperty("parkit.tariff");
+        if (path == null) {
+            return defaultTariff();
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(path)) {
+            properties.load(in);
+        }
+        return load(properties);
+    }
+
+    /**
+     * @param outTimeMs not before inTimeMs
+     * @return the price of the stay in cents, truncated
+     */
+    public long priceInCents(ParkingType parkingType, long inTimeMs, long outTimeMs, boolean discount) {
+        int type = parkingType.ordinal();
+        long duration = outTimeMs - inTimeMs;
+        long fullDays = duration / MS_PER_DAY;
+        long rest = duration - fullDays * MS_PER_DAY;
+        long start = Math.floorMod(inTimeMs + timeZone.getOffset(inTimeMs), MS_PER_DAY);
+        long cost = fullDays * cappedDayCosts[type]
+                + Math.min(costFromMidnight(type, start + rest) - costFromMidnight(type, start), dailyCaps[type]);
+        long cents = cost * (discount ? discountedPercent : 100) / (100 * MS_PER_HOUR);
+        return (duration < freeMs) ? 0 : cents;
+    }
+
+    /**
+     * @param ms time after midnight, less than two days
+     */
+    private long costFromMidnight(int type, long ms) {
+        long days = ms / MS_PER_DAY;
+        long inDay = ms - days * MS_PER_DAY;
+        int bucket = (int) (inDay / BUCKET_MS);
+        int index = type * BUCKETS_PER_DAY + bucket;
+        return days * dayCosts[type] + costsBefore[index] + rates[index] * (inDay - bucket * BUCKET_MS);
+    }
+
+    private void addBand(String key, int type, String band, long rate) {
+        if (!band.matches("\\d{4}-\\d{4}")) {
+            throw new IllegalArgumentException("Band must be HHmm-HHmm:" + key);
+        }
+        int from = parseBucket(key, band.substring(0, 4));
+        int to = parseBucket(key, band.substring(5));
+        if (from == to) {
+            throw new IllegalArgumentException("Empty band:" + key);
+        }
+        for (int bucket = from; bucket != to; bucket = (bucket + 1) % BUCKETS_PER_DAY) {
+            int index = type * BUCKETS_PER_DAY + bucket;
+            if (rates[index] >= 0) {
+                throw new IllegalArgumentException("Overlapping band:" + key);
+            }
+            rates[index] = rate;
+        }
+    }
+
+    private static int parseBucket(String key, String time) {
+        int hours = Integer.parseInt(time.substring(0, 2));
+        int minutes = Integer.parseInt(time.substring(2));
+        if (hours > 24 || minutes >= 60 || minutes % BUCKET_MINUTES != 0 || (hours == 24 && minutes > 0)) {
+            throw new IllegalArgumentException("Band must start and end on a quarter hour:" + key);
+        }
+        return ((hours * 60 + minutes) / BUCKET_MINUTES) % BUCKETS_PER_DAY;
+    }
+
+    private static int parseType(String key, int dot) {
+        try {
+            return ParkingType.valueOf(key.substring(0, Math.max(dot, 0))).ordinal();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown tariff property:" + key, e);
+        }
+    }
+
+    private static long parseCents(String key, String value) {
+        try {
+            long cents = new BigDecimal(value).movePointRight(2).longValueExact();
+            if (cents < 0) {
+                throw new IllegalArgumentException("Negative amount:" + key);
+            }
+            return cents;
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Amount must have at most two decimals:" + key, e);
+        }
+    }
+
+    private static long parseNumber(String key, String value, long max) {
+        try {
+            long number = Long.parseLong(value);
+            if (number < 0 || number > max) {
+                throw new IllegalArgumentException(key + " must be between 0 and " + max);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number", e);
+        }
+    }
+}
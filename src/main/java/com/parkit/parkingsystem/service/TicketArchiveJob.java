@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ArchiveReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move the tickets closed for more than a given age from the ticket table to the partitioned ticket_archive table,
+ * so the gate queries keep reading a table of open and recent tickets. Each batch is its own short transaction,
+ * followed by a pause leaving the database to the gates, so the job runs while the parking is open.
+ */
+public class TicketArchiveJob {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveJob");
+
+    public static final int DEFAULT_MAX_AGE_DAYS = 90;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final long DEFAULT_PAUSE_MS = 10;
+    private static final long PROGRESS_INTERVAL_MS = 5000;
+
+    private final TicketDAO ticketDAO;
+    private final int batchSize;
+    private final long pauseMillis;
+
+    public TicketArchiveJob(TicketDAO ticketDAO, int batchSize, long pauseMillis) {
+        if (batchSize < 1 || pauseMillis < 0) {
+            throw new IllegalArgumentException("batchSize must be positive and pauseMillis not negative");
+        }
+        this.ticketDAO = ticketDAO;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Archive the tickets closed for more than parkit.archive.maxAgeDays days.
+     */
+    public static void launch() throws InterruptedException {
+        TicketDAO ticketDAO = new TicketDAO();
+        try {
+            new SchemaMigrator(ticketDAO.dataBaseConfig).migrate();
+        } catch (Exception e) {
+            logger.error("Unable to migrate database schema", e);
+        }
+        int maxAgeDays = Integer.getInteger("parkit.archive.maxAgeDays", DEFAULT_MAX_AGE_DAYS);
+        TicketArchiveJob job = new TicketArchiveJob(ticketDAO, Integer.getInteger("parkit.archive.batchSize", DEFAULT_BATCH_SIZE),
+                Long.getLong("parkit.archive.pauseMillis", DEFAULT_PAUSE_MS));
+        Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays));
+        System.out.println("Archiving tickets closed before " + before);
+        ArchiveReport report = job.run(before);
+        System.out.println("Archived " + report.getMoved() + " tickets in " + report.getBatches() + " batches and "
+                + report.getElapsedMillis() + " ms (" + report.getRowsPerSecond() + " rows/s)"
+                + (report.isComplete() ? "" : ", stopped on an error"));
+    }
+
+    /**
+     * Move batches of the tickets closed before the given date until none is left or a batch fails.
+     */
+    public ArchiveReport run(Date before) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long lastProgress = start;
+        long moved = 0;
+        int batches = 0;
+        while (true) {
+            int batch = ticketDAO.archiveClosedTickets(before, batchSize);
+            if (batch <= 0) {
+                return new ArchiveReport(moved, batches, System.currentTimeMillis() - start, batch == 0);
+            }
+            moved += batch;
+            batches++;
+            long now = System.currentTimeMillis();
+            if (now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                lastProgress = now;
+                System.out.println("Archiving: " + moved + " tickets moved, " + (moved * 1000 / Math.max(now - start, 1)) + " rows/s");
+            }
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+        }
+    }
+}
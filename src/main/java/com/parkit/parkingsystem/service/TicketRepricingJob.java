@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Recompute the price of the tickets closed during a period with the current {@link FareCalculatorService} rules,
+ * e.g. after a tariff change. Tickets are streamed from the database by the calling thread and handed in chunks
+ * to a fork-join pool, where each chunk is priced and its changed prices are stored in one batch.
+ * At most two chunks per worker are waiting or in progress, so memory use does not depend on the number of tickets.
+ */
+public class TicketRepricingJob {
+
+    private static final Logger logger = LogManager.getLogger("TicketRepricingJob");
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final long PROGRESS_INTERVAL_MS = 5000;
+
+    private final TicketStore ticketDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final int parallelism;
+    private final int chunkSize;
+
+    public TicketRepricingJob(TicketStore ticketDAO, FareCalculatorService fareCalculatorService, int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("parallelism and chunkSize must be positive");
+        }
+        this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Re-price with the parkit.tariff tariff the tickets closed from args[1] (included) to args[2] (excluded),
+     * both yyyy-MM-dd, by default all tickets closed until now.
+     */
+    public static void launch(String[] args) throws IOException, ParseException, InterruptedException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date from = (args.length > 1) ? dateFormat.parse(args[1]) : new Date(0);
+        Date to = (args.length > 2) ? dateFormat.parse(args[2]) : new Date();
+        TicketDAO ticketDAO = new TicketDAO();
+        try {
+            new SchemaMigrator(ticketDAO.dataBaseConfig).migrate();
+        } catch (Exception e) {
+            logger.error("Unable to migrate database schema", e);
+        }
+        // one pooled connection streams the tickets, the others store the prices
+        int poolSize = Integer.getInteger("parkit.db.pool.maxSize", DataBaseConfig.DEFAULT_POOL_MAX_SIZE);
+        int parallelism = Integer.getInteger("parkit.reprice.parallelism",
+                Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), poolSize - 1)));
+        TicketRepricingJob job = new TicketRepricingJob(ticketDAO, new FareCalculatorService(Tariff.fromSystemProperties()),
+                parallelism, Integer.getInteger("parkit.reprice.chunkSize", DEFAULT_CHUNK_SIZE));
+        System.out.println("Re-pricing tickets closed from " + from + " to " + to + " with " + parallelism + " workers");
+        RepricingReport report = job.run(from, to);
+        System.out.println("Re-priced " + report.getRead() + " tickets in " + report.getElapsedMillis() + " ms ("
+                + report.getRowsPerSecond() + " rows/s): " + report.getChanged() + " changed, " + report.getFailed() + " failed"
+                + (report.isComplete() ? "" : ", stopped on a read error"));
+    }
+
+    public RepricingReport run(Date from, Date to) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        ChunkReader reader = new ChunkReader(start);
+        boolean complete = ticketDAO.streamClosedTickets(from, to, reader);
+        reader.submitChunk();
+        reader.pool.shutdown();
+        reader.pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        return new RepricingReport(reader.read, reader.changed.get(), reader.failed.get(),
+                System.currentTimeMillis() - start, complete);
+    }
+
+    /**
+     * Gathers the streamed tickets into chunks priced by the pool, and prints the progress.
+     */
+    private class ChunkReader implements BiConsumer<Ticket, Boolean> {
+        private final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        private final Semaphore chunksInFlight = new Semaphore(2 * parallelism);
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final long start;
+        private List<Ticket> tickets = new ArrayList<>(chunkSize);
+        private boolean[] regulars = new boolean[chunkSize];
+        private long read;
+        private long lastProgress;
+
+        private ChunkReader(long start) {
+            this.start = start;
+            this.lastProgress = start;
+        }
+
+        @Override
+        public void accept(Ticket ticket, Boolean regular) {
+            regulars[tickets.size()] = regular;
+            tickets.add(ticket);
+            read++;
+            if (tickets.size() == chunkSize) {
+                submitChunk();
+                long now = System.currentTimeMillis();
+                if (now - lastProgress >= PROGRESS_INTERVAL_MS) {
+                    lastProgress = now;
+                    System.out.println("Re-pricing: " + read + " tickets read, " + changed.get() + " changed, "
+                            + (read * 1000 / Math.max(now - start, 1)) + " rows/s");
+                }
+            }
+        }
+
+        private void submitChunk() {
+            if (tickets.isEmpty()) {
+                return;
+            }
+            List<Ticket> chunk = tickets;
+            boolean[] chunkRegulars = regulars;
+            // the database stream waits while the workers are behind
+            chunksInFlight.acquireUninterruptibly();
+            pool.execute(() -> {
+                try {
+                    reprice(chunk, chunkRegulars);
+                } finally {
+                    chunksInFlight.release();
+                }
+            });
+            tickets = new ArrayList<>(chunkSize);
+            regulars = new boolean[chunkSize];
+        }
+
+        private void reprice(List<Ticket> chunk, boolean[] chunkRegulars) {
+            List<Ticket> changedTickets = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Ticket ticket = chunk.get(i);
+                double price = ticket.getPrice();
+                try {
+                    fareCalculatorService.calculateFare(ticket, chunkRegulars[i]);
+                } catch (Exception e) {
+                    logger.error("Unable to price ticket " + ticket.getId(), e);
+                    failed.incrementAndGet();
+                    continue;
+                }
+                if (Double.compare(price, ticket.getPrice()) != 0) {
+                    changedTickets.add(ticket);
+                }
+            }
+            if (changedTickets.isEmpty()) {
+                return;
+            }
+            if (ticketDAO.updateTicketPrices(changedTickets)) {
+                changed.addAndGet(changedTickets.size());
+            } else {
+                failed.addAndGet(changedTickets.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.model.SimulationReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.ScriptedInputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Load harness replaying synthetic traffic against the console flows of {@link ParkingService}: each virtual gate
+ * runs on its own thread with its own service and a {@link ScriptedInputReaderUtil} typing the vehicle type and
+ * registration number, all gates sharing the same stores.
+ * Vehicles arrive as a Poisson process, one car with probability carRatio, a returning customer with probability
+ * repeatRatio, and leave from the same gate after a stay drawn from a {@link StayLength} distribution.
+ * Arrivals keep their schedule when the gates fall behind, so the load does not ease off with the latency.
+ * The spots of the open tickets are tracked to count the tickets saved on a spot already taken.
+ */
+public class TrafficSimulator {
+
+    private static final Logger logger = LogManager.getLogger("TrafficSimulator");
+
+    public static final int DEFAULT_GATES = 4;
+    public static final int DEFAULT_DURATION_SECONDS = 60;
+    public static final double DEFAULT_ARRIVALS_PER_SECOND = 50;
+    public static final double DEFAULT_MEAN_STAY_SECONDS = 5;
+    public static final double DEFAULT_CAR_RATIO = 0.8;
+    public static final double DEFAULT_REPEAT_RATIO = 0.3;
+
+    // the console of the virtual gates, whose prompts nobody reads
+    private static final PrintStream DISCARDED_CONSOLE = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    /**
+     * Distribution of the stay lengths around their mean.
+     */
+    public enum StayLength {
+        FIXED {
+            @Override
+            double sample(Random random, double mean) {
+                return mean;
+            }
+        },
+        UNIFORM {
+            @Override
+            double sample(Random random, double mean) {
+                return 2 * mean * random.nextDouble();
+            }
+        },
+        EXPONENTIAL {
+            @Override
+            double sample(Random random, double mean) {
+                return exponential(random, mean);
+            }
+        };
+
+        abstract double sample(Random random, double mean);
+    }
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final TicketStore ticketStore;
+    private final FareCalculatorService fareCalculatorService;
+    private final int gates;
+    private final double arrivalsPerSecond;
+    private final double meanStaySeconds;
+    private final StayLength stayLength;
+    private final double carRatio;
+    private final double repeatRatio;
+
+    public TrafficSimulator(ParkingSpotStore parkingSpotStore, TicketStore ticketStore, FareCalculatorService fareCalculatorService,
+                            int gates, double arrivalsPerSecond, double meanStaySeconds, StayLength stayLength,
+                            double carRatio, double repeatRatio) {
+        if (gates < 1 || arrivalsPerSecond <= 0 || meanStaySeconds < 0) {
+            throw new IllegalArgumentException("gates and arrivalsPerSecond must be positive, meanStaySeconds not negative");
+        }
+        if (carRatio < 0 || carRatio > 1 || repeatRatio < 0 || repeatRatio > 1) {
+            throw new IllegalArgumentException("carRatio and repeatRatio must be between 0 and 1");
+        }
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+        this.fareCalculatorService = fareCalculatorService;
+        this.gates = gates;
+        this.arrivalsPerSecond = arrivalsPerSecond;
+        this.meanStaySeconds = meanStaySeconds;
+        this.stayLength = stayLength;
+        this.carRatio = carRatio;
+        this.repeatRatio = repeatRatio;
+    }
+
+    /**
+     * Simulate with the parkit.simulate.* system properties against the storage of {@link ParkingSystem},
+     * in memory with -Dparkit.storage=memory or else the MySQL database, which should be a test one.
+     */
+    public static void launch() throws IOException, InterruptedException {
+        ParkingSystem parkingSystem = ParkingSystem.fromSystemProperties(new ScriptedInputReaderUtil());
+        int gates = Integer.getInteger("parkit.simulate.gates", DEFAULT_GATES);
+        int durationSeconds = Integer.getInteger("parkit.simulate.durationSeconds", DEFAULT_DURATION_SECONDS);
+        TrafficSimulator simulator = new TrafficSimulator(parkingSystem.getParkingSpotStore(), parkingSystem.getTicketStore(),
+                new FareCalculatorService(Tariff.fromSystemProperties()), gates,
+                doubleProperty("parkit.simulate.arrivalsPerSecond", DEFAULT_ARRIVALS_PER_SECOND),
+                doubleProperty("parkit.simulate.meanStaySeconds", DEFAULT_MEAN_STAY_SECONDS),
+                StayLength.valueOf(System.getProperty("parkit.simulate.stay", StayLength.EXPONENTIAL.name()).toUpperCase(Locale.ROOT)),
+                doubleProperty("parkit.simulate.carRatio", DEFAULT_CAR_RATIO),
+                doubleProperty("parkit.simulate.repeatRatio", DEFAULT_REPEAT_RATIO));
+        System.out.println("Simulating " + gates + " gates for " + durationSeconds + " s");
+        SimulationReport report = simulator.run(durationSeconds * 1000L);
+        parkingSystem.shutdown();
+        System.out.println("Simulated " + report.getArrivals() + " arrivals and " + (report.getExits() + report.getFailedExits())
+                + " departures in " + report.getElapsedMillis() + " ms (" + report.getOperationsPerSecond() + " operations/s)");
+        System.out.println("Entries: " + report.getEntries() + ", allocation failures: " + report.getAllocationFailures()
+                + ", double allocations: " + report.getDoubleAllocations());
+        System.out.println("Exits: " + report.getExits() + ", failed exits: " + report.getFailedExits());
+        System.out.println(String.format(Locale.ROOT, "Entry latency: p50 %.0f us, p99 %.0f us, max %.0f us",
+                report.getEntryLatency().getP50Micros(), report.getEntryLatency().getP99Micros(), report.getEntryLatency().getMaxMicros()));
+        System.out.println(String.format(Locale.ROOT, "Exit latency: p50 %.0f us, p99 %.0f us, max %.0f us",
+                report.getExitLatency().getP50Micros(), report.getExitLatency().getP99Micros(), report.getExitLatency().getMaxMicros()));
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return (value == null) ? defaultValue : Double.parseDouble(value);
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -mean * Math.log(1 - random.nextDouble());
+    }
+
+    /**
+     * Run the gates for durationMillis, then let out the vehicles still parked; those last exits are not reported.
+     * The console output of the gates is discarded.
+     */
+    public SimulationReport run(long durationMillis) throws InterruptedException {
+        Run simulation = new Run();
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int gate = 1; gate <= gates; gate++) {
+            VirtualGate virtualGate = new VirtualGate(simulation, gate, start, start + durationMillis * 1_000_000L);
+            Thread thread = new Thread(virtualGate, "virtual-gate-" + gate);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new SimulationReport(simulation.arrivals.sum(), simulation.entries.sum(), simulation.allocationFailures.sum(),
+                simulation.doubleAllocations.sum(), simulation.exits.sum(), simulation.failedExits.sum(),
+                (System.nanoTime() - start) / 1_000_000, simulation.entryLatency.getTotal(), simulation.exitLatency.getTotal());
+    }
+
+    /**
+     * State shared by the gates of one run.
+     */
+    private static class Run {
+        private final LongAdder arrivals = new LongAdder();
+        private final LongAdder entries = new LongAdder();
+        private final LongAdder allocationFailures = new LongAdder();
+        private final LongAdder doubleAllocations = new LongAdder();
+        private final LongAdder exits = new LongAdder();
+        private final LongAdder failedExits = new LongAdder();
+        private final LatencyHistogram entryLatency = new LatencyHistogram();
+        private final LatencyHistogram exitLatency = new LatencyHistogram();
+        // vehicles that left, to come back as repeat customers
+        private final ConcurrentLinkedQueue<String> leftVehicles = new ConcurrentLinkedQueue<>();
+        // vehicle of the open ticket on each spot
+        private final ConcurrentHashMap<Integer, String> spotHolders = new ConcurrentHashMap<>();
+    }
+
+    private static class Departure implements Comparable<Departure> {
+        private final long time;
+        private final String vehicleRegNumber;
+
+        private Departure(long time, String vehicleRegNumber) {
+            this.time = time;
+            this.vehicleRegNumber = vehicleRegNumber;
+        }
+
+        @Override
+        public int compareTo(Departure other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
+    private class VirtualGate implements Runnable {
+        private final Run simulation;
+        private final int gate;
+        private final long start;
+        private final long end;
+        private final Random random = new Random();
+        private final ScriptedInputReaderUtil inputReaderUtil = new ScriptedInputReaderUtil();
+        private final CheckingTicketStore checkingTicketStore;
+        private final ParkingService parkingService;
+        private final PriorityQueue<Departure> departures = new PriorityQueue<>();
+        private int vehicleCount;
+
+        private VirtualGate(Run simulation, int gate, long start, long end) {
+            this.simulation = simulation;
+            this.gate = gate;
+            this.start = start;
+            this.end = end;
+            this.checkingTicketStore = new CheckingTicketStore(ticketStore, simulation);
+            this.parkingService = new ParkingService(inputReaderUtil, parkingSpotStore, checkingTicketStore, fareCalculatorService);
+            this.parkingService.console = DISCARDED_CONSOLE;
+        }
+
+        @Override
+        public void run() {
+            double meanArrivalNanos = gates * 1e9 / arrivalsPerSecond;
+            long nextArrival = start + (long) exponential(random, meanArrivalNanos);
+            while (true) {
+                Departure departure = departures.peek();
+                long nextEvent = (departure == null) ? nextArrival : Math.min(nextArrival, departure.time);
+                if (nextEvent >= end) {
+                    break;
+                }
+                long now = System.nanoTime();
+                if (nextEvent > now) {
+                    LockSupport.parkNanos(nextEvent - now);
+                } else if (departure != null && departure.time <= nextArrival) {
+                    departures.poll();
+                    leave(departure.vehicleRegNumber, true);
+                } else {
+                    arrive();
+                    nextArrival += (long) exponential(random, meanArrivalNanos);
+                }
+            }
+            Departure departure;
+            while ((departure = departures.poll()) != null) {
+                leave(departure.vehicleRegNumber, false);
+            }
+        }
+
+        private void arrive() {
+            String vehicleRegNumber = null;
+            if (random.nextDouble() < repeatRatio) {
+                vehicleRegNumber = simulation.leftVehicles.poll();
+            }
+            if (vehicleRegNumber == null) {
+                // distinct once normalised, and within the 10 characters of a plate
+                vehicleRegNumber = "S" + gate + "V" + Integer.toString(++vehicleCount, 36).toUpperCase();
+            }
+            ParkingType parkingType = (random.nextDouble() < carRatio) ? ParkingType.CAR : ParkingType.BIKE;
+            inputReaderUtil.script((parkingType == ParkingType.CAR) ? 1 : 2, vehicleRegNumber);
+            long startEntry = System.nanoTime();
+            parkingService.processIncomingVehicle();
+            simulation.entryLatency.record(System.nanoTime() - startEntry);
+            simulation.arrivals.increment();
+            if (checkingTicketStore.takeSavedTicket() == null) {
+                simulation.allocationFailures.increment();
+                return;
+            }
+            simulation.entries.increment();
+            long stayNanos = (long) (stayLength.sample(random, meanStaySeconds) * 1e9);
+            departures.add(new Departure(System.nanoTime() + stayNanos, vehicleRegNumber));
+        }
+
+        private void leave(String vehicleRegNumber, boolean reported) {
+            inputReaderUtil.script(vehicleRegNumber);
+            long startExit = System.nanoTime();
+            parkingService.processExitingVehicle();
+            long latency = System.nanoTime() - startExit;
+            boolean closed = checkingTicketStore.takeClosedTicket() != null;
+            if (closed) {
+                simulation.leftVehicles.add(vehicleRegNumber);
+            } else {
+                logger.error("Vehicle " + vehicleRegNumber + " could not leave");
+            }
+            if (reported) {
+                simulation.exitLatency.record(latency);
+                (closed ? simulation.exits : simulation.failedExits).increment();
+            }
+        }
+    }
+
+    /**
+     * A {@link TicketStore} keeping the last ticket its gate saved or closed, and the spot of each open ticket:
+     * a ticket saved on a spot already held is a double allocation. The tickets are closed before their spot
+     * is freed, so a spot is never held by a vehicle that left.
+     */
+    private static class CheckingTicketStore implements TicketStore {
+        private final TicketStore ticketStore;
+        private final Run simulation;
+        private Ticket savedTicket;
+        private Ticket closedTicket;
+
+        private CheckingTicketStore(TicketStore ticketStore, Run simulation) {
+            this.ticketStore = ticketStore;
+            this.simulation = simulation;
+        }
+
+        private Ticket takeSavedTicket() {
+            Ticket ticket = savedTicket;
+            savedTicket = null;
+            return ticket;
+        }
+
+        private Ticket takeClosedTicket() {
+            Ticket ticket = closedTicket;
+            closedTicket = null;
+            return ticket;
+        }
+
+        @Override
+        public boolean saveTicket(Ticket ticket) {
+            if (!ticketStore.saveTicket(ticket)) {
+                return false;
+            }
+            savedTicket = ticket;
+            String holder = simulation.spotHolders.putIfAbsent(ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber());
+            if (holder != null) {
+                logger.error("Spot " + ticket.getParkingSpot().getId() + " given to " + ticket.getVehicleRegNumber()
+                        + " while held by " + holder);
+                simulation.doubleAllocations.increment();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean saveTickets(List<Ticket> tickets) {
+            return ticketStore.saveTickets(tickets);
+        }
+
+        @Override
+        public Ticket getTicket(String vehicleRegNumber) {
+            return ticketStore.getTicket(vehicleRegNumber);
+        }
+
+        @Override
+        public Ticket getOpenTicket(String vehicleRegNumber) {
+            return ticketStore.getOpenTicket(vehicleRegNumber);
+        }
+
+        @Override
+        public List<Ticket> getOpenTickets() {
+            return ticketStore.getOpenTickets();
+        }
+
+        @Override
+        public boolean isParked(String vehicleRegNumber) {
+            return ticketStore.isParked(vehicleRegNumber);
+        }
+
+        @Override
+        public boolean updateTicket(Ticket ticket) {
+            if (!ticketStore.updateTicket(ticket)) {
+                return false;
+            }
+            if (ticket.getOutTime() != null) {
+                closedTicket = ticket;
+                simulation.spotHolders.remove(ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber());
+            }
+            return true;
+        }
+
+        @Override
+        public Integer getNbTicket(String vehicleRegNumber) {
+            return ticketStore.getNbTicket(vehicleRegNumber);
+        }
+
+        @Override
+        public boolean streamClosedTickets(Date from, Date to, BiConsumer<Ticket, Boolean> handler) {
+            return ticketStore.streamClosedTickets(from, to, handler);
+        }
+
+        @Override
+        public boolean updateTicketPrices(List<Ticket> tickets) {
+            return ticketStore.updateTicketPrices(tickets);
+        }
+    }
+}
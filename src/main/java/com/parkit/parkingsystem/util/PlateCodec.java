@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Vehicle registration numbers packed into a long, so per-vehicle data can be kept without String keys.
+ * A plate is normalised first: letters upper cased, spaces and dashes dropped. The at most
+ * {@value #MAX_LENGTH} letters and digits left take 6 bits each, 0 marking the unused high bits,
+ * so distinct normalised plates always get distinct codes and a code decodes back to its plate.
+ */
+public final class PlateCodec {
+
+    /**
+     * The code of the plates that cannot be packed: empty, longer than {@value #MAX_LENGTH}
+     * or holding other characters than letters, digits, spaces and dashes.
+     */
+    public static final long NONE = 0L;
+
+    public static final int MAX_LENGTH = 10;
+
+    private static final int BITS = 6;
+    private static final int DIGITS = 10;
+
+    private PlateCodec() {
+    }
+
+    /**
+     * @return the plate upper cased without spaces and dashes, the same String when it already is, null for null
+     */
+    public static String normalise(String vehicleRegNumber) {
+        if (vehicleRegNumber == null || isNormalised(vehicleRegNumber)) {
+            return vehicleRegNumber;
+        }
+        StringBuilder normalised = new StringBuilder(vehicleRegNumber.length());
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = vehicleRegNumber.charAt(i);
+            if (c != ' ' && c != '-') {
+                normalised.append(Character.toUpperCase(c));
+            }
+        }
+        return normalised.toString();
+    }
+
+    private static boolean isNormalised(String vehicleRegNumber) {
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = vehicleRegNumber.charAt(i);
+            if (c == ' ' || c == '-' || Character.toUpperCase(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Normalise and pack a plate without allocating.
+     * @return the code of the plate, {@link #NONE} when it cannot be packed
+     */
+    public static long encode(CharSequence vehicleRegNumber) {
+        if (vehicleRegNumber == null) {
+            return NONE;
+        }
+        long code = NONE;
+        int length = 0;
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = vehicleRegNumber.charAt(i);
+            int symbol;
+            if (c >= '0' && c <= '9') {
+                symbol = c - '0' + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                symbol = c - 'A' + DIGITS + 1;
+            } else if (c >= 'a' && c <= 'z') {
+                symbol = c - 'a' + DIGITS + 1;
+            } else if (c == ' ' || c == '-') {
+                continue;
+            } else {
+                return NONE;
+            }
+            if (++length > MAX_LENGTH) {
+                return NONE;
+            }
+            code = (code << BITS) | symbol;
+        }
+        return code;
+    }
+
+    /**
+     * @return the normalised plate of a code, null for {@link #NONE}
+     * @throws IllegalArgumentException when the code was not made by {@link #encode(CharSequence)}
+     */
+    public static String decode(long code) {
+        if (code == NONE) {
+            return null;
+        }
+        if (code < 0 || code >>> (BITS * MAX_LENGTH) != 0) {
+            throw new IllegalArgumentException("Not a plate code: " + code);
+        }
+        char[] plate = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        for (long rest = code; rest != 0; rest >>>= BITS) {
+            int symbol = (int) (rest & ((1 << BITS) - 1));
+            if (symbol == 0 || symbol > DIGITS + 26) {
+                throw new IllegalArgumentException("Not a plate code: " + code);
+            }
+            plate[--start] = (symbol <= DIGITS) ? (char) ('0' + symbol - 1) : (char) ('A' + symbol - DIGITS - 1);
+        }
+        return new String(plate, start, MAX_LENGTH - start);
+    }
+}
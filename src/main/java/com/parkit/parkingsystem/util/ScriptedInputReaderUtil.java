@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An {@link InputReaderUtil} reading its answers from a script instead of the console,
+ * so a program can drive the console flows of a gate. Not thread-safe: one per gate.
+ */
+public class ScriptedInputReaderUtil extends InputReaderUtil {
+
+    private final Deque<Object> answers = new ArrayDeque<>();
+
+    /**
+     * Replace the answers left unread, e.g. by a refused entry, with the next ones:
+     * an Integer for a menu selection, a String for a vehicle registration number.
+     */
+    public void script(Object... nextAnswers) {
+        answers.clear();
+        for (Object answer : nextAnswers) {
+            answers.add(answer);
+        }
+    }
+
+    @Override
+    public int readSelection() {
+        Object answer = answers.poll();
+        return (answer instanceof Integer) ? (Integer) answer : -1;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        Object answer = answers.poll();
+        if (!(answer instanceof String) || ((String) answer).trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid input provided");
+        }
+        return (String) answer;
+    }
+}
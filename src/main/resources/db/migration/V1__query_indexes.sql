@@ -0,0 +1,6 @@
+-- GET_TICKET and GET_TICKET_FREQ filter on the vehicle, GET_TICKET takes its latest IN_TIME,
+-- GET_TICKET_FREQ counts rows with an OUT_TIME: both are answered from this index alone
+create index IDX_TICKET_VEHICLE on ticket(VEHICLE_REG_NUMBER, IN_TIME, OUT_TIME);
+
+-- GET_NEXT_PARKING_SPOT and CLAIM_AVAILABLE_PARKING_SPOTS read the lowest free spots of a type in order
+create index IDX_PARKING_FREE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
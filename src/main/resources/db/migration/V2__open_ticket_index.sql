@@ -0,0 +1,2 @@
+-- GET_OPEN_TICKETS only reads the few tickets without an OUT_TIME
+create index IDX_TICKET_OPEN on ticket(OUT_TIME);
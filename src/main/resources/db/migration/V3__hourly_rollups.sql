@@ -0,0 +1,12 @@
+-- closed tickets, revenue and spot changes of each hour and type, added to by the gates as they happen,
+-- so reports never scan the ticket table. HOUR is the start of the hour, OCCUPIED_SECONDS the parked time
+-- of the tickets closed so far spread over the hours of their stay.
+create table rollup_hourly(
+ HOUR DATETIME NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ CLOSED_TICKETS int NOT NULL,
+ REVENUE double NOT NULL,
+ SPOTS_TAKEN int NOT NULL,
+ SPOTS_FREED int NOT NULL,
+ OCCUPIED_SECONDS bigint NOT NULL,
+ PRIMARY KEY (HOUR, TYPE));
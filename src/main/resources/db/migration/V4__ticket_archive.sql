@@ -0,0 +1,30 @@
+-- closed tickets older than parkit.archive.maxAgeDays, moved out of ticket by TicketArchiveJob so the gate queries
+-- only read open and recent tickets. Partitioned by the year they were closed: the closed tickets re-priced or
+-- rolled up of a period are read from its partitions only. Partitioned tables have no foreign key, PARKING_NUMBER
+-- was checked in ticket. Reorganize pmax when a year starts to be archived.
+create table ticket_archive(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PRIMARY KEY (ID, OUT_TIME),
+ KEY IDX_TICKET_ARCHIVE_VEHICLE (VEHICLE_REG_NUMBER, IN_TIME),
+ KEY IDX_TICKET_ARCHIVE_OUT (OUT_TIME))
+ partition by range (year(OUT_TIME)) (
+ partition p2019 values less than (2020),
+ partition p2020 values less than (2021),
+ partition p2021 values less than (2022),
+ partition p2022 values less than (2023),
+ partition p2023 values less than (2024),
+ partition p2024 values less than (2025),
+ partition p2025 values less than (2026),
+ partition p2026 values less than (2027),
+ partition p2027 values less than (2028),
+ partition pmax values less than maxvalue);
+
+-- archived tickets per vehicle, added in the transaction that moves them, so GET_TICKET_FREQ never reads the archive
+create table ticket_archive_count(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ ARCHIVED_TICKETS int NOT NULL);
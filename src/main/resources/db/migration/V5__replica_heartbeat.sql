@@ -0,0 +1,6 @@
+-- beaten by the primary at most every parkit.db.replica.checkIntervalMillis, read on each replica:
+-- how old the replicated BEAT is tells how far behind the replica is
+create table replica_heartbeat(
+ ID int PRIMARY KEY,
+ BEAT DATETIME(3) NOT NULL);
+insert into replica_heartbeat(ID, BEAT) values(1, now(3));
@@ -0,0 +1,22 @@
+-- the gates store and look up plates normalised by PlateCodec since the frequency cache is keyed by plate code:
+-- upper case, without spaces and dashes. Normalise the plates stored before, so their vehicles can still exit and
+-- keep their discount. The binary comparison also catches plates differing only by case.
+update ticket set VEHICLE_REG_NUMBER = upper(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''))
+ where binary VEHICLE_REG_NUMBER <> binary upper(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''));
+
+update ticket_archive set VEHICLE_REG_NUMBER = upper(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''))
+ where binary VEHICLE_REG_NUMBER <> binary upper(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''));
+
+-- plates written differently may normalise to the same key: rebuild the counts with the colliding rows summed
+create table ticket_archive_count_normalised(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ ARCHIVED_TICKETS int NOT NULL);
+
+insert into ticket_archive_count_normalised(VEHICLE_REG_NUMBER, ARCHIVED_TICKETS)
+ select upper(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', '')), sum(ARCHIVED_TICKETS)
+ from ticket_archive_count
+ group by upper(replace(replace(VEHICLE_REG_NUMBER, ' ', ''), '-', ''));
+
+rename table ticket_archive_count to ticket_archive_count_old, ticket_archive_count_normalised to ticket_archive_count;
+
+drop table ticket_archive_count_old;
@@ -0,0 +1,195 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private final AtomicInteger createdConnections = new AtomicInteger();
+
+    private Connection newConnection() throws SQLException {
+        createdConnections.incrementAndGet();
+        Connection con = mock(Connection.class);
+        lenient().when(con.isValid(anyInt())).thenReturn(true);
+        lenient().when(con.getAutoCommit()).thenReturn(true);
+        lenient().when(con.prepareStatement(anyString(), anyInt())).thenAnswer(invocation -> {
+            PreparedStatement ps = mock(PreparedStatement.class);
+            lenient().when(ps.getConnection()).thenReturn(con);
+            return ps;
+        });
+        return con;
+    }
+
+    @Test
+    public void releasedConnectionIsReused() throws SQLException {
+        // GIVEN a pool with one connection borrowed then released
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 2, 100, 60000, 1, 0);
+        Connection first = pool.borrowConnection();
+        pool.releaseConnection(first);
+
+        // WHEN borrowing again
+        Connection second = pool.borrowConnection();
+
+        // THEN the same physical connection is handed out
+        assertSame(first, second);
+        assertEquals(1, createdConnections.get());
+        assertEquals(1, pool.getLiveCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolExhausted() throws SQLException {
+        // GIVEN a pool of one connection already borrowed
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 1, 50, 60000, 1, 0);
+        pool.borrowConnection();
+
+        // THEN a second borrow times out
+        assertThrows(SQLTimeoutException.class, pool::borrowConnection);
+        assertEquals(1, pool.getLiveCount());
+        assertEquals(0, pool.getWaitingCount());
+    }
+
+    @Test
+    public void waitingBorrowerGetsReleasedConnection() throws Exception {
+        // GIVEN a pool of one connection already borrowed
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 1, 5000, 60000, 1, 0);
+        Connection borrowed = pool.borrowConnection();
+        CountDownLatch started = new CountDownLatch(1);
+        Connection[] received = new Connection[1];
+        Thread waiter = new Thread(() -> {
+            started.countDown();
+            try {
+                received[0] = pool.borrowConnection();
+            } catch (SQLException e) {
+                fail(e);
+            }
+        });
+
+        // WHEN another thread waits and the connection is released
+        waiter.start();
+        started.await();
+        while (pool.getWaitingCount() == 0) {
+            Thread.yield();
+        }
+        pool.releaseConnection(borrowed);
+        waiter.join(5000);
+
+        // THEN the waiter receives it
+        assertSame(borrowed, received[0]);
+        assertEquals(1, createdConnections.get());
+    }
+
+    @Test
+    public void idleConnectionIsClosedAfterTimeout() throws SQLException {
+        // GIVEN a pool whose idle connections expire immediately
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 2, 100, 0, 1, 0);
+        Connection first = pool.borrowConnection();
+        pool.releaseConnection(first);
+
+        // WHEN borrowing again
+        Connection second = pool.borrowConnection();
+
+        // THEN the expired connection is closed and replaced
+        verify(first).close();
+        assertNotSame(first, second);
+        assertEquals(1, pool.getLiveCount());
+    }
+
+    @Test
+    public void closedConnectionIsNotReturnedToPool() throws SQLException {
+        // GIVEN a borrowed connection closed by its user
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 2, 100, 60000, 1, 0);
+        Connection con = pool.borrowConnection();
+        when(con.isClosed()).thenReturn(true);
+
+        // WHEN released
+        pool.releaseConnection(con);
+
+        // THEN it is discarded
+        assertEquals(0, pool.getLiveCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void openTransactionIsRolledBackOnRelease() throws SQLException {
+        // GIVEN a borrowed connection left in a transaction
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 1, 100, 60000, 1, 0);
+        Connection con = pool.borrowConnection();
+        when(con.getAutoCommit()).thenReturn(false);
+
+        // WHEN released
+        pool.releaseConnection(con);
+
+        // THEN the transaction is rolled back and auto-commit restored
+        verify(con).rollback();
+        verify(con).setAutoCommit(true);
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void statementIsReusedOnSameConnection() throws SQLException {
+        // GIVEN a pool with a statement cache and a statement prepared then released
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 1, 100, 60000, 1, 8);
+        Connection con = pool.borrowConnection();
+        PreparedStatement first = pool.prepareStatement(con, "select 1");
+        pool.releaseStatement(first);
+
+        // WHEN preparing the same SQL again
+        PreparedStatement second = pool.prepareStatement(con, "select 1");
+
+        // THEN the cached statement is handed out again without being closed
+        assertSame(first, second);
+        verify(first, never()).close();
+        verify(first).clearParameters();
+        verify(first).clearBatch();
+        verify(con, times(1)).prepareStatement(anyString(), anyInt());
+        assertEquals(1, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void statementAlreadyInUseIsNotShared() throws SQLException {
+        // GIVEN a cached statement still checked out
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 1, 100, 60000, 1, 8);
+        Connection con = pool.borrowConnection();
+        PreparedStatement first = pool.prepareStatement(con, "select 1");
+
+        // WHEN the same SQL is prepared again before release
+        PreparedStatement second = pool.prepareStatement(con, "select 1");
+        pool.releaseStatement(second);
+        pool.releaseStatement(first);
+
+        // THEN a separate statement is used and closed on release
+        assertNotSame(first, second);
+        verify(second).close();
+        verify(first, never()).close();
+        assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        // GIVEN a statement cache of one entry
+        ConnectionPool pool = new ConnectionPool(this::newConnection, 1, 100, 60000, 1, 1);
+        Connection con = pool.borrowConnection();
+        PreparedStatement first = pool.prepareStatement(con, "select 1");
+        pool.releaseStatement(first);
+
+        // WHEN another SQL is prepared
+        PreparedStatement second = pool.prepareStatement(con, "select 2");
+        pool.releaseStatement(second);
+
+        // THEN the first statement is closed
+        verify(first).close();
+        verify(second, never()).close();
+    }
+}
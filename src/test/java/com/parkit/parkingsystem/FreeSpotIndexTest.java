@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.FreeSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreeSpotIndexTest {
+
+    private FreeSpotIndex freeSpotIndex;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        // Same lot as Data.sql, spot 1 taken
+        freeSpotIndex = FreeSpotIndex.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true),
+                new ParkingSpot(5, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    public void nextFreeReturnsLowestFreeSpotOfType() {
+        assertEquals(2, freeSpotIndex.nextFree(ParkingType.CAR));
+        assertEquals(4, freeSpotIndex.nextFree(ParkingType.BIKE));
+        assertEquals(2, freeSpotIndex.countFree(ParkingType.CAR));
+    }
+
+    @Test
+    public void claimReservesSpotUntilReleased() {
+        // WHEN claiming every car spot
+        int first = freeSpotIndex.claim(ParkingType.CAR);
+        int second = freeSpotIndex.claim(ParkingType.CAR);
+
+        // THEN the lot is full for cars
+        assertEquals(2, first);
+        assertEquals(3, second);
+        assertEquals(0, freeSpotIndex.claim(ParkingType.CAR));
+        assertEquals(0, freeSpotIndex.nextFree(ParkingType.CAR));
+
+        // AND a released spot can be claimed again
+        freeSpotIndex.release(new ParkingSpot(first, ParkingType.CAR, true));
+        assertEquals(first, freeSpotIndex.claim(ParkingType.CAR));
+    }
+
+    @Test
+    public void claimGivenSpotFailsWhenTaken() {
+        ParkingSpot parkingSpot = new ParkingSpot(4, ParkingType.BIKE, false);
+
+        assertTrue(freeSpotIndex.claim(parkingSpot));
+        assertFalse(freeSpotIndex.claim(parkingSpot));
+        assertFalse(freeSpotIndex.isFree(parkingSpot));
+        assertEquals(5, freeSpotIndex.nextFree(ParkingType.BIKE));
+    }
+
+    @Test
+    public void spotBeyondLoadedLotIsNotCovered() {
+        // GIVEN a spot numbered above every spot of the loaded lot
+        ParkingSpot parkingSpot = new ParkingSpot(1000, ParkingType.CAR, true);
+
+        // THEN the index refuses it instead of failing
+        assertFalse(freeSpotIndex.covers(parkingSpot));
+        assertFalse(freeSpotIndex.release(parkingSpot));
+        assertFalse(freeSpotIndex.claim(parkingSpot));
+        assertFalse(freeSpotIndex.isFree(parkingSpot));
+        assertEquals(2, freeSpotIndex.countFree(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentClaimsNeverHandOutSameSpot() throws Exception {
+        // GIVEN a lot of 10000 free car spots
+        int spots = 10000;
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= spots; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        FreeSpotIndex index = FreeSpotIndex.load(parkingSpots);
+        Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+
+        // WHEN 8 gates claim and sometimes release spots until the lot is full
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int gate = 0; gate < 8; gate++) {
+            results.add(gates.submit(() -> {
+                int count = 0;
+                int number;
+                while ((number = index.claim(ParkingType.CAR)) > 0) {
+                    if (number % 7 == 0 && claimed.add(-number)) {
+                        // exit once, the spot goes back to the pool
+                        index.release(new ParkingSpot(number, ParkingType.CAR, true));
+                        continue;
+                    }
+                    assertTrue(claimed.add(number), "spot " + number + " handed out twice");
+                    count++;
+                }
+                return count;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        gates.shutdown();
+
+        // THEN every spot was handed out exactly once
+        assertEquals(spots, total);
+        assertEquals(0, index.countFree(ParkingType.CAR));
+    }
+}
@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.event.EventLoggedParkingSpotStore;
+import com.parkit.parkingsystem.event.EventLoggedTicketStore;
+import com.parkit.parkingsystem.event.GateEvent;
+import com.parkit.parkingsystem.event.GateEventLog;
+import com.parkit.parkingsystem.event.GateProjections;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.ReplayReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateEventReplay;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateEventLogTest {
+
+    private static final long DAY = 24 * 3600 * 1000L;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("gate-events");
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private GateEventLog open() throws IOException {
+        return new GateEventLog(directory, ZoneOffset.UTC);
+    }
+
+    private static GateEvent spotTaken(long time, int parkingNumber) {
+        return GateEvent.spotTaken(time, new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+    }
+
+    @Test
+    public void gateStateIsRebuiltFromItsEvents() throws IOException {
+        // GIVEN gates recording their changes: two vehicles in, one out
+        GateEventLog eventLog = open();
+        ParkingService parkingService = new ParkingService(null,
+                new EventLoggedParkingSpotStore(new InMemoryParkingSpotStore(2, 2), eventLog),
+                new EventLoggedTicketStore(new InMemoryTicketStore(), eventLog));
+        parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        parkingService.processIncomingVehicle("GHIJKL", ParkingType.BIKE);
+        Ticket closed = parkingService.processExitingVehicle("ABCDEF").getTicket();
+        eventLog.close();
+
+        // WHEN opening the log again
+        GateEventLog reopened = open();
+        List<GateEvent> events = new ArrayList<>();
+        GateEventLog.replay(GateEventLog.listFiles(directory).get(0), events::add);
+
+        // THEN its projections hold the state the events led to, the exit with its fare
+        assertEquals(Long.valueOf(6), reopened.query(GateProjections::getEventCount));
+        assertEquals(Integer.valueOf(0), reopened.query(projections -> projections.getOccupied(ParkingType.CAR)));
+        assertEquals(Integer.valueOf(1), reopened.query(projections -> projections.getOccupied(ParkingType.BIKE)));
+        assertNull(reopened.query(projections -> projections.getOpenTicket("ABCDEF")));
+        assertEquals(ParkingType.BIKE, reopened.query(projections -> projections.getOpenTicket("GHIJKL")).getParkingSpot().getParkingType());
+        assertEquals(Integer.valueOf(1), reopened.query(projections -> projections.getClosedTicketCount("ABCDEF")));
+        GateEvent exit = events.get(4);
+        assertEquals(GateEvent.Type.TICKET_CLOSED, exit.getType());
+        assertEquals(closed.getOutTime().getTime(), exit.getOutTime());
+        assertEquals(closed.getPrice(), exit.getPrice());
+        assertEquals(GateEvent.Type.SPOT_FREED, events.get(5).getType());
+        reopened.close();
+    }
+
+    @Test
+    public void tornRecordIsDroppedBeforeAppending() throws IOException {
+        // GIVEN a log whose last record was torn by a crash
+        GateEventLog eventLog = open();
+        long now = System.currentTimeMillis();
+        eventLog.append(spotTaken(now, 1));
+        eventLog.append(spotTaken(now, 2));
+        eventLog.close();
+        Path file = GateEventLog.listFiles(directory).get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // WHEN opening it and recording another event
+        GateEventLog reopened = open();
+        long replayed = reopened.query(GateProjections::getEventCount);
+        reopened.append(spotTaken(now, 3));
+        reopened.close();
+
+        // THEN the torn event is lost, the new one is read after the first
+        assertEquals(1, replayed);
+        List<GateEvent> events = new ArrayList<>();
+        assertEquals(2, GateEventLog.replay(file, events::add));
+        assertEquals(3, events.get(1).getParkingNumber());
+    }
+
+    @Test
+    public void daysAreReplayedInOrder() throws IOException {
+        // GIVEN a vehicle in on one day and out the next
+        GateEventLog eventLog = open();
+        long firstDay = LocalDate.of(2026, 3, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(firstDay + 1000));
+        eventLog.append(GateEvent.ticketOpened(firstDay + 1000, ticket));
+        ticket.setOutTime(new Date(firstDay + DAY + 1000));
+        ticket.setPrice(36);
+        eventLog.append(GateEvent.ticketClosed(firstDay + DAY + 1000, ticket));
+        eventLog.close();
+
+        // WHEN replaying the files of the directory
+        GateProjections projections = new GateProjections();
+        ReplayReport report = GateEventReplay.replay(GateEventLog.listFiles(directory), projections);
+
+        // THEN each day has its file, and the ticket opened the first day is closed
+        assertTrue(Files.exists(GateEventLog.fileOf(directory, LocalDate.of(2026, 3, 2))));
+        assertEquals(2, report.getFiles());
+        assertEquals(2, report.getEvents());
+        assertEquals(0, projections.getOpenTicketCount());
+        assertEquals(1, projections.getClosedTicketCount("ABCDEF"));
+    }
+}
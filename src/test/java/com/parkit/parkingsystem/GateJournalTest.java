@@ -0,0 +1,189 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.journal.GateRecovery;
+import com.parkit.parkingsystem.journal.GateState;
+import com.parkit.parkingsystem.journal.JournaledParkingSpotStore;
+import com.parkit.parkingsystem.journal.JournaledTicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.VehicleEntry;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateJournalTest {
+
+    private static final long HOUR = 3600 * 1000L;
+    // header, then 12 bytes per spot record
+    private static final int FIRST_RECORD = 16;
+    private static final int SPOT_RECORD_SIZE = 12;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("gate-journal");
+    }
+
+    @AfterEach
+    public void tearDownPerTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static ParkingSpot spot(int number, ParkingType parkingType) {
+        return new ParkingSpot(number, parkingType, false);
+    }
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(spot(parkingNumber, ParkingType.CAR));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    @Test
+    public void stateIsReplayedAfterCrash() throws IOException {
+        // GIVEN a gate that parked a car, let a bike leave, and crashed during an entry
+        GateJournal journal = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+        journal.spotTaken(spot(1, ParkingType.CAR));
+        journal.ticketOpened(ticket("ABCDEF", 1, HOUR));
+        journal.spotTaken(spot(4, ParkingType.BIKE));
+        journal.ticketOpened(ticket("GHIJKL", 4, HOUR));
+        journal.ticketClosed(ticket("GHIJKL", 4, HOUR));
+        journal.spotFreed(spot(4, ParkingType.BIKE));
+        journal.spotTaken(spot(2, ParkingType.CAR));
+
+        // WHEN the journal is opened again without having been closed
+        GateJournal recovered = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+
+        // THEN every record is replayed: the car is parked and spot 2 has no ticket
+        GateState state = recovered.getState();
+        assertEquals(7, recovered.getReplayedCount());
+        assertEquals(2, state.getTakenSpots().size());
+        assertEquals(1, state.getOpenTickets().size());
+        Ticket ticket = state.getOpenTickets().iterator().next();
+        assertEquals("ABCDEF", ticket.getVehicleRegNumber());
+        assertEquals(HOUR, ticket.getInTime().getTime());
+        assertEquals(1, state.getOrphanSpots().size());
+        assertEquals(2, state.getOrphanSpots().get(0).getId());
+    }
+
+    @Test
+    public void fullJournalIsSnapshotted() throws IOException {
+        // GIVEN a small journal filled many times over by entries and exits
+        GateJournal journal = new GateJournal(directory, 4096, 0);
+        for (int i = 0; i < 1000; i++) {
+            journal.spotTaken(spot(i % 10 + 1, ParkingType.CAR));
+            journal.ticketOpened(ticket("VEH" + i, i % 10 + 1, i * HOUR));
+            if (i < 995) {
+                journal.ticketClosed(ticket("VEH" + i, i % 10 + 1, i * HOUR));
+                journal.spotFreed(spot(i % 10 + 1, ParkingType.CAR));
+            }
+        }
+
+        // WHEN it is opened again after a crash, then after being closed
+        GateJournal recovered = new GateJournal(directory, 4096, 0);
+        GateState state = recovered.getState();
+        int replayed = recovered.getReplayedCount();
+        recovered.close();
+        GateJournal reopened = new GateJournal(directory, 4096, 0);
+
+        // THEN the snapshot and the records after it give the five parked cars, a closed journal has nothing to replay
+        assertTrue(replayed < 4000);
+        assertEquals(5, state.getOpenTickets().size());
+        assertEquals(5, state.getTakenSpots().size());
+        assertTrue(state.getOrphanSpots().isEmpty());
+        assertEquals(0, reopened.getReplayedCount());
+        assertEquals(5, reopened.getState().getOpenTickets().size());
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws IOException {
+        // GIVEN a journal whose second record was torn by a crash
+        GateJournal journal = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+        journal.spotTaken(spot(1, ParkingType.CAR));
+        journal.spotTaken(spot(2, ParkingType.CAR));
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("gate.journal").toFile(), "rw")) {
+            file.seek(FIRST_RECORD + SPOT_RECORD_SIZE + 6);
+            file.write(0x7F);
+        }
+
+        // WHEN it is opened again, and a spot taken
+        GateJournal recovered = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+        recovered.spotTaken(spot(3, ParkingType.CAR));
+
+        // THEN only the first record is replayed, and the next record replaces the torn one
+        assertEquals(1, recovered.getReplayedCount());
+        assertEquals(2, new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0).getReplayedCount());
+        assertFalse(recovered.getState().getTakenSpots().containsKey(2));
+    }
+
+    @Test
+    public void inMemoryStoresAreRecovered() throws IOException {
+        // GIVEN an in-memory gate that parked a car, then crashed while parking another
+        GateJournal journal = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+        ParkingService parkingService = new ParkingService(null,
+                new JournaledParkingSpotStore(new InMemoryParkingSpotStore(3, 2), journal),
+                new JournaledTicketStore(new InMemoryTicketStore(), journal));
+        VehicleEntry entry = parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        journal.spotTaken(spot(2, ParkingType.CAR));
+
+        // WHEN it restarts with empty stores
+        GateJournal recovered = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(3, 2);
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        int fixes = GateRecovery.reconcile(recovered, parkingSpotStore, ticketStore);
+
+        // THEN the car is parked again on its spot, and the spot of the stopped entry is freed
+        assertTrue(entry.isAccepted());
+        assertEquals(3, fixes);
+        Ticket ticket = ticketStore.getOpenTicket("ABCDEF");
+        assertEquals(1, ticket.getParkingSpot().getId());
+        assertEquals(entry.getTicket().getInTime(), ticket.getInTime());
+        assertEquals(2, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(Integer.valueOf(2), parkingSpotStore.getAvailableSlotCounts().get(ParkingType.CAR));
+        assertTrue(recovered.getState().getOrphanSpots().isEmpty());
+    }
+
+    @Test
+    public void exitStoredButNotJournaledIsCompleted() throws IOException {
+        // GIVEN a database where the car left, and a journal that crashed before recording it
+        GateJournal journal = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, 0);
+        journal.spotTaken(spot(1, ParkingType.CAR));
+        journal.ticketOpened(ticket("ABCDEF", 1, HOUR));
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(3, 2);
+        parkingSpotStore.claimNextAvailableSlot(ParkingType.CAR);
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        Ticket closed = ticket("ABCDEF", 1, HOUR);
+        closed.setOutTime(new Date(2 * HOUR));
+        ticketStore.saveTicket(closed);
+
+        // WHEN reconciling
+        int fixes = GateRecovery.reconcile(journal, parkingSpotStore, ticketStore);
+
+        // THEN the ticket is closed in the journal and the spot freed, the car is not parked again
+        assertEquals(2, fixes);
+        assertFalse(ticketStore.isParked("ABCDEF"));
+        assertEquals(1, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertTrue(journal.getState().getTakenSpots().isEmpty());
+        assertTrue(journal.getState().getOpenTickets().isEmpty());
+    }
+}
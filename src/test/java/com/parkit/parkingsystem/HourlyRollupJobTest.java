@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryRollupStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.Rollups;
+import com.parkit.parkingsystem.model.HourlyRollup;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.HourlyRollupJob;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HourlyRollupJobTest {
+
+    private static final long HOUR = 3600 * 1000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    private static Ticket ticket(String vehicleRegNumber, ParkingType parkingType, long inTime, Long outTime, double price) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime((outTime == null) ? null : new Date(outTime));
+        ticket.setPrice(price);
+        return ticket;
+    }
+
+    @Test
+    public void closedTicketIsSpreadOverItsHours() {
+        // WHEN a car parked from 10:30 to 12:15 is closed
+        List<HourlyRollup> rollups = Rollups.merge(Rollups.ticketClosed(ParkingType.CAR,
+                new Date(10 * HOUR + 30 * MINUTE), new Date(12 * HOUR + 15 * MINUTE), 3.0));
+
+        // THEN it is priced at 12:00, and parked half of 10:00, all of 11:00 and a quarter of 12:00
+        assertEquals(3, rollups.size());
+        assertEquals(12 * HOUR, rollups.get(0).getHour().getTime());
+        assertEquals(1, rollups.get(0).getClosedTickets());
+        assertEquals(3.0, rollups.get(0).getRevenue());
+        assertEquals(900, rollups.get(0).getOccupiedSeconds());
+        assertEquals(1800, rollups.get(1).getOccupiedSeconds());
+        assertEquals(3600, rollups.get(2).getOccupiedSeconds());
+        assertEquals(0, rollups.get(1).getClosedTickets());
+    }
+
+    @Test
+    public void gatesKeepTheRollupsTheBackfillRebuilds() {
+        // GIVEN in-memory stores adding to their rollups, two cars and a bike in, then a car out
+        InMemoryRollupStore rollupStore = new InMemoryRollupStore();
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(3, 2);
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        parkingSpotStore.rollupStore = rollupStore;
+        ticketStore.rollupStore = rollupStore;
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, ticketStore);
+        parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        parkingService.processIncomingVehicle("GHIJKL", ParkingType.CAR);
+        parkingService.processIncomingVehicle("MNOPQR", ParkingType.BIKE);
+        parkingService.processExitingVehicle("ABCDEF");
+        Date from = new Date(System.currentTimeMillis() - HOUR);
+        Date to = new Date(System.currentTimeMillis() + HOUR);
+
+        // WHEN the rollups are read, then rebuilt from the tickets into another store
+        Map<ParkingType, HourlyRollup> live = new HourlyRollupJob(ticketStore, rollupStore).totals(from, to);
+        InMemoryRollupStore rebuiltStore = new InMemoryRollupStore();
+        HourlyRollupJob rebuiltJob = new HourlyRollupJob(ticketStore, rebuiltStore);
+        int rebuilt = rebuiltJob.backfill(from, to);
+        Map<ParkingType, HourlyRollup> backfilled = rebuiltJob.totals(from, to);
+
+        // THEN both count the same entries and exits
+        assertTrue(rebuilt > 0);
+        for (ParkingType parkingType : ParkingType.values()) {
+            assertEquals(live.get(parkingType).getClosedTickets(), backfilled.get(parkingType).getClosedTickets());
+            assertEquals(live.get(parkingType).getRevenue(), backfilled.get(parkingType).getRevenue(), 0.001);
+            assertEquals(live.get(parkingType).getSpotsTaken(), backfilled.get(parkingType).getSpotsTaken());
+            assertEquals(live.get(parkingType).getSpotsFreed(), backfilled.get(parkingType).getSpotsFreed());
+        }
+        assertEquals(2, live.get(ParkingType.CAR).getSpotsTaken());
+        assertEquals(1, live.get(ParkingType.CAR).getSpotsFreed());
+        assertEquals(1, live.get(ParkingType.BIKE).getSpotsTaken());
+    }
+
+    @Test
+    public void backfillOnlyReplacesItsPeriod() {
+        // GIVEN tickets of a past day, and rollups of another day
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        long day = 100 * 24 * HOUR;
+        ticketStore.saveTicket(ticket("ABCDEF", ParkingType.CAR, day + 10 * HOUR, day + 12 * HOUR, 3.0));
+        ticketStore.saveTicket(ticket("GHIJKL", ParkingType.CAR, day - 30 * MINUTE, day + 30 * MINUTE, 1.5));
+        ticketStore.saveTicket(ticket("MNOPQR", ParkingType.BIKE, day + 23 * HOUR, null, 0));
+        InMemoryRollupStore rollupStore = new InMemoryRollupStore();
+        rollupStore.addRollups(Collections.singletonList(new HourlyRollup(new Date(day + 24 * HOUR), ParkingType.CAR, 7, 10, 0, 0, 0)));
+        HourlyRollupJob job = new HourlyRollupJob(ticketStore, rollupStore);
+
+        // WHEN the day is backfilled twice
+        job.backfill(new Date(day), new Date(day + 24 * HOUR));
+        job.backfill(new Date(day), new Date(day + 24 * HOUR));
+        Map<ParkingType, HourlyRollup> totals = job.totals(new Date(day), new Date(day + 24 * HOUR));
+
+        // THEN it has the tickets once, within the day only, and the next day is kept
+        assertEquals(2, totals.get(ParkingType.CAR).getClosedTickets());
+        assertEquals(4.5, totals.get(ParkingType.CAR).getRevenue(), 0.001);
+        assertEquals(1, totals.get(ParkingType.CAR).getSpotsTaken());
+        assertEquals(2, totals.get(ParkingType.CAR).getSpotsFreed());
+        assertEquals(2 * 3600 + 1800, totals.get(ParkingType.CAR).getOccupiedSeconds());
+        assertEquals(1, totals.get(ParkingType.BIKE).getSpotsTaken());
+        assertEquals(0, totals.get(ParkingType.BIKE).getOccupiedSeconds());
+        assertEquals(7, job.totals(new Date(day + 24 * HOUR), new Date(day + 25 * HOUR)).get(ParkingType.CAR).getClosedTickets());
+    }
+}
@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+
+public class InMemoryParkingSpotStoreTest extends ParkingSpotStoreContract {
+
+    @Override
+    protected ParkingSpotStore createParkingSpotStore() {
+        return new InMemoryParkingSpotStore(3, 2);
+    }
+}
@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.InMemoryRollupStore;
+import com.parkit.parkingsystem.dao.RollupStore;
+
+public class InMemoryRollupStoreTest extends RollupStoreContract {
+
+    @Override
+    protected RollupStore createRollupStore() {
+        return new InMemoryRollupStore();
+    }
+}
@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+
+public class InMemoryTicketStoreTest extends TicketStoreContract {
+
+    @Override
+    protected TicketStore createTicketStore() {
+        return new InMemoryTicketStore();
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.LatencyStats;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreWithinThreePercent() {
+        // GIVEN latencies of 1 to 1000 microseconds
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        // WHEN reading the interval
+        LatencyStats stats = histogram.getInterval();
+
+        // THEN each percentile is its sample or at most 3% above, the maximum and mean are exact
+        assertEquals(1000, stats.getCount());
+        assertEquals(500, stats.getP50Micros(), 500 * 0.03);
+        assertTrue(stats.getP50Micros() >= 500);
+        assertEquals(990, stats.getP99Micros(), 990 * 0.03);
+        assertEquals(999, stats.getP999Micros(), 999 * 0.03);
+        assertEquals(1000, stats.getMaxMicros());
+        assertEquals(500.5, stats.getMeanMicros());
+    }
+
+    @Test
+    public void resetStartsANewInterval() {
+        // GIVEN a histogram with a slow and a fast call
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5_000_000);
+        histogram.record(1000);
+
+        // WHEN the interval is reset, then a call recorded
+        LatencyStats closed = histogram.resetInterval();
+        histogram.record(2000);
+
+        // THEN the closed interval has the first calls, the new one the last, the total all of them
+        assertEquals(2, closed.getCount());
+        assertEquals(5000, closed.getMaxMicros());
+        LatencyStats interval = histogram.getInterval();
+        assertEquals(1, interval.getCount());
+        assertEquals(2, interval.getMaxMicros());
+        LatencyStats total = histogram.getTotal();
+        assertEquals(3, total.getCount());
+        assertEquals(5000, total.getMaxMicros());
+    }
+
+    @Test
+    public void concurrentSamplesAreAllCounted() throws Exception {
+        // GIVEN four threads recording while the interval is reset
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        long closed = 0;
+        for (int i = 0; i < 10; i++) {
+            closed += histogram.resetInterval().getCount();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // THEN no sample is lost between the intervals
+        assertEquals(400_000, closed + histogram.getInterval().getCount());
+        assertEquals(400_000, histogram.getTotal().getCount());
+    }
+
+    @Test
+    public void histogramIsReadableOverJmx() throws Exception {
+        // GIVEN a call recorded in a registered histogram
+        Metrics.latency("LatencyHistogramTest.call").record(3000);
+
+        // WHEN a JMX client reads it, then resets it
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData interval = (CompositeData) server.getAttribute(Metrics.objectName("LatencyHistogramTest.call"), "Interval");
+        CompositeData closed = (CompositeData) server.invoke(Metrics.objectName("LatencyHistogramTest.call"), "resetInterval", null, null);
+
+        // THEN it sees the call, once
+        assertEquals(1L, interval.get("count"));
+        assertEquals(3.0, interval.get("maxMicros"));
+        assertEquals(1L, closed.get("count"));
+        assertEquals(0, Metrics.latency("LatencyHistogramTest.call").getInterval().getCount());
+    }
+}
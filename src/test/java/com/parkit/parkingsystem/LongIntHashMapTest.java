@@ -0,0 +1,60 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.LongIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void putGetAndRemove() {
+        // GIVEN a map with two keys
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(42L, 1, -1);
+        map.put(7L, 2, -1);
+
+        // WHEN replacing one and removing the other
+        int previous = map.put(42L, 3, -1);
+        boolean removed = map.remove(7L);
+
+        // THEN only the replaced key is left
+        assertEquals(1, previous);
+        assertTrue(removed);
+        assertFalse(map.remove(7L));
+        assertEquals(1, map.size());
+        assertEquals(3, map.get(42L, -1));
+        assertEquals(-1, map.get(7L, -1));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1, -1));
+    }
+
+    @Test
+    public void matchesHashMapThroughGrowthAndRemovals() {
+        // GIVEN a map sized for far fewer keys than it gets
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        // WHEN putting and removing random keys from a small range, so probe sequences collide
+        for (int i = 0; i < 200000; i++) {
+            long key = 1 + random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                Integer previous = expected.put(key, i);
+                assertEquals(previous == null ? -1 : previous, map.put(key, i, -1));
+            }
+        }
+
+        // THEN every key is found with its last value
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? -1 : value, map.get(key, -1));
+        }
+    }
+}
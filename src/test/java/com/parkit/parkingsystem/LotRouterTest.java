@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LotRouterTest {
+
+    private static final String VEHICLE_REG_NUMBER = "ABCDEF";
+    private static final long LOOKUP_TIMEOUT_MS = 200;
+
+    private final Map<String, ParkingSpotStore> parkingSpotStores = new LinkedHashMap<>();
+    private final Map<String, TicketStore> ticketStores = new LinkedHashMap<>();
+    private final CountDownLatch stuckLot = new CountDownLatch(1);
+    private LotRouter lotRouter;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        for (String lot : new String[]{"north", "south"}) {
+            parkingSpotStores.put(lot, new InMemoryParkingSpotStore(2, 2));
+            ticketStores.put(lot, new InMemoryTicketStore());
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stuckLot.countDown();
+        if (lotRouter != null) {
+            lotRouter.shutdown();
+        }
+    }
+
+    private static Ticket ticket(long inTime, Date outTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(outTime);
+        return ticket;
+    }
+
+    @Test
+    public void findTicketReturnsLatestOfAllLotsTest() {
+        //GIVEN a vehicle that parked at north, then is parked at south
+        ticketStores.get("north").saveTicket(ticket(1000, new Date(2000)));
+        ticketStores.get("south").saveTicket(ticket(3000, null));
+        lotRouter = new LotRouter("north", parkingSpotStores, ticketStores, LOOKUP_TIMEOUT_MS);
+
+        //WHEN looking it up
+        Ticket ticket = lotRouter.findTicket(VEHICLE_REG_NUMBER);
+        Ticket openTicket = lotRouter.findOpenTicket(VEHICLE_REG_NUMBER);
+
+        //THEN the south ticket is found, with its lot
+        assertEquals(new Date(3000), ticket.getInTime());
+        assertEquals("south", ticket.getLot());
+        assertEquals("south", ticket.getParkingSpot().getLot());
+        assertEquals("south", openTicket.getLot());
+        assertNull(lotRouter.findTicket("UNKNOWN"));
+    }
+
+    @Test
+    public void findTicketSkipsLotThatDoesNotAnswerTest() {
+        //GIVEN the south database hangs
+        ticketStores.get("north").saveTicket(ticket(1000, new Date(2000)));
+        TicketStore hangingStore = mock(TicketStore.class);
+        when(hangingStore.getTicket(anyString())).thenAnswer(invocation -> {
+            stuckLot.await();
+            return null;
+        });
+        ticketStores.put("south", hangingStore);
+        lotRouter = new LotRouter("north", parkingSpotStores, ticketStores, LOOKUP_TIMEOUT_MS);
+
+        //WHEN looking up a vehicle
+        long start = System.currentTimeMillis();
+        Ticket ticket = lotRouter.findTicket(VEHICLE_REG_NUMBER);
+
+        //THEN the north ticket is answered once the timeout is over
+        assertEquals("north", ticket.getLot());
+        assertTrue(System.currentTimeMillis() - start < 10 * LOOKUP_TIMEOUT_MS);
+    }
+
+    @Test
+    public void stuckLotDoesNotTakeTheThreadsOfOtherLotsTest() {
+        //GIVEN the south database hangs, ignoring interrupts like a JDBC call
+        ticketStores.get("north").saveTicket(ticket(1000, new Date(2000)));
+        TicketStore hangingStore = mock(TicketStore.class);
+        when(hangingStore.getTicket(anyString())).thenAnswer(invocation -> {
+            while (stuckLot.getCount() > 0) {
+                try {
+                    stuckLot.await();
+                } catch (InterruptedException e) {
+                    // keep hanging
+                }
+            }
+            return null;
+        });
+        ticketStores.put("south", hangingStore);
+        lotRouter = new LotRouter("north", parkingSpotStores, ticketStores, LOOKUP_TIMEOUT_MS, 2);
+
+        //WHEN looking up the vehicle more times than south has threads
+        //THEN north keeps answering
+        for (int i = 0; i < 5; i++) {
+            Ticket ticket = lotRouter.findTicket(VEHICLE_REG_NUMBER);
+            assertNotNull(ticket);
+            assertEquals("north", ticket.getLot());
+        }
+    }
+
+    @Test
+    public void updatesAreRoutedToTheLotTest() {
+        //GIVEN a spot of the south lot, and a spot without lot
+        lotRouter = new LotRouter("north", parkingSpotStores, ticketStores, LOOKUP_TIMEOUT_MS);
+        ParkingSpot southSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        southSpot.setLot("south");
+        ParkingSpot localSpot = new ParkingSpot(2, ParkingType.CAR, false);
+        ParkingSpot unknownSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        unknownSpot.setLot("east");
+
+        //WHEN taking them
+        lotRouter.updateParking(southSpot);
+        lotRouter.updateParking(localSpot);
+
+        //THEN each is taken in its lot only, and unknown lots are refused
+        assertEquals(1, parkingSpotStores.get("south").getAvailableSlotCounts().get(ParkingType.CAR).intValue());
+        assertEquals(1, parkingSpotStores.get("north").getAvailableSlotCounts().get(ParkingType.CAR).intValue());
+        assertThrows(IllegalArgumentException.class, () -> lotRouter.updateParking(unknownSpot));
+        assertNotEquals(southSpot, unknownSpot);
+    }
+}
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OccupancyCounters;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.Occupancy;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OccupancyCountersTest {
+
+    @Test
+    public void countsFollowEntriesAndExitsWithoutQuerying() {
+        // GIVEN a service whose counts were loaded from a lot of 3 car and 2 bike spots
+        InMemoryParkingSpotStore parkingSpotStore = spy(new InMemoryParkingSpotStore(3, 2));
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, ticketStore);
+        assertEquals(5, parkingService.reconcileOccupancy());
+
+        // WHEN two cars and a bike enter, then a car leaves
+        parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+        parkingService.processIncomingVehicle("GHIJKL", ParkingType.CAR);
+        parkingService.processIncomingVehicle("MNOPQR", ParkingType.BIKE);
+        parkingService.processExitingVehicle("ABCDEF");
+        Map<ParkingType, Occupancy> occupancy = parkingService.getOccupancy();
+
+        // THEN the counts are right, and the spots were read only to load them
+        assertEquals(2, occupancy.get(ParkingType.CAR).getFree());
+        assertEquals(1, occupancy.get(ParkingType.CAR).getOccupied());
+        assertEquals(1, occupancy.get(ParkingType.BIKE).getFree());
+        assertEquals(1, occupancy.get(ParkingType.BIKE).getOccupied());
+        verify(parkingSpotStore, times(1)).getParkingSpots();
+        verify(parkingSpotStore, never()).getAvailableSlotCounts();
+    }
+
+    @Test
+    public void reconciliationCorrectsDrift() {
+        // GIVEN two services sharing a store, the second letting a car in
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(3, 2);
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, ticketStore);
+        parkingService.reconcileOccupancy();
+        new ParkingService(null, parkingSpotStore, ticketStore).processIncomingVehicle("ABCDEF", ParkingType.CAR);
+
+        // WHEN the first service reconciles its counts
+        int drift = parkingService.reconcileOccupancy();
+
+        // THEN it counts the car of the other service
+        assertEquals(2, drift);
+        assertEquals(2, parkingService.getOccupancy().get(ParkingType.CAR).getFree());
+        assertEquals(1, parkingService.getOccupancy().get(ParkingType.CAR).getOccupied());
+        assertEquals(0, parkingService.reconcileOccupancy());
+    }
+
+    @Test
+    public void reconciliationIsSkippedWhenCountsChangeDuringTheRead() {
+        // GIVEN counters loaded from one free car spot, then a spot taken while the table was read
+        OccupancyCounters counters = new OccupancyCounters();
+        counters.reconcile(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true)), counters.getVersion());
+        long version = counters.getVersion();
+        counters.taken(ParkingType.CAR, 1);
+
+        // WHEN reconciling with the rows read before the spot was taken
+        int drift = counters.reconcile(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true)), version);
+
+        // THEN the counts keep the taken spot
+        assertEquals(-1, drift);
+        assertEquals(0, counters.snapshot().get(ParkingType.CAR).getFree());
+        assertEquals(1, counters.snapshot().get(ParkingType.CAR).getOccupied());
+    }
+
+    @Test
+    public void reconciliationReadsAgainWhenCountsChangeDuringTheRead() {
+        // GIVEN a service whose first read of the spots sees a car of this service enter meanwhile
+        InMemoryParkingSpotStore parkingSpotStore = spy(new InMemoryParkingSpotStore(3, 2));
+        InMemoryTicketStore ticketStore = new InMemoryTicketStore();
+        ParkingService parkingService = new ParkingService(null, parkingSpotStore, ticketStore);
+        parkingService.reconcileOccupancy();
+        doAnswer(invocation -> {
+            parkingService.processIncomingVehicle("ABCDEF", ParkingType.CAR);
+            return invocation.callRealMethod();
+        }).doCallRealMethod().when(parkingSpotStore).getParkingSpots();
+
+        // WHEN reconciling
+        int drift = parkingService.reconcileOccupancy();
+
+        // THEN the spots are read again and the counts reconciled
+        assertEquals(0, drift);
+        verify(parkingSpotStore, times(3)).getParkingSpots();
+        assertEquals(2, parkingService.getOccupancy().get(ParkingType.CAR).getFree());
+        assertEquals(1, parkingService.getOccupancy().get(ParkingType.CAR).getOccupied());
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.OpenTicketCache;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenTicketCacheTest {
+
+    private static final String VEHICLE_REG_NUMBER = "ABCDEF";
+
+    private OpenTicketCache openTicketCache;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        openTicketCache = OpenTicketCache.load(Collections.singletonList(newTicket("GHIJKL", 2)));
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    @Test
+    public void loadKeepsParkedVehicles() {
+        assertTrue(openTicketCache.isParked("GHIJKL"));
+        assertEquals(2, openTicketCache.get("GHIJKL").getParkingSpot().getId());
+        assertNull(openTicketCache.get(VEHICLE_REG_NUMBER));
+    }
+
+    @Test
+    public void secondTicketOfParkedVehicleIsRefused() {
+        // GIVEN a vehicle parked
+        Ticket ticket = newTicket(VEHICLE_REG_NUMBER, 1);
+        assertTrue(openTicketCache.open(ticket));
+
+        // WHEN it enters again
+        boolean opened = openTicketCache.open(newTicket(VEHICLE_REG_NUMBER, 3));
+
+        // THEN the first ticket is kept
+        assertFalse(opened);
+        assertSame(ticket, openTicketCache.get(VEHICLE_REG_NUMBER));
+    }
+
+    @Test
+    public void closeForgetsTicket() {
+        // GIVEN a vehicle parked
+        Ticket ticket = newTicket(VEHICLE_REG_NUMBER, 1);
+        openTicketCache.open(ticket);
+
+        // WHEN its ticket is closed
+        openTicketCache.close(ticket);
+
+        // THEN it can enter again
+        assertFalse(openTicketCache.isParked(VEHICLE_REG_NUMBER));
+        assertTrue(openTicketCache.open(newTicket(VEHICLE_REG_NUMBER, 3)));
+    }
+
+    @Test
+    public void concurrentEntriesOfSameVehicleOpenOneTicket() throws Exception {
+        // GIVEN gates letting the same vehicle in together
+        int gates = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(gates);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        // WHEN each gate opens a ticket
+        for (int gate = 1; gate <= gates; gate++) {
+            Ticket ticket = newTicket(VEHICLE_REG_NUMBER, gate);
+            results.add(executor.submit(() -> {
+                start.await();
+                return openTicketCache.open(ticket);
+            }));
+        }
+        start.countDown();
+        int opened = 0;
+        for (Future<Boolean> result : results) {
+            opened += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        // THEN only one succeeds
+        assertEquals(1, opened);
+        assertEquals(2, openTicketCache.size());
+    }
+}
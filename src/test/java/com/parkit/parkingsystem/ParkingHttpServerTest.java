@@ -0,0 +1,176 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.service.ParkingHttpServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingHttpServerTest {
+
+    private static final int CAR_SPOTS = 10;
+    private static final int BIKE_SPOTS = 10;
+    private static final int GATES = 16;
+    private static final int CYCLES_PER_GATE = 50;
+
+    private ParkingHttpServer parkingHttpServer;
+
+    private static class HttpResult {
+        private final int status;
+        private final String body;
+
+        private HttpResult(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new InMemoryParkingSpotStore(CAR_SPOTS, BIKE_SPOTS), new InMemoryTicketStore());
+        parkingHttpServer = new ParkingHttpServer(parkingService, 0, 8, 100);
+        parkingHttpServer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        parkingHttpServer.stop(0);
+    }
+
+    private HttpResult request(String method, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + parkingHttpServer.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new HttpResult(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private HttpResult post(String path, byte[] form) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + parkingHttpServer.getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(form.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(form);
+        }
+        return new HttpResult(connection.getResponseCode(), null);
+    }
+
+    @Test
+    public void entryThenExit() throws Exception {
+        // WHEN a car enters, enters again, then exits twice
+        HttpResult entry = request("POST", "/entry?vehicleRegNumber=ABCDEF&type=car");
+        HttpResult availability = request("GET", "/availability");
+        HttpResult secondEntry = request("POST", "/entry?vehicleRegNumber=ABCDEF&type=CAR");
+        HttpResult exit = request("POST", "/exit?vehicleRegNumber=ABCDEF");
+        HttpResult secondExit = request("POST", "/exit?vehicleRegNumber=ABCDEF");
+
+        // THEN it gets the first car spot once, and pays once
+        assertEquals(200, entry.status);
+        assertTrue(entry.body.contains("\"parkingNumber\":1"));
+        assertEquals("{\"CAR\":9,\"BIKE\":10}", availability.body);
+        assertEquals(409, secondEntry.status);
+        assertEquals("{\"error\":\"Vehicle already parked\"}", secondEntry.body);
+        assertEquals(200, exit.status);
+        assertTrue(exit.body.contains("\"price\":0.0"));
+        assertEquals(409, secondExit.status);
+        assertEquals("{\"error\":\"No parked vehicle found for vehicle number:ABCDEF\"}", secondExit.body);
+        assertEquals("{\"CAR\":10,\"BIKE\":10}", request("GET", "/availability").body);
+    }
+
+    @Test
+    public void invalidRequestsAreRefused() throws Exception {
+        assertEquals(400, request("POST", "/entry?vehicleRegNumber=ABCDEF&type=TRUCK").status);
+        assertEquals(400, request("POST", "/entry?type=CAR").status);
+        assertEquals(400, request("POST", "/exit").status);
+        assertEquals(405, request("GET", "/entry?vehicleRegNumber=ABCDEF&type=CAR").status);
+    }
+
+    @Test
+    public void platesThatDoNotFitAreRefused() throws Exception {
+        // WHEN plates too long or with other characters enter or exit
+        // THEN they are refused before reaching the service, while a plate written with dashes is accepted
+        assertEquals(400, request("POST", "/entry?vehicleRegNumber=ABCDEFGHIJK&type=CAR").status);
+        assertEquals(400, request("POST", "/entry?vehicleRegNumber=%24%7Bjndi%3Aldap%7D&type=CAR").status);
+        assertEquals(400, request("POST", "/exit?vehicleRegNumber=AB%2F123").status);
+        assertEquals(200, request("POST", "/entry?vehicleRegNumber=ab-123-cd&type=CAR").status);
+        assertEquals(200, request("POST", "/exit?vehicleRegNumber=AB123CD").status);
+    }
+
+    @Test
+    public void largeBodyIsRefused() throws Exception {
+        // GIVEN a form body over the limit
+        byte[] form = new byte[ParkingHttpServer.MAX_BODY_BYTES + 1];
+        Arrays.fill(form, (byte) 'A');
+
+        // WHEN it is posted
+        HttpResult entry = post("/entry?vehicleRegNumber=ABCDEF&type=CAR", form);
+
+        // THEN it is refused, and nothing is parked
+        assertEquals(413, entry.status);
+        assertEquals("{\"CAR\":10,\"BIKE\":10}", request("GET", "/availability").body);
+    }
+
+    @Test
+    public void concurrentGatesNeverShareSpot() throws Exception {
+        // GIVEN more gates than workers, each letting its own vehicles in and out
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // WHEN every gate runs its cycles at the same time
+        for (int gate = 0; gate < GATES; gate++) {
+            String vehicleRegNumber = "GATE" + gate;
+            String type = (gate % 2 == 0) ? "CAR" : "BIKE";
+            results.add(gates.submit(() -> {
+                start.await();
+                int cycles = 0;
+                for (int i = 0; i < CYCLES_PER_GATE; i++) {
+                    HttpResult entry = request("POST", "/entry?vehicleRegNumber=" + vehicleRegNumber + "&type=" + type);
+                    assertEquals(200, entry.status, entry.body);
+                    HttpResult exit = request("POST", "/exit?vehicleRegNumber=" + vehicleRegNumber);
+                    assertEquals(200, exit.status, exit.body);
+                    cycles++;
+                }
+                return cycles;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        gates.shutdown();
+
+        // THEN every cycle succeeded and the lot is empty again
+        assertEquals(GATES * CYCLES_PER_GATE, total);
+        assertEquals("{\"CAR\":10,\"BIKE\":10}", request("GET", "/availability").body);
+    }
+}
@@ -5,6 +5,7 @@ import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.VehicleEntry;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,11 +21,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -68,7 +73,7 @@ public class ParkingServiceTest {
         doReturn(VEHICLE_REG_NUMBER).when(inputReaderUtil).readVehicleRegistrationNumber();
         ParkingSpot parkingSpot = new ParkingSpot(1, parkingType,false);
         ticket.setParkingSpot(parkingSpot);
-        doReturn(ticket).when(ticketDAO).getTicket(anyString());
+        doReturn(ticket).when(ticketDAO).getOpenTicket(anyString());
         doReturn(true).when(ticketDAO).updateTicket(any(Ticket.class));
         doReturn(value).when(ticketDAO).getNbTicket(any(String.class));
         doReturn(true).when(parkingSpotDAO).updateParking(any(ParkingSpot.class));
@@ -89,20 +94,114 @@ public class ParkingServiceTest {
         doReturn(VEHICLE_REG_NUMBER).when(inputReaderUtil).readVehicleRegistrationNumber();
         ParkingSpot parkingSpot = new ParkingSpot(1, parkingType,false);
         doReturn((parkingType == ParkingType.CAR) ? 1 : (parkingType == ParkingType.BIKE) ? 2 : 0).when(inputReaderUtil).readSelection();
-        doReturn(1).when(parkingSpotDAO).getNextAvailableSlot(any(ParkingType.class));
+        doReturn(1).when(parkingSpotDAO).claimNextAvailableSlot(any(ParkingType.class));
         ticket.setParkingSpot(parkingSpot);
+        doReturn(true).when(ticketDAO).saveTicket(any(Ticket.class));
         doReturn(value).when(ticketDAO).getNbTicket(any(String.class));
-        doReturn(true).when(parkingSpotDAO).updateParking(any(ParkingSpot.class));
 
         // WHEN vehicle incoming
         parkingService.processIncomingVehicle();
 
-        // THEN check that methods updateParkingSpot, saveTicket and getNbTicket called one time
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        // THEN check that the spot is claimed in one call, saveTicket and getNbTicket called one time
+        verify(parkingSpotDAO, Mockito.times(1)).claimNextAvailableSlot(parkingType);
+        verify(parkingSpotDAO, Mockito.never()).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
         verify(ticketDAO, Mockito.times(1)).getNbTicket(any(String.class));
     }
 
+    @Test
+    public void processIncomingVehicleReleasesSpotOnInvalidRegNumber() throws Exception {
+        // GIVEN a car claiming spot 1
+        doReturn(1).when(inputReaderUtil).readSelection();
+        doReturn(1).when(parkingSpotDAO).claimNextAvailableSlot(ParkingType.CAR);
+
+        // AND an invalid registration number
+        doThrow(new IllegalArgumentException("Invalid input provided")).when(inputReaderUtil).readVehicleRegistrationNumber();
+
+        // WHEN vehicle incoming
+        parkingService.processIncomingVehicle();
+
+        // THEN the claimed spot is made available again and no ticket is saved
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(argThat(spot -> spot.getId() == 1 && spot.isAvailable()));
+        verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processIncomingVehicleRefusesVehicleAlreadyParked() throws Exception {
+        // GIVEN a car claiming spot 1 while already parked
+        doReturn(1).when(inputReaderUtil).readSelection();
+        doReturn(1).when(parkingSpotDAO).claimNextAvailableSlot(ParkingType.CAR);
+        doReturn(VEHICLE_REG_NUMBER).when(inputReaderUtil).readVehicleRegistrationNumber();
+        doReturn(true).when(ticketDAO).isParked(VEHICLE_REG_NUMBER);
+
+        // WHEN vehicle incoming
+        parkingService.processIncomingVehicle();
+
+        // THEN the claimed spot is made available again and no ticket is saved
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(argThat(spot -> spot.getId() == 1 && spot.isAvailable()));
+        verify(ticketDAO, Mockito.never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void processIncomingVehicleReleasesSpotWhenSaveFails() throws Exception {
+        // GIVEN a car claiming spot 1 and a ticket that cannot be saved
+        doReturn(1).when(inputReaderUtil).readSelection();
+        doReturn(1).when(parkingSpotDAO).claimNextAvailableSlot(ParkingType.CAR);
+        doReturn(VEHICLE_REG_NUMBER).when(inputReaderUtil).readVehicleRegistrationNumber();
+        doReturn(false).when(ticketDAO).saveTicket(any(Ticket.class));
+
+        // WHEN vehicle incoming
+        parkingService.processIncomingVehicle();
+
+        // THEN the claimed spot is made available again
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(argThat(spot -> spot.getId() == 1 && spot.isAvailable()));
+        verify(ticketDAO, Mockito.never()).getNbTicket(any(String.class));
+    }
+
+    @Test
+    public void processIncomingVehicles() {
+        // GIVEN a fleet of two cars and a bike, with one car spot and one bike spot left
+        List<VehicleEntry> entries = Arrays.asList(
+                new VehicleEntry("CAR-1", ParkingType.CAR),
+                new VehicleEntry("CAR-2", ParkingType.CAR),
+                new VehicleEntry("BIKE-1", ParkingType.BIKE),
+                new VehicleEntry(" ", ParkingType.CAR));
+        doReturn(Collections.singletonList(3)).when(parkingSpotDAO).claimAvailableSlots(ParkingType.CAR, 2);
+        doReturn(Collections.singletonList(4)).when(parkingSpotDAO).claimAvailableSlots(ParkingType.BIKE, 1);
+        doReturn(true).when(ticketDAO).saveTickets(anyList());
+
+        // WHEN the fleet enters
+        parkingService.processIncomingVehicles(entries);
+
+        // THEN tickets are saved in one batch and each refusal is reported
+        verify(ticketDAO, Mockito.times(1)).saveTickets(argThat(tickets -> tickets.size() == 2));
+        assertTrue(entries.get(0).isAccepted());
+        assertEquals(3, entries.get(0).getTicket().getParkingSpot().getId());
+        assertFalse(entries.get(1).isAccepted());
+        assertEquals("No available parking slot for CAR", entries.get(1).getError());
+        assertTrue(entries.get(2).isAccepted());
+        assertEquals(4, entries.get(2).getTicket().getParkingSpot().getId());
+        assertEquals("Invalid vehicle registration number", entries.get(3).getError());
+    }
+
+    @Test
+    public void processIncomingVehiclesReleasesSpotsWhenSaveFails() {
+        // GIVEN two cars and tickets that cannot be saved
+        List<VehicleEntry> entries = Arrays.asList(
+                new VehicleEntry("CAR-1", ParkingType.CAR),
+                new VehicleEntry("CAR-2", ParkingType.CAR));
+        doReturn(Arrays.asList(1, 2)).when(parkingSpotDAO).claimAvailableSlots(ParkingType.CAR, 2);
+        doReturn(false).when(ticketDAO).saveTickets(anyList());
+
+        // WHEN the fleet enters
+        parkingService.processIncomingVehicles(entries);
+
+        // THEN both spots are released and both vehicles refused
+        verify(parkingSpotDAO, Mockito.times(2)).updateParking(argThat(ParkingSpot::isAvailable));
+        assertEquals("Unable to save ticket", entries.get(0).getError());
+        assertEquals("Unable to save ticket", entries.get(1).getError());
+    }
+
     @ParameterizedTest
     @EnumSource(ParkingType.class)
     public void processExitingVehicleUnableUpdate(ParkingType parkingType) throws Exception {
@@ -110,7 +209,7 @@ public class ParkingServiceTest {
         doReturn(VEHICLE_REG_NUMBER).when(inputReaderUtil).readVehicleRegistrationNumber();
         ParkingSpot parkingSpot = new ParkingSpot(1, parkingType,false);
         ticket.setParkingSpot(parkingSpot);
-        doReturn(ticket).when(ticketDAO).getTicket(anyString());
+        doReturn(ticket).when(ticketDAO).getOpenTicket(anyString());
         doReturn(false).when(ticketDAO).updateTicket(any(Ticket.class));
         System.setOut(new PrintStream(outContent));
 
@@ -122,6 +221,21 @@ public class ParkingServiceTest {
         assertTrue(outContent.toString().contains(expectedOutput));
     }
 
+    @Test
+    public void processExitingVehicleNotParked() throws Exception {
+        // GIVEN a vehicle without open ticket
+        doReturn(VEHICLE_REG_NUMBER).when(inputReaderUtil).readVehicleRegistrationNumber();
+        System.setOut(new PrintStream(outContent));
+
+        // WHEN vehicle exiting
+        parkingService.processExitingVehicle();
+
+        // THEN nothing is updated
+        verify(ticketDAO, Mockito.never()).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, Mockito.never()).updateParking(any(ParkingSpot.class));
+        assertTrue(outContent.toString().contains("No parked vehicle found for vehicle number:" + VEHICLE_REG_NUMBER));
+    }
+
     @Test
     public void getNextParkingNumberIfAvailable() {
         // GIVEN a car want an available place in car's park
@@ -148,11 +262,30 @@ public class ParkingServiceTest {
         // AND no available spot
         doReturn(0).when(parkingSpotDAO).getNextAvailableSlot(any(ParkingType.class));  // Simulate no available spots
 
+        // AND the gate console
+        parkingService.console = new PrintStream(outContent);
+
         // WHEN try to find the next available parking place
         ParkingSpot resultParkingSpot = parkingService.getNextParkingNumberIfAvailable();
 
-        // THEN result should be null
+        // THEN result should be null, and the driver told the parking is full
         assertNull(resultParkingSpot);
+        assertTrue(outContent.toString().contains("No parking spot available"));
+    }
+
+    @Test
+    public void claimNextParkingNumberIfAvailable() {
+        // GIVEN a bike want an available place in bike's park
+        doReturn(2).when(inputReaderUtil).readSelection();
+        doReturn(4).when(parkingSpotDAO).claimNextAvailableSlot(ParkingType.BIKE);
+
+        // WHEN claiming next available parking place
+        ParkingSpot resultParkingSpot = parkingService.claimNextParkingNumberIfAvailable();
+
+        // THEN spot 4 is reserved
+        assertEquals(4, resultParkingSpot.getId());
+        assertEquals(ParkingType.BIKE, resultParkingSpot.getParkingType());
+        assertFalse(resultParkingSpot.isAvailable());
     }
 
     @Test
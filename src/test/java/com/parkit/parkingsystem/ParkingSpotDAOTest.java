@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ParkingSpotDAOTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement getParkingSpotsStatement;
+    @Mock
+    private PreparedStatement getNextParkingSpotStatement;
+    @Mock
+    private PreparedStatement updateParkingStatement;
+    @Mock
+    private ResultSet resultSet;
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        lenient().when(dataBaseConfig.getConnection()).thenReturn(connection);
+        lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_PARKING_SPOTS)).thenReturn(getParkingSpotsStatement);
+        lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.GET_NEXT_PARKING_SPOT)).thenReturn(getNextParkingSpotStatement);
+        lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.UPDATE_PARKING_SPOT)).thenReturn(updateParkingStatement);
+        lenient().when(getNextParkingSpotStatement.executeQuery()).thenReturn(resultSet);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void failedLoadKeepsLookingUpSpotsInDatabase() throws Exception {
+        // GIVEN a parking table that cannot be read
+        when(getParkingSpotsStatement.executeQuery()).thenThrow(new SQLException("connection reset"));
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(2);
+
+        // WHEN loading the free spot index
+        parkingSpotDAO.loadFreeSpotIndex();
+
+        // THEN no index is installed and the lot is not reported full
+        assertNull(parkingSpotDAO.getParkingSpots());
+        assertNull(parkingSpotDAO.getFreeSpotIndex());
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void unknownSpotDropsTheIndex() throws Exception {
+        // GIVEN an index loaded with spots 1 and 2
+        ResultSet spots = mock(ResultSet.class);
+        when(getParkingSpotsStatement.executeQuery()).thenReturn(spots);
+        when(spots.next()).thenReturn(true, true, false);
+        when(spots.getInt(1)).thenReturn(1, 2);
+        when(spots.getString(3)).thenReturn("CAR");
+        when(spots.getBoolean(2)).thenReturn(true);
+        parkingSpotDAO.loadFreeSpotIndex();
+        assertNotNull(parkingSpotDAO.getFreeSpotIndex());
+
+        // WHEN a spot added to the table since then is taken
+        when(updateParkingStatement.executeUpdate()).thenReturn(1);
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(200, ParkingType.CAR, false)));
+
+        // THEN the index is dropped and spots are looked up in the database
+        assertNull(parkingSpotDAO.getFreeSpotIndex());
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(1);
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+}
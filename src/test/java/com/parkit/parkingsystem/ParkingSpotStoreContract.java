@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link ParkingSpotStore} must have, run against each implementation by its subclass.
+ */
+public abstract class ParkingSpotStoreContract {
+
+    protected ParkingSpotStore parkingSpotStore;
+
+    /**
+     * @return a store of the default lot, all free: spots 1 to 3 for cars, 4 and 5 for bikes
+     */
+    protected abstract ParkingSpotStore createParkingSpotStore();
+
+    @BeforeEach
+    public void setUpPerTest() {
+        parkingSpotStore = createParkingSpotStore();
+    }
+
+    @Test
+    public void nextAvailableSlotIsLowestFreeOfType() {
+        assertEquals(1, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(4, parkingSpotStore.getNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(Integer.valueOf(3), parkingSpotStore.getAvailableSlotCounts().get(ParkingType.CAR));
+        assertEquals(Integer.valueOf(2), parkingSpotStore.getAvailableSlotCounts().get(ParkingType.BIKE));
+    }
+
+    @Test
+    public void claimedSlotsAreNeverGivenAgain() {
+        // WHEN claiming more car spots than the lot has
+        List<Integer> first = parkingSpotStore.claimAvailableSlots(ParkingType.CAR, 2);
+        List<Integer> second = parkingSpotStore.claimAvailableSlots(ParkingType.CAR, 2);
+
+        // THEN each spot is given once, then the lot is full
+        assertEquals(Arrays.asList(1, 2), first);
+        assertEquals(Collections.singletonList(3), second);
+        assertEquals(0, parkingSpotStore.claimNextAvailableSlot(ParkingType.CAR));
+        assertEquals(Integer.valueOf(0), parkingSpotStore.getAvailableSlotCounts().get(ParkingType.CAR));
+        assertEquals(4, parkingSpotStore.claimNextAvailableSlot(ParkingType.BIKE));
+    }
+
+    @Test
+    public void updateParkingTakesAndReleasesSpot() {
+        // WHEN spot 1 is taken, then released
+        boolean taken = parkingSpotStore.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+        int nextWhileTaken = parkingSpotStore.getNextAvailableSlot(ParkingType.CAR);
+        boolean released = parkingSpotStore.updateParking(new ParkingSpot(1, ParkingType.CAR, true));
+
+        // THEN it is skipped while taken
+        assertTrue(taken);
+        assertEquals(2, nextWhileTaken);
+        assertTrue(released);
+        assertEquals(1, parkingSpotStore.claimNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void updateUnknownSpotFails() {
+        assertFalse(parkingSpotStore.updateParking(new ParkingSpot(99, ParkingType.CAR, true)));
+    }
+
+    @Test
+    public void parkingSpotsHaveTheirAvailability() {
+        // GIVEN bike spot 5 taken
+        parkingSpotStore.updateParking(new ParkingSpot(5, ParkingType.BIKE, false));
+
+        // WHEN listing the spots
+        List<ParkingSpot> parkingSpots = parkingSpotStore.getParkingSpots();
+
+        // THEN every spot is there with its type and availability
+        assertEquals(5, parkingSpots.size());
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            assertEquals((parkingSpot.getId() <= 3) ? ParkingType.CAR : ParkingType.BIKE, parkingSpot.getParkingType());
+            assertEquals(parkingSpot.getId() != 5, parkingSpot.isAvailable());
+        }
+    }
+}
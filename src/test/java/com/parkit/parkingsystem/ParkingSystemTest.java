@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.service.ParkingSystem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSystemTest {
+
+    @AfterEach
+    public void tearDownPerTest() {
+        System.clearProperty("parkit.lot");
+        System.clearProperty("parkit.lots");
+        System.clearProperty("parkit.db.url.south");
+    }
+
+    @Test
+    public void otherLotWithoutDatabaseUrlIsRefused() {
+        // GIVEN a north gate that also looks up plates in a south lot without database url
+        System.setProperty("parkit.lot", "north");
+        System.setProperty("parkit.lots", "north,south");
+
+        // THEN the system does not start on the north database for the south lot
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ParkingSystem.fromSystemProperties(null));
+        assertTrue(e.getMessage().contains("parkit.db.url.south"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlateCodecTest {
+
+    @Test
+    public void encodeNormalisesPlate() {
+        // WHEN encoding the same plate written differently
+        long code = PlateCodec.encode("AB-123-CD");
+
+        // THEN case, spaces and dashes do not matter, and the code decodes to the normalised plate
+        assertEquals(code, PlateCodec.encode("ab 123 cd"));
+        assertEquals(code, PlateCodec.encode("AB123CD"));
+        assertEquals("AB123CD", PlateCodec.decode(code));
+        assertEquals("AB123CD", PlateCodec.normalise("ab-123 cd"));
+    }
+
+    @Test
+    public void normaliseKeepsNormalisedPlate() {
+        // GIVEN a plate already normalised
+        String vehicleRegNumber = new String("AB123CD");
+
+        // WHEN normalising it
+        // THEN the same String comes back, no copy is made
+        assertSame(vehicleRegNumber, PlateCodec.normalise(vehicleRegNumber));
+        assertNull(PlateCodec.normalise(null));
+    }
+
+    @Test
+    public void distinctPlatesGetDistinctCodes() {
+        // WHEN encoding plates differing by a leading zero, or by their last character
+        long zeroPrefixed = PlateCodec.encode("0A");
+        long shorter = PlateCodec.encode("A");
+        long longest = PlateCodec.encode("ZZZZZZZZZZ");
+
+        // THEN the codes differ and round trip
+        assertNotEquals(zeroPrefixed, shorter);
+        assertNotEquals(PlateCodec.encode("ABCDEF"), PlateCodec.encode("ABCDEG"));
+        assertEquals("0A", PlateCodec.decode(zeroPrefixed));
+        assertEquals("ZZZZZZZZZZ", PlateCodec.decode(longest));
+        assertTrue(longest > 0);
+    }
+
+    @Test
+    public void plateThatCannotBePackedIsRefused() {
+        // WHEN encoding plates too long, empty or with other characters
+        // THEN they get no code
+        assertEquals(PlateCodec.NONE, PlateCodec.encode("ABCDEFGHIJK"));
+        assertEquals(PlateCodec.NONE, PlateCodec.encode(" - "));
+        assertEquals(PlateCodec.NONE, PlateCodec.encode("AB_12"));
+        assertEquals(PlateCodec.NONE, PlateCodec.encode(null));
+        assertNull(PlateCodec.decode(PlateCodec.NONE));
+        assertThrows(IllegalArgumentException.class, () -> PlateCodec.decode(-1L));
+    }
+}
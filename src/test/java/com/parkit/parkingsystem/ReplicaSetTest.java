@@ -0,0 +1,107 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ReplicaSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaSetTest {
+
+    private static final long MAX_LAG_MS = 1000;
+
+    @Mock
+    private DataBaseConfig primary;
+    @Mock
+    private DataBaseConfig firstReplica;
+    @Mock
+    private DataBaseConfig secondReplica;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection firstConnection;
+    @Mock
+    private Connection secondConnection;
+    @Mock
+    private PreparedStatement beatStatement;
+
+    private ReplicaSet replicaSet;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(primaryConnection.prepareStatement(startsWith("update replica_heartbeat"))).thenReturn(beatStatement);
+        // checked on every borrow
+        replicaSet = new ReplicaSet(primary, Arrays.asList(firstReplica, secondReplica), MAX_LAG_MS, 0);
+    }
+
+    private void lag(DataBaseConfig replica, Connection connection, long lagMillis) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(replica.prepareStatement(eq(connection), anyString())).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(1)).thenReturn(lagMillis);
+    }
+
+    @Test
+    public void readsGoToReplicasInTimeTest() throws Exception {
+        // GIVEN two replicas in time
+        lag(firstReplica, firstConnection, 200);
+        lag(secondReplica, secondConnection, 300);
+
+        // WHEN borrowing twice
+        Connection first = replicaSet.borrowConnection();
+        Connection second = replicaSet.borrowConnection();
+
+        // THEN each replica serves one read, and the primary beats for the next checks
+        assertNotSame(first, second);
+        assertTrue(Arrays.asList(firstConnection, secondConnection).containsAll(Arrays.asList(first, second)));
+        assertEquals(200, replicaSet.getLagMillis(0));
+        verify(beatStatement, times(2)).execute();
+    }
+
+    @Test
+    public void replicaTooFarBehindGetsNoReadsTest() throws Exception {
+        // GIVEN the first replica in time, the second one too far behind
+        lag(firstReplica, firstConnection, 200);
+        lag(secondReplica, secondConnection, 5 * MAX_LAG_MS);
+
+        // WHEN borrowing twice
+        Connection first = replicaSet.borrowConnection();
+        Connection second = replicaSet.borrowConnection();
+
+        // THEN both reads go to the first replica
+        assertSame(firstConnection, first);
+        assertSame(firstConnection, second);
+    }
+
+    @Test
+    public void noReplicaInTimeFallsBackTest() throws Exception {
+        // GIVEN one replica behind and the other one down
+        lag(firstReplica, firstConnection, 5 * MAX_LAG_MS);
+        when(secondReplica.getConnection()).thenThrow(new SQLException("down"));
+
+        // WHEN borrowing
+        Connection connection = replicaSet.borrowConnection();
+
+        // THEN no replica is given, the reads go to the primary
+        assertNull(connection);
+        assertEquals(Long.MAX_VALUE, replicaSet.getLagMillis(1));
+    }
+}
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.RollupStore;
+import com.parkit.parkingsystem.model.HourlyRollup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link RollupStore} must have, run against each implementation by its subclass.
+ */
+public abstract class RollupStoreContract {
+
+    private static final long HOUR = 3600 * 1000L;
+
+    protected RollupStore rollupStore;
+
+    /**
+     * @return an empty store
+     */
+    protected abstract RollupStore createRollupStore();
+
+    @BeforeEach
+    public void setUpPerTest() {
+        rollupStore = createRollupStore();
+    }
+
+    private static HourlyRollup rollup(long hour, ParkingType parkingType, int closedTickets, double revenue, long occupiedSeconds) {
+        return new HourlyRollup(new Date(hour * HOUR), parkingType, closedTickets, revenue, 1, closedTickets, occupiedSeconds);
+    }
+
+    private static HourlyRollup find(List<HourlyRollup> rollups, long hour, ParkingType parkingType) {
+        for (HourlyRollup rollup : rollups) {
+            if (rollup.getHour().getTime() == hour * HOUR && rollup.getParkingType() == parkingType) {
+                return rollup;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void addedRollupsAreSummed() {
+        // GIVEN changes to two hours, twice to the same hour and type
+        rollupStore.addRollups(Arrays.asList(rollup(10, ParkingType.CAR, 1, 1.5, 1800), rollup(10, ParkingType.BIKE, 1, 1.0, 600)));
+        rollupStore.addRollups(Arrays.asList(rollup(10, ParkingType.CAR, 2, 3.0, 3600), rollup(11, ParkingType.CAR, 1, 1.5, 60)));
+
+        // WHEN reading the first hour
+        List<HourlyRollup> rollups = rollupStore.getRollups(new Date(10 * HOUR), new Date(11 * HOUR));
+
+        // THEN it has one rollup per type, with the sums
+        assertEquals(2, rollups.size());
+        HourlyRollup car = find(rollups, 10, ParkingType.CAR);
+        assertEquals(3, car.getClosedTickets());
+        assertEquals(4.5, car.getRevenue(), 0.001);
+        assertEquals(2, car.getSpotsTaken());
+        assertEquals(3, car.getSpotsFreed());
+        assertEquals(5400, car.getOccupiedSeconds());
+        assertEquals(1, find(rollups, 10, ParkingType.BIKE).getClosedTickets());
+    }
+
+    @Test
+    public void rollupsAreReadByHour() {
+        // GIVEN rollups of three hours
+        rollupStore.addRollups(Arrays.asList(rollup(10, ParkingType.CAR, 1, 1.5, 0),
+                rollup(12, ParkingType.CAR, 1, 1.5, 0), rollup(11, ParkingType.CAR, 1, 1.5, 0)));
+
+        // WHEN reading the last two
+        List<HourlyRollup> rollups = rollupStore.getRollups(new Date(11 * HOUR), new Date(13 * HOUR));
+
+        // THEN they come by hour
+        assertEquals(2, rollups.size());
+        assertEquals(11 * HOUR, rollups.get(0).getHour().getTime());
+        assertEquals(12 * HOUR, rollups.get(1).getHour().getTime());
+    }
+
+    @Test
+    public void replacedPeriodOnlyHasTheNewRollups() {
+        // GIVEN rollups of three hours
+        rollupStore.addRollups(Arrays.asList(rollup(10, ParkingType.CAR, 1, 1.5, 0),
+                rollup(11, ParkingType.CAR, 1, 1.5, 0), rollup(11, ParkingType.BIKE, 1, 1.0, 0), rollup(12, ParkingType.CAR, 1, 1.5, 0)));
+
+        // WHEN the middle hour is replaced
+        boolean replaced = rollupStore.replaceRollups(new Date(11 * HOUR), new Date(12 * HOUR),
+                Collections.singletonList(rollup(11, ParkingType.CAR, 5, 7.5, 0)));
+
+        // THEN it only has the new rollup, the other hours are kept
+        assertTrue(replaced);
+        List<HourlyRollup> rollups = rollupStore.getRollups(new Date(10 * HOUR), new Date(13 * HOUR));
+        assertEquals(3, rollups.size());
+        assertEquals(5, find(rollups, 11, ParkingType.CAR).getClosedTickets());
+        assertNull(find(rollups, 11, ParkingType.BIKE));
+        assertEquals(1, find(rollups, 12, ParkingType.CAR).getClosedTickets());
+    }
+}
@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SchemaMigratorTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
+    @Mock
+    private ResultSet lockResult;
+    @Mock
+    private ResultSet versionResult;
+    @Mock
+    private PreparedStatement saveVersionStatement;
+
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        when(dataBaseConfig.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        doReturn(lockResult).when(statement).executeQuery(startsWith("select GET_LOCK"));
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getInt(1)).thenReturn(1);
+        doReturn(versionResult).when(statement).executeQuery(startsWith("select max(VERSION)"));
+        when(versionResult.next()).thenReturn(true);
+        schemaMigrator = new SchemaMigrator(dataBaseConfig);
+    }
+
+    @Test
+    public void migrateAppliesScriptsOfNewDataBase() throws Exception {
+        // GIVEN a database without migrations
+        when(versionResult.getInt(1)).thenReturn(0);
+        when(connection.prepareStatement(startsWith("insert into schema_version"))).thenReturn(saveVersionStatement);
+
+        // WHEN migrating
+        int applied = schemaMigrator.migrate();
+
+        // THEN every script runs and its version is recorded
+        assertEquals(6, applied);
+        verify(statement).execute(startsWith("create index IDX_TICKET_VEHICLE on ticket"));
+        verify(statement).execute(startsWith("create index IDX_PARKING_FREE on parking"));
+        verify(statement).execute(startsWith("create index IDX_TICKET_OPEN on ticket"));
+        verify(statement).execute(startsWith("create table rollup_hourly("));
+        verify(statement).execute(startsWith("create table ticket_archive("));
+        verify(statement).execute(startsWith("create table ticket_archive_count("));
+        verify(statement).execute(startsWith("create table replica_heartbeat("));
+        verify(statement).execute(startsWith("insert into replica_heartbeat"));
+        verify(saveVersionStatement).setInt(1, 1);
+        verify(saveVersionStatement).setString(2, "query indexes");
+        verify(saveVersionStatement).setInt(1, 2);
+        verify(saveVersionStatement).setInt(1, 3);
+        verify(saveVersionStatement).setInt(1, 4);
+        verify(saveVersionStatement).setInt(1, 5);
+        verify(statement).execute(startsWith("update ticket set VEHICLE_REG_NUMBER"));
+        verify(statement).execute(startsWith("rename table ticket_archive_count to ticket_archive_count_old"));
+        verify(saveVersionStatement).setInt(1, 6);
+        verify(statement).execute(startsWith("do RELEASE_LOCK"));
+        verify(dataBaseConfig).closeConnection(connection);
+    }
+
+    @Test
+    public void migrateSkipsAppliedScripts() throws Exception {
+        // GIVEN a database already at the latest version
+        when(versionResult.getInt(1)).thenReturn(6);
+
+        // WHEN migrating
+        int applied = schemaMigrator.migrate();
+
+        // THEN nothing runs
+        assertEquals(0, applied);
+        verify(statement, never()).execute(startsWith("create index"));
+        verify(statement, never()).execute(startsWith("create table rollup_hourly"));
+        verify(statement, never()).execute(startsWith("create table ticket_archive"));
+        verify(statement, never()).execute(startsWith("create table replica_heartbeat"));
+        verify(connection, never()).prepareStatement(anyString());
+        verify(statement).execute(startsWith("do RELEASE_LOCK"));
+    }
+}
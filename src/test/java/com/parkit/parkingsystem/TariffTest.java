@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.Tariff;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    private static Tariff tariff(String... definitions) {
+        Properties properties = new Properties();
+        properties.setProperty("timeZone", "UTC");
+        for (int i = 0; i < definitions.length; i += 2) {
+            properties.setProperty(definitions[i], definitions[i + 1]);
+        }
+        return Tariff.load(properties);
+    }
+
+    @Test
+    public void defaultTariffUsesFareRates() {
+        // GIVEN the default tariff
+        Tariff tariff = Tariff.defaultTariff();
+
+        // THEN prices follow the Fare rates, free under 30 minutes and 5% off for regular customers
+        assertEquals(187, tariff.priceInCents(ParkingType.CAR, 0, 75 * MINUTE, false));
+        assertEquals(125, tariff.priceInCents(ParkingType.BIKE, 0, 75 * MINUTE, false));
+        assertEquals(142, tariff.priceInCents(ParkingType.CAR, 0, HOUR, true));
+        assertEquals(0, tariff.priceInCents(ParkingType.CAR, 0, 29 * MINUTE, false));
+        assertEquals(75, tariff.priceInCents(ParkingType.CAR, 0, 30 * MINUTE, false));
+    }
+
+    @Test
+    public void bandReplacesRateDuringItsHours() {
+        // GIVEN cars paying half price from 20:00 to 08:00
+        Tariff tariff = tariff("CAR.rate", "2", "CAR.band.2000-0800", "1");
+
+        // THEN each part of the stay is charged at the rate of its hours, bikes keep their rate
+        assertEquals(300, tariff.priceInCents(ParkingType.CAR, 19 * HOUR, 21 * HOUR, false));
+        assertEquals(150, tariff.priceInCents(ParkingType.CAR, 7 * HOUR + 30 * MINUTE, 8 * HOUR + 30 * MINUTE, false));
+        assertEquals(200, tariff.priceInCents(ParkingType.CAR, 23 * HOUR, 25 * HOUR, false));
+        assertEquals(3600, tariff.priceInCents(ParkingType.CAR, 5 * HOUR, 5 * HOUR + 24 * HOUR, false));
+        assertEquals(200, tariff.priceInCents(ParkingType.BIKE, 19 * HOUR, 21 * HOUR, false));
+    }
+
+    @Test
+    public void dailyCapLimitsEveryStartedDay() {
+        // GIVEN cars paying at most 10 per 24 hours
+        Tariff tariff = tariff("CAR.rate", "1", "CAR.dailyCap", "10");
+
+        // THEN full days and the last started one are capped separately
+        assertEquals(500, tariff.priceInCents(ParkingType.CAR, 0, 5 * HOUR, false));
+        assertEquals(1000, tariff.priceInCents(ParkingType.CAR, 0, 12 * HOUR, false));
+        assertEquals(1600, tariff.priceInCents(ParkingType.CAR, 0, 30 * HOUR, false));
+        assertEquals(2000, tariff.priceInCents(ParkingType.CAR, 0, 48 * HOUR, false));
+        assertEquals(1900, tariff.priceInCents(ParkingType.CAR, 0, 48 * HOUR, true));
+    }
+
+    @Test
+    public void bandsFollowTheTariffTimeZone() {
+        // GIVEN a night band in a zone two hours ahead of UTC
+        Tariff tariff = tariff("CAR.rate", "2", "CAR.band.2000-0800", "1", "timeZone", "GMT+02:00");
+
+        // THEN 18:00 UTC is already in the band
+        assertEquals(100, tariff.priceInCents(ParkingType.CAR, 18 * HOUR, 19 * HOUR, false));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"CAR.band.2200-0100", "CAR.band.0700-0900", "CAR.band.1210-1300", "CAR.band.1300-1300",
+            "CAR.rates", "TRUCK.rate", "discount"})
+    public void invalidDefinitionIsRefused(String key) {
+        // THEN an exception should be thrown WHEN loading an invalid or overlapping definition
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.band.2000-0800", "1", key, "1"));
+    }
+
+    @Test
+    public void amountWithMoreThanTwoDecimalsIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.rate", "1.555"));
+    }
+}
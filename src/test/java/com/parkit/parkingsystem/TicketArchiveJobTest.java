@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ArchiveReport;
+import com.parkit.parkingsystem.service.TicketArchiveJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketArchiveJobTest {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private TicketArchiveJob ticketArchiveJob;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        ticketArchiveJob = new TicketArchiveJob(ticketDAO, BATCH_SIZE, 0);
+    }
+
+    @Test
+    public void runMovesBatchesUntilNoneIsLeftTest() throws Exception {
+        //GIVEN 250 tickets to archive
+        Date before = new Date();
+        when(ticketDAO.archiveClosedTickets(before, BATCH_SIZE)).thenReturn(100, 100, 50, 0);
+
+        //WHEN archiving them
+        ArchiveReport report = ticketArchiveJob.run(before);
+
+        //THEN they are moved in 3 batches
+        assertEquals(250, report.getMoved());
+        assertEquals(3, report.getBatches());
+        assertTrue(report.isComplete());
+        verify(ticketDAO, times(4)).archiveClosedTickets(eq(before), eq(BATCH_SIZE));
+    }
+
+    @Test
+    public void runStopsOnFailedBatchTest() throws Exception {
+        //GIVEN the second batch fails
+        when(ticketDAO.archiveClosedTickets(any(Date.class), eq(BATCH_SIZE))).thenReturn(100, -1);
+
+        //WHEN archiving
+        ArchiveReport report = ticketArchiveJob.run(new Date());
+
+        //THEN the first batch is reported and the run is incomplete
+        assertEquals(100, report.getMoved());
+        assertEquals(1, report.getBatches());
+        assertFalse(report.isComplete());
+        verify(ticketDAO, times(2)).archiveClosedTickets(any(Date.class), eq(BATCH_SIZE));
+    }
+}
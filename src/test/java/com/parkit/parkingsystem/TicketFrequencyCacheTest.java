@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.cache.TicketFrequencyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketFrequencyCacheTest {
+
+    private TicketFrequencyCache ticketFrequencyCache;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        ticketFrequencyCache = new TicketFrequencyCache(2);
+    }
+
+    @Test
+    public void loadStopsWhenFull() {
+        // WHEN loading more vehicles than the cache holds
+        boolean first = ticketFrequencyCache.load("ABCDEF", 2);
+        boolean second = ticketFrequencyCache.load("GHIJKL", 1);
+        boolean third = ticketFrequencyCache.load("MNOPQR", 5);
+
+        // THEN the last one is left to the database
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(Integer.valueOf(2), ticketFrequencyCache.get("ABCDEF"));
+        assertNull(ticketFrequencyCache.get("MNOPQR"));
+    }
+
+    @Test
+    public void leastRecentlyUsedVehicleIsEvicted() {
+        // GIVEN a full cache where ABCDEF was read last
+        ticketFrequencyCache.load("ABCDEF", 2);
+        ticketFrequencyCache.load("GHIJKL", 1);
+        ticketFrequencyCache.get("ABCDEF");
+
+        // WHEN a new vehicle is read from the database
+        ticketFrequencyCache.putIfUnchanged("MNOPQR", 0, ticketFrequencyCache.getVersion());
+
+        // THEN GHIJKL is evicted
+        assertEquals(2, ticketFrequencyCache.size());
+        assertNull(ticketFrequencyCache.get("GHIJKL"));
+        assertEquals(Integer.valueOf(0), ticketFrequencyCache.get("MNOPQR"));
+    }
+
+    @Test
+    public void incrementCountsClosedTicket() {
+        // GIVEN a cached vehicle
+        ticketFrequencyCache.load("ABCDEF", 2);
+
+        // WHEN tickets are closed for it and for a vehicle not cached
+        ticketFrequencyCache.increment("ABCDEF");
+        ticketFrequencyCache.increment("GHIJKL");
+
+        // THEN only the cached count changes
+        assertEquals(Integer.valueOf(3), ticketFrequencyCache.get("ABCDEF"));
+        assertNull(ticketFrequencyCache.get("GHIJKL"));
+    }
+
+    @Test
+    public void staleDatabaseReadIsNotCached() {
+        // GIVEN a database read started before a ticket was closed
+        long readVersion = ticketFrequencyCache.getVersion();
+        ticketFrequencyCache.increment("ABCDEF");
+
+        // WHEN storing the count read
+        ticketFrequencyCache.putIfUnchanged("ABCDEF", 0, readVersion);
+
+        // THEN it is dropped
+        assertNull(ticketFrequencyCache.get("ABCDEF"));
+    }
+
+    @Test
+    public void vehiclesAreCachedByNormalisedPlate() {
+        // GIVEN a cached vehicle
+        ticketFrequencyCache.load("AB-123-CD", 2);
+
+        // WHEN reading it written differently, and a plate that cannot be packed
+        Integer count = ticketFrequencyCache.get("ab 123 cd");
+        ticketFrequencyCache.putIfUnchanged("AB_12", 1, ticketFrequencyCache.getVersion());
+
+        // THEN the plate is found, the other one is left to the database
+        assertEquals(Integer.valueOf(2), count);
+        assertNull(ticketFrequencyCache.get("AB_12"));
+        assertEquals(1, ticketFrequencyCache.size());
+    }
+}
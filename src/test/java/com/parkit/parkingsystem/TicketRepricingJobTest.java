@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.TicketRepricingJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TicketRepricingJobTest {
+
+    private static final int TICKETS = 2500;
+    private static final int CHUNK_SIZE = 1000;
+
+    @Mock
+    private TicketDAO ticketDAO;
+
+    private TicketRepricingJob ticketRepricingJob;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        ticketRepricingJob = new TicketRepricingJob(ticketDAO, new FareCalculatorService(), 4, CHUNK_SIZE);
+    }
+
+    /**
+     * Stream tickets of one hour by car: every third one already has the right price, every other one is regular.
+     */
+    @SuppressWarnings("unchecked")
+    private void streamTickets(Ticket... extraTickets) {
+        doAnswer(invocation -> {
+            BiConsumer<Ticket, Boolean> handler = invocation.getArgument(2);
+            for (int i = 0; i < TICKETS; i++) {
+                Ticket ticket = new Ticket();
+                ticket.setId(i);
+                ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+                ticket.setVehicleRegNumber("VEH" + i);
+                ticket.setInTime(new Date(0));
+                ticket.setOutTime(new Date(60 * 60 * 1000));
+                boolean regular = i % 2 == 0;
+                ticket.setPrice((i % 3 == 0) ? (regular ? 1.42 : 1.5) : 0);
+                handler.accept(ticket, regular);
+            }
+            for (Ticket ticket : extraTickets) {
+                handler.accept(ticket, false);
+            }
+            return true;
+        }).when(ticketDAO).streamClosedTickets(any(Date.class), any(Date.class), any(BiConsumer.class));
+    }
+
+    @Test
+    public void changedPricesAreStoredInBatches() throws Exception {
+        // GIVEN tickets of which two thirds have an outdated price
+        streamTickets();
+        List<List<Ticket>> batches = Collections.synchronizedList(new ArrayList<>());
+        when(ticketDAO.updateTicketPrices(anyList())).thenAnswer(invocation -> batches.add(new ArrayList<>(invocation.getArgument(0))));
+
+        // WHEN re-pricing them
+        RepricingReport report = ticketRepricingJob.run(new Date(0), new Date());
+
+        // THEN only the outdated ones are stored, at most one chunk per batch, with the discount of regular customers
+        int outdated = TICKETS - (TICKETS + 2) / 3;
+        assertTrue(report.isComplete());
+        assertEquals(TICKETS, report.getRead());
+        assertEquals(outdated, report.getChanged());
+        assertEquals(0, report.getFailed());
+        int stored = 0;
+        for (List<Ticket> batch : batches) {
+            assertTrue(batch.size() <= CHUNK_SIZE);
+            for (Ticket ticket : batch) {
+                assertEquals((ticket.getId() % 2 == 0) ? 1.42 : 1.5, ticket.getPrice());
+                stored++;
+            }
+        }
+        assertEquals(outdated, stored);
+    }
+
+    @Test
+    public void failuresAreCounted() throws Exception {
+        // GIVEN a ticket that cannot be priced, and a database refusing the updates
+        Ticket incoherent = new Ticket();
+        incoherent.setParkingSpot(new ParkingSpot(1, ParkingType.BIKE, false));
+        incoherent.setInTime(new Date(60 * 60 * 1000));
+        incoherent.setOutTime(new Date(0));
+        streamTickets(incoherent);
+        when(ticketDAO.updateTicketPrices(anyList())).thenReturn(false);
+
+        // WHEN re-pricing them
+        RepricingReport report = ticketRepricingJob.run(new Date(0), new Date());
+
+        // THEN every outdated ticket and the incoherent one are reported as failed
+        assertEquals(TICKETS + 1, report.getRead());
+        assertEquals(0, report.getChanged());
+        assertEquals(TICKETS - (TICKETS + 2) / 3 + 1, report.getFailed());
+    }
+}
@@ -0,0 +1,211 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link TicketStore} must have, run against each implementation by its subclass.
+ * Times are whole seconds, as stored by the database.
+ */
+public abstract class TicketStoreContract {
+
+    private static final long HOUR = 3600 * 1000L;
+    private static final String VEHICLE_REG_NUMBER = "ABCDEF";
+
+    protected TicketStore ticketStore;
+
+    /**
+     * @return an empty store, refusing a second open ticket of a vehicle, of the default lot
+     */
+    protected abstract TicketStore createTicketStore();
+
+    @BeforeEach
+    public void setUpPerTest() {
+        ticketStore = createTicketStore();
+    }
+
+    private static Ticket ticket(String vehicleRegNumber, int parkingNumber, long inTime, Long outTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime((outTime == null) ? null : new Date(outTime));
+        return ticket;
+    }
+
+    @Test
+    public void savedTicketIsOpen() {
+        // GIVEN a vehicle entering
+        Ticket ticket = ticket(VEHICLE_REG_NUMBER, 2, HOUR, null);
+
+        // WHEN its ticket is saved
+        boolean saved = ticketStore.saveTicket(ticket);
+
+        // THEN it gets an ID and is parked
+        assertTrue(saved);
+        assertTrue(ticket.getId() > 0);
+        Ticket openTicket = ticketStore.getOpenTicket(VEHICLE_REG_NUMBER);
+        assertEquals(ticket.getId(), openTicket.getId());
+        assertEquals(new ParkingSpot(2, ParkingType.CAR, false), openTicket.getParkingSpot());
+        assertEquals(HOUR, openTicket.getInTime().getTime());
+        assertNull(openTicket.getOutTime());
+        assertTrue(ticketStore.isParked(VEHICLE_REG_NUMBER));
+        assertEquals(Integer.valueOf(0), ticketStore.getNbTicket(VEHICLE_REG_NUMBER));
+    }
+
+    @Test
+    public void secondOpenTicketIsRefused() {
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, HOUR, null));
+
+        assertFalse(ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 2, 2 * HOUR, null)));
+        assertEquals(1, ticketStore.getTicket(VEHICLE_REG_NUMBER).getParkingSpot().getId());
+    }
+
+    @Test
+    public void updatedTicketIsClosed() {
+        // GIVEN a parked vehicle
+        Ticket ticket = ticket(VEHICLE_REG_NUMBER, 1, HOUR, null);
+        ticketStore.saveTicket(ticket);
+
+        // WHEN it exits
+        ticket.setOutTime(new Date(2 * HOUR));
+        ticket.setPrice(1.5);
+        boolean updated = ticketStore.updateTicket(ticket);
+
+        // THEN its ticket is closed with its price
+        assertTrue(updated);
+        assertNull(ticketStore.getOpenTicket(VEHICLE_REG_NUMBER));
+        assertFalse(ticketStore.isParked(VEHICLE_REG_NUMBER));
+        assertEquals(Integer.valueOf(1), ticketStore.getNbTicket(VEHICLE_REG_NUMBER));
+        Ticket closedTicket = ticketStore.getTicket(VEHICLE_REG_NUMBER);
+        assertEquals(1.5, closedTicket.getPrice());
+        assertEquals(2 * HOUR, closedTicket.getOutTime().getTime());
+    }
+
+    @Test
+    public void closedTicketIsNotClosedAgain() {
+        // GIVEN a vehicle that left
+        Ticket ticket = ticket(VEHICLE_REG_NUMBER, 1, HOUR, null);
+        ticketStore.saveTicket(ticket);
+        ticket.setOutTime(new Date(2 * HOUR));
+        ticket.setPrice(1.5);
+        ticketStore.updateTicket(ticket);
+
+        // WHEN its ticket is closed a second time
+        ticket.setOutTime(new Date(3 * HOUR));
+        ticket.setPrice(3);
+        boolean updated = ticketStore.updateTicket(ticket);
+
+        // THEN it is refused and the first exit is kept
+        assertFalse(updated);
+        assertEquals(Integer.valueOf(1), ticketStore.getNbTicket(VEHICLE_REG_NUMBER));
+        Ticket closedTicket = ticketStore.getTicket(VEHICLE_REG_NUMBER);
+        assertEquals(1.5, closedTicket.getPrice());
+        assertEquals(2 * HOUR, closedTicket.getOutTime().getTime());
+    }
+
+    @Test
+    public void lastTicketIsTheLatestEntry() {
+        // GIVEN a vehicle that came twice
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 2, 3 * HOUR, null));
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, HOUR, 2 * HOUR));
+
+        // THEN the last ticket is the one of the latest entry, whatever the saving order
+        assertEquals(2, ticketStore.getTicket(VEHICLE_REG_NUMBER).getParkingSpot().getId());
+        assertEquals(Integer.valueOf(1), ticketStore.getNbTicket(VEHICLE_REG_NUMBER));
+        assertNull(ticketStore.getTicket("UNKNOWN"));
+        assertNull(ticketStore.getOpenTicket("UNKNOWN"));
+        assertEquals(Integer.valueOf(0), ticketStore.getNbTicket("UNKNOWN"));
+    }
+
+    @Test
+    public void openTicketsAreListed() {
+        // GIVEN a parked vehicle, and another that left
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, HOUR, null));
+        ticketStore.saveTicket(ticket("GHIJKL", 2, HOUR, 2 * HOUR));
+
+        // WHEN listing the open tickets
+        List<Ticket> openTickets = ticketStore.getOpenTickets();
+
+        // THEN only the parked vehicle is listed, with its spot
+        assertEquals(1, openTickets.size());
+        assertEquals(VEHICLE_REG_NUMBER, openTickets.get(0).getVehicleRegNumber());
+        assertEquals(1, openTickets.get(0).getParkingSpot().getId());
+    }
+
+    @Test
+    public void ticketsAreSavedAllOrNone() {
+        // GIVEN a parked vehicle
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, HOUR, null));
+
+        // WHEN saving two vehicles, then two vehicles including the parked one
+        List<Ticket> tickets = Arrays.asList(ticket("GHIJKL", 2, HOUR, null), ticket("MNOPQR", 3, HOUR, null));
+        boolean saved = ticketStore.saveTickets(tickets);
+        boolean savedWithParked = ticketStore.saveTickets(Arrays.asList(
+                ticket("STUVWX", 2, 2 * HOUR, null), ticket(VEHICLE_REG_NUMBER, 3, 2 * HOUR, null)));
+
+        // THEN the first ones get their IDs, the others are not saved
+        assertTrue(saved);
+        assertTrue(tickets.get(0).getId() > 0);
+        assertNotEquals(tickets.get(0).getId(), tickets.get(1).getId());
+        assertTrue(ticketStore.isParked("MNOPQR"));
+        assertFalse(savedWithParked);
+        assertNull(ticketStore.getTicket("STUVWX"));
+    }
+
+    @Test
+    public void closedTicketsAreStreamedWithRegularFlag() {
+        // GIVEN a vehicle that came three times, the last one still parked, and another that came once
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, HOUR, 2 * HOUR));
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, 10 * HOUR, 12 * HOUR));
+        ticketStore.saveTicket(ticket(VEHICLE_REG_NUMBER, 1, 20 * HOUR, null));
+        ticketStore.saveTicket(ticket("GHIJKL", 2, 5 * HOUR, 11 * HOUR));
+
+        // WHEN streaming the tickets closed from 10:00 to 20:00
+        Map<Integer, Boolean> regulars = new HashMap<>();
+        List<Ticket> streamed = new ArrayList<>();
+        boolean complete = ticketStore.streamClosedTickets(new Date(10 * HOUR), new Date(20 * HOUR), (ticket, regular) -> {
+            streamed.add(ticket);
+            regulars.put(ticket.getId(), regular);
+        });
+
+        // THEN only those two come, the second visit being regular
+        assertTrue(complete);
+        assertEquals(2, streamed.size());
+        for (Ticket ticket : streamed) {
+            assertEquals(VEHICLE_REG_NUMBER.equals(ticket.getVehicleRegNumber()), regulars.get(ticket.getId()));
+        }
+    }
+
+    @Test
+    public void ticketPricesAreStored() {
+        // GIVEN two closed tickets
+        Ticket first = ticket(VEHICLE_REG_NUMBER, 1, HOUR, 2 * HOUR);
+        Ticket second = ticket("GHIJKL", 2, HOUR, 3 * HOUR);
+        ticketStore.saveTicket(first);
+        ticketStore.saveTicket(second);
+
+        // WHEN storing their new prices
+        first.setPrice(1.5);
+        second.setPrice(3);
+        boolean updated = ticketStore.updateTicketPrices(Arrays.asList(first, second));
+
+        // THEN both are priced
+        assertTrue(updated);
+        assertEquals(1.5, ticketStore.getTicket(VEHICLE_REG_NUMBER).getPrice());
+        assertEquals(3, ticketStore.getTicket("GHIJKL").getPrice());
+    }
+}
@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.SimulationReport;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.TrafficSimulator;
+import com.parkit.parkingsystem.service.TrafficSimulator.StayLength;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficSimulatorTest {
+
+    @Test
+    public void gatesShareTheLotWithoutDoubleAllocation() throws Exception {
+        // GIVEN four gates sending more vehicles than a lot of 3 car and 2 bike spots can hold
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(3, 2);
+        TrafficSimulator simulator = new TrafficSimulator(parkingSpotStore, new InMemoryTicketStore(),
+                new FareCalculatorService(), 4, 400, 0.02, StayLength.EXPONENTIAL, 0.8, 0.5);
+
+        // WHEN they run for a second
+        SimulationReport report = simulator.run(1000);
+
+        // THEN every arrival is either let in or refused and timed, no spot is given twice, the lot is empty again
+        assertTrue(report.getArrivals() > 100);
+        assertEquals(report.getArrivals(), report.getEntries() + report.getAllocationFailures());
+        assertEquals(report.getArrivals(), report.getEntryLatency().getCount());
+        assertTrue(report.getAllocationFailures() > 0);
+        assertEquals(0, report.getDoubleAllocations());
+        assertTrue(report.getExits() > 0);
+        assertEquals(0, report.getFailedExits());
+        assertEquals(Integer.valueOf(3), parkingSpotStore.getAvailableSlotCounts().get(ParkingType.CAR));
+        assertEquals(Integer.valueOf(2), parkingSpotStore.getAvailableSlotCounts().get(ParkingType.BIKE));
+    }
+
+    @Test
+    public void spotGivenTwiceIsReported() throws Exception {
+        // GIVEN a lot that gives spot 1 to every car, and cars staying longer than the run
+        InMemoryParkingSpotStore parkingSpotStore = new InMemoryParkingSpotStore(3, 2) {
+            @Override
+            public List<Integer> claimAvailableSlots(ParkingType parkingType, int count) {
+                return Collections.singletonList(1);
+            }
+        };
+        TrafficSimulator simulator = new TrafficSimulator(parkingSpotStore, new InMemoryTicketStore(),
+                new FareCalculatorService(), 1, 100, 60, StayLength.FIXED, 1, 0);
+
+        // WHEN the gate runs
+        SimulationReport report = simulator.run(300);
+
+        // THEN every car after the first is a double allocation
+        assertTrue(report.getEntries() > 1);
+        assertEquals(report.getEntries() - 1, report.getDoubleAllocations());
+        assertEquals(0, report.getExits());
+    }
+}
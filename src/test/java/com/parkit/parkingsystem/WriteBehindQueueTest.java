@@ -0,0 +1,204 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.WriteBehindQueue;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindQueueTest {
+
+    @Mock
+    private DataBaseConfig dataBaseConfig;
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement saveTicketStatement;
+    @Mock
+    private PreparedStatement updateParkingStatement;
+    @Mock
+    private PreparedStatement updateTicketStatement;
+    @Mock
+    private PreparedStatement addRollupStatement;
+    @Mock
+    private ResultSet generatedKeys;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        lenient().when(dataBaseConfig.getConnection()).thenReturn(connection);
+        lenient().when(dataBaseConfig.prepareStatement(eq(connection), eq(DBConstants.SAVE_TICKET), anyInt())).thenReturn(saveTicketStatement);
+        lenient().when(dataBaseConfig.prepareStatement(eq(connection), eq(DBConstants.UPDATE_PARKING_SPOT), anyInt())).thenReturn(updateParkingStatement);
+        lenient().when(dataBaseConfig.prepareStatement(eq(connection), eq(DBConstants.UPDATE_TICKET), anyInt())).thenReturn(updateTicketStatement);
+        lenient().when(dataBaseConfig.prepareStatement(connection, DBConstants.ADD_HOURLY_ROLLUP)).thenReturn(addRollupStatement);
+        lenient().when(saveTicketStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        lenient().when(generatedKeys.next()).thenReturn(true);
+        lenient().when(generatedKeys.getInt(1)).thenReturn(42);
+    }
+
+    private static Ticket newTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    @Test
+    public void queuedWritesShareOneCommit() throws Exception {
+        // GIVEN a queue waiting long enough to group writes
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 200);
+        Ticket ticket = newTicket();
+        AtomicBoolean spotWritten = new AtomicBoolean();
+
+        // WHEN a spot update and a ticket are queued then flushed
+        writeBehindQueue.updateParking(new ParkingSpot(2, ParkingType.CAR, true), () -> spotWritten.set(true));
+        writeBehindQueue.saveTicket(ticket);
+        assertTrue(writeBehindQueue.hasPendingWrites("ABCDEF"));
+        writeBehindQueue.flush();
+
+        // THEN both are stored in one transaction and the ticket gets its ID
+        verify(connection, times(1)).commit();
+        verify(updateParkingStatement).executeBatch();
+        verify(saveTicketStatement).executeBatch();
+        assertEquals(42, ticket.getId());
+        assertTrue(spotWritten.get());
+        assertFalse(writeBehindQueue.hasPendingWrites("ABCDEF"));
+        writeBehindQueue.shutdown();
+    }
+
+    @Test
+    public void shutdownStoresQueuedWrites() throws Exception {
+        // GIVEN writes queued in a queue with a long flush interval
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 60000);
+        writeBehindQueue.updateParking(new ParkingSpot(1, ParkingType.CAR, true), null);
+        writeBehindQueue.updateParking(new ParkingSpot(2, ParkingType.CAR, true), null);
+
+        // WHEN shutting down
+        writeBehindQueue.shutdown();
+
+        // THEN the writes are stored and no more writes are accepted
+        verify(updateParkingStatement, times(2)).addBatch();
+        verify(connection).commit();
+        assertEquals(0, writeBehindQueue.getPendingCount());
+        assertThrows(IllegalStateException.class, () -> writeBehindQueue.saveTicket(newTicket()));
+    }
+
+    @Test
+    public void failedBatchIsRetriedOneWriteAtATime() throws Exception {
+        // GIVEN a database refusing the first batch
+        when(updateParkingStatement.executeBatch()).thenThrow(new SQLException("deadlock")).thenReturn(new int[]{1});
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 200);
+
+        // WHEN two spot updates are stored
+        writeBehindQueue.updateParking(new ParkingSpot(1, ParkingType.CAR, true), null);
+        writeBehindQueue.updateParking(new ParkingSpot(2, ParkingType.CAR, true), null);
+        writeBehindQueue.shutdown();
+
+        // THEN the batch is rolled back and each write committed on its own
+        verify(connection).rollback();
+        verify(connection, times(2)).commit();
+    }
+
+    @Test
+    public void ticketNotOpenAnymoreAddsNoRollup() throws Exception {
+        // GIVEN a car ticket and a bike ticket closed, the bike one already closed in the database
+        when(updateTicketStatement.executeBatch()).thenReturn(new int[]{1, 0});
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 200);
+        writeBehindQueue.hourlyRollups = true;
+        Ticket car = newTicket();
+        car.setInTime(new Date(3600 * 1000L));
+        car.setOutTime(new Date(3600 * 1000L + 60 * 1000L));
+        car.setPrice(1.5);
+        Ticket bike = newTicket();
+        bike.setParkingSpot(new ParkingSpot(4, ParkingType.BIKE, false));
+        bike.setInTime(car.getInTime());
+        bike.setOutTime(car.getOutTime());
+        bike.setPrice(1);
+
+        // WHEN both updates are stored
+        writeBehindQueue.updateTicket(car);
+        writeBehindQueue.updateTicket(bike);
+        writeBehindQueue.shutdown();
+
+        // THEN only the car ticket is rolled up
+        verify(addRollupStatement).setString(2, "CAR");
+        verify(addRollupStatement, never()).setString(2, "BIKE");
+        verify(connection).commit();
+    }
+
+    @Test
+    public void ticketNotOpenAnymoreIsNotReportedClosed() throws Exception {
+        // GIVEN two tickets closed, the second one already closed in the database
+        when(updateTicketStatement.executeBatch()).thenReturn(new int[]{1, 0});
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 200);
+        Ticket first = newTicket();
+        first.setOutTime(new Date());
+        Ticket second = newTicket();
+        second.setOutTime(new Date());
+        AtomicBoolean firstClosed = new AtomicBoolean();
+        AtomicBoolean secondClosed = new AtomicBoolean();
+
+        // WHEN both updates are stored
+        writeBehindQueue.updateTicket(first, () -> firstClosed.set(true));
+        writeBehindQueue.updateTicket(second, () -> secondClosed.set(true));
+        writeBehindQueue.shutdown();
+
+        // THEN only the first one is reported closed, e.g. to the frequency cache
+        assertTrue(firstClosed.get());
+        assertFalse(secondClosed.get());
+    }
+
+    @Test
+    public void failingCallbackDoesNotStopTheWriter() throws Exception {
+        // GIVEN a spot update whose callback throws
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 10);
+        writeBehindQueue.updateParking(new ParkingSpot(1, ParkingType.CAR, true), () -> {
+            throw new IllegalStateException("index out of date");
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(5), writeBehindQueue::flush);
+        AtomicBoolean spotWritten = new AtomicBoolean();
+
+        // WHEN another write is queued and flushed
+        writeBehindQueue.updateParking(new ParkingSpot(2, ParkingType.CAR, true), () -> spotWritten.set(true));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), writeBehindQueue::flush);
+
+        // THEN the writer stored it
+        assertTrue(spotWritten.get());
+        assertEquals(0, writeBehindQueue.getPendingCount());
+        writeBehindQueue.shutdown();
+    }
+
+    @Test
+    public void lostTicketDoesNotKeepARolledBackId() throws Exception {
+        // GIVEN a database whose commits fail after the ticket got its generated key
+        doThrow(new SQLException("connection lost")).when(connection).commit();
+        WriteBehindQueue writeBehindQueue = new WriteBehindQueue(dataBaseConfig, 10, 10, 10);
+        Ticket ticket = newTicket();
+
+        // WHEN the ticket is saved
+        writeBehindQueue.saveTicket(ticket);
+        writeBehindQueue.shutdown();
+
+        // THEN its ID is not the one of the rolled back insert
+        verify(saveTicketStatement, times(2)).executeBatch();
+        assertEquals(0, ticket.getId());
+    }
+}
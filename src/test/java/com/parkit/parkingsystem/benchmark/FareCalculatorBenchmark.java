@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.Tariff;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fare of one ticket, with and without the regular customer discount, and the price truncation.
+ * {@code switchCarFare} is the fare computed before the {@link Tariff} tables, as a baseline,
+ * and {@code bandedCarFare} the fare of a tariff with a night band and a daily cap.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FareCalculatorBenchmark {
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private FareCalculatorService bandedFareCalculatorService;
+    private Ticket carTicket;
+    private Ticket bikeTicket;
+    // read from a field so the truncation is not constant folded
+    private double price = 11.2587;
+
+    private static Ticket ticket(ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(0));
+        ticket.setOutTime(new Date(75 * 60 * 1000)); // 1h15
+        return ticket;
+    }
+
+    @Setup
+    public void setUp() {
+        carTicket = ticket(ParkingType.CAR);
+        bikeTicket = ticket(ParkingType.BIKE);
+        Properties properties = new Properties();
+        properties.setProperty("CAR.band.2000-0800", "0.75");
+        properties.setProperty("CAR.dailyCap", "15");
+        bandedFareCalculatorService = new FareCalculatorService(Tariff.load(properties));
+    }
+
+    private static double switchPrice(Ticket ticket, boolean discount) {
+        double duration = (ticket.getOutTime().getTime() - ticket.getInTime().getTime()) / (1000. * 3600);
+        double price;
+        if (duration < 0.5) {
+            return 0;
+        }
+        switch (ticket.getParkingSpot().getParkingType()) {
+            case CAR:
+                price = duration * Fare.CAR_RATE_PER_HOUR;
+                break;
+            case BIKE:
+                price = duration * Fare.BIKE_RATE_PER_HOUR;
+                break;
+            default:
+                throw new IllegalArgumentException("Unkown Parking Type");
+        }
+        if (discount) {
+            price = price - (0.05 * price);
+        }
+        return FareCalculatorService.truncatePrice(price);
+    }
+
+    @Benchmark
+    public double carFare() {
+        fareCalculatorService.calculateFare(carTicket);
+        return carTicket.getPrice();
+    }
+
+    @Benchmark
+    public double switchCarFare() {
+        carTicket.setPrice(switchPrice(carTicket, false));
+        return carTicket.getPrice();
+    }
+
+    @Benchmark
+    public double bandedCarFare() {
+        bandedFareCalculatorService.calculateFare(carTicket);
+        return carTicket.getPrice();
+    }
+
+    @Benchmark
+    public double carFareWithDiscount() {
+        fareCalculatorService.calculateFare(carTicket, true);
+        return carTicket.getPrice();
+    }
+
+    @Benchmark
+    public double bikeFare() {
+        fareCalculatorService.calculateFare(bikeTicket);
+        return bikeTicket.getPrice();
+    }
+
+    @Benchmark
+    public double bikeFareWithDiscount() {
+        fareCalculatorService.calculateFare(bikeTicket, true);
+        return bikeTicket.getPrice();
+    }
+
+    @Benchmark
+    public double truncatePrice() {
+        return FareCalculatorService.truncatePrice(price);
+    }
+}
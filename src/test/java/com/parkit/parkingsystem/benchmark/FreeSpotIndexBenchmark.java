@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.FreeSpotIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next free spot lookup: in-memory {@link FreeSpotIndex} against the min(PARKING_NUMBER) query.
+ * Half of the lot is occupied so both paths have to skip taken spots.
+ * The SQL benchmarks need the MySQL test database and rewrite its parking table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FreeSpotIndexBenchmark {
+
+    private static List<ParkingSpot> halfOccupiedLot(int spots) {
+        List<ParkingSpot> parkingSpots = new ArrayList<>(spots);
+        for (int number = 1; number <= spots; number++) {
+            ParkingType parkingType = (number % 10 == 0) ? ParkingType.BIKE : ParkingType.CAR;
+            parkingSpots.add(new ParkingSpot(number, parkingType, number > spots / 2));
+        }
+        return parkingSpots;
+    }
+
+    @State(Scope.Benchmark)
+    public static class IndexState {
+        @Param({"10000", "100000"})
+        int spots;
+
+        FreeSpotIndex freeSpotIndex;
+
+        @Setup
+        public void setUp() {
+            freeSpotIndex = FreeSpotIndex.load(halfOccupiedLot(spots));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SqlState {
+        @Param({"10000", "100000"})
+        int spots;
+
+        final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+        final ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+
+        @Setup
+        public void setUp() throws Exception {
+            parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+            Connection con = dataBaseTestConfig.getConnection();
+            try {
+                execute(con, "truncate table ticket");
+                execute(con, "delete from parking");
+                con.setAutoCommit(false);
+                PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,?,?)");
+                for (ParkingSpot parkingSpot : halfOccupiedLot(spots)) {
+                    ps.setInt(1, parkingSpot.getId());
+                    ps.setBoolean(2, parkingSpot.isAvailable());
+                    ps.setString(3, parkingSpot.getParkingType().toString());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ps.close();
+                con.commit();
+            } finally {
+                dataBaseTestConfig.closeConnection(con);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            // back to the lot of Data.sql
+            Connection con = dataBaseTestConfig.getConnection();
+            try {
+                execute(con, "delete from parking");
+                execute(con, "insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values"
+                        + "(1,true,'CAR'),(2,true,'CAR'),(3,true,'CAR'),(4,true,'BIKE'),(5,true,'BIKE')");
+            } finally {
+                dataBaseTestConfig.closeConnection(con);
+            }
+        }
+
+        private static void execute(Connection con, String sql) throws Exception {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.execute();
+            ps.close();
+        }
+    }
+
+    @Benchmark
+    public int indexNextFree(IndexState state) {
+        return state.freeSpotIndex.nextFree(ParkingType.CAR);
+    }
+
+    @Benchmark
+    public int indexClaimAndRelease(IndexState state) {
+        int number = state.freeSpotIndex.claim(ParkingType.CAR);
+        state.freeSpotIndex.release(new ParkingSpot(number, ParkingType.CAR, true));
+        return number;
+    }
+
+    @Benchmark
+    public int sqlNextAvailableSlot(SqlState state) {
+        return state.parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+}
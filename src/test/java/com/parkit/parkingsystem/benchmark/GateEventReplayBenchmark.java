@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.GateEvent;
+import com.parkit.parkingsystem.event.GateEventLog;
+import com.parkit.parkingsystem.event.GateProjections;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateEventReplay;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Replay of one day of gate events into new {@link GateProjections}, from a file written in a temporary directory
+ * (and most likely read from the page cache). Each visit is four events: spot taken, ticket opened, ticket closed
+ * and spot freed, the visits spread over the day with at most 1000 vehicles parked. The score is in events per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GateEventReplayBenchmark {
+
+    private static final int EVENTS_PER_VISIT = 4;
+    private static final int PARKED = 1000;
+    // 250 000 visits
+    private static final int EVENTS = 1000000;
+
+    private Path directory;
+    private List<Path> day;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("gate-events");
+        long start = LocalDate.of(2026, 3, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        int visits = EVENTS / EVENTS_PER_VISIT;
+        long interval = TimeUnit.DAYS.toMillis(1) / (visits + PARKED);
+        GateEventLog eventLog = new GateEventLog(directory, ZoneOffset.UTC);
+        Ticket[] parked = new Ticket[PARKED];
+        for (int visit = 0; visit < visits + PARKED; visit++) {
+            long time = start + visit * interval;
+            Ticket leaving = parked[visit % PARKED];
+            if (leaving != null) {
+                leaving.setOutTime(new Date(time));
+                leaving.setPrice(1.5);
+                eventLog.append(GateEvent.ticketClosed(time, leaving));
+                eventLog.append(GateEvent.spotFreed(time, leaving.getParkingSpot()));
+                parked[visit % PARKED] = null;
+            }
+            if (visit < visits) {
+                Ticket ticket = new Ticket();
+                ticket.setParkingSpot(new ParkingSpot(visit % PARKED + 1, ParkingType.CAR, false));
+                // regulars come back every 10 000 visits
+                ticket.setVehicleRegNumber("BM" + (visit % 10000 + 100000));
+                ticket.setInTime(new Date(time));
+                eventLog.append(GateEvent.spotTaken(time, ticket.getParkingSpot()));
+                eventLog.append(GateEvent.ticketOpened(time, ticket));
+                parked[visit % PARKED] = ticket;
+            }
+        }
+        eventLog.close();
+        day = Collections.singletonList(GateEventLog.fileOf(directory, LocalDate.of(2026, 3, 1)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public GateProjections replayDay() throws IOException {
+        GateProjections projections = new GateProjections();
+        GateEventReplay.replay(day, projections);
+        return projections;
+    }
+}
@@ -0,0 +1,65 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.GateJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Journal appends of one entry and exit (spot taken, ticket opened, ticket closed, spot freed), in a temporary
+ * directory. The journal is forced to disk in the background every 10 ms, and snapshotted each time it is full.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GateJournalBenchmark {
+
+    private Path directory;
+    private GateJournal journal;
+    private ParkingSpot parkingSpot;
+    private Ticket ticket;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("gate-journal");
+        journal = new GateJournal(directory, GateJournal.DEFAULT_CAPACITY, GateJournal.DEFAULT_SYNC_INTERVAL_MS);
+        parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void spotRecord() {
+        journal.spotTaken(parkingSpot);
+    }
+
+    @Benchmark
+    public void entryExitRecords() {
+        journal.spotTaken(parkingSpot);
+        journal.ticketOpened(ticket);
+        journal.ticketClosed(ticket);
+        journal.spotFreed(parkingSpot);
+    }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.VehicleExit;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of logging on the gate thread. The *Synchronous benchmarks run with log4j2-sync-benchmark.xml,
+ * synchronous loggers flushing every event and the connection chatter enabled, as logging was before
+ * log4j2.xml; the others run with log4j2.xml. Logs are written to target/benchmark-logs.
+ * <ul>
+ * <li>closeResources*: DataBaseConfig closing a result set, a statement and an unpooled connection (no-op stubs)</li>
+ * <li>serverCycle*: one entry and exit through ParkingService in memory, audit events included, plus CPU work
+ * standing in for the database round trips, so the events come at a rate the log writer sustains as with real gates
+ * (flooded, the ring buffer fills up and the gate waits for the writer). Vehicles rotate and the stores are emptied
+ * every iteration, so the ticket history of a vehicle stays short</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dparkit.audit.dir=target/benchmark-logs")
+@State(Scope.Thread)
+public class LoggingBenchmark {
+
+    private static final String SYNCHRONOUS_CONFIGURATION = "-Dlog4j.configurationFile=log4j2-sync-benchmark.xml";
+    private static final int VEHICLES = 4096;
+    private static final long DATABASE_WORK_TOKENS = 10_000;
+
+    private DataBaseConfig dataBaseConfig;
+    private ResultSet resultSet;
+    private PreparedStatement preparedStatement;
+    private Connection connection;
+    private ParkingService parkingService;
+    private final String[] vehicleRegNumbers = new String[VEHICLES];
+    private int vehicle;
+
+    @SuppressWarnings("unchecked")
+    private static <T> T noOp(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> null);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataBaseConfig = new DataBaseConfig();
+        resultSet = noOp(ResultSet.class);
+        preparedStatement = noOp(PreparedStatement.class);
+        connection = noOp(Connection.class);
+        for (int i = 0; i < VEHICLES; i++) {
+            vehicleRegNumbers[i] = "VEH" + i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        parkingService = new ParkingService(null, new InMemoryParkingSpotStore(3, 2), new InMemoryTicketStore());
+    }
+
+    private void closeAll() {
+        dataBaseConfig.closeResultSet(resultSet);
+        dataBaseConfig.closePreparedStatement(preparedStatement);
+        dataBaseConfig.closeConnection(connection);
+    }
+
+    private VehicleExit entryExit() {
+        String vehicleRegNumber = vehicleRegNumbers[vehicle++ & (VEHICLES - 1)];
+        parkingService.processIncomingVehicle(vehicleRegNumber, ParkingType.CAR);
+        VehicleExit exit = parkingService.processExitingVehicle(vehicleRegNumber);
+        Blackhole.consumeCPU(DATABASE_WORK_TOKENS);
+        return exit;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dparkit.audit.dir=target/benchmark-logs", SYNCHRONOUS_CONFIGURATION})
+    public void closeResourcesSynchronous() {
+        closeAll();
+    }
+
+    @Benchmark
+    public void closeResources() {
+        closeAll();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Dparkit.audit.dir=target/benchmark-logs", SYNCHRONOUS_CONFIGURATION})
+    public VehicleExit serverCycleSynchronous() {
+        return entryExit();
+    }
+
+    @Benchmark
+    public VehicleExit serverCycle() {
+        return entryExit();
+    }
+}
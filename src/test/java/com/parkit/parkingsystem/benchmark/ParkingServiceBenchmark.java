@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.VehicleExit;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One vehicle entering then exiting through ParkingService, with in-memory DAO stand-ins so only
+ * the service code is measured: the console flow, and the flow used by the HTTP server.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParkingServiceBenchmark {
+
+    private static final String VEHICLE_REG_NUMBER = "ABCDEF";
+
+    private ParkingService parkingService;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InputReaderUtil carDriver = new InputReaderUtil() {
+            @Override
+            public int readSelection() {
+                return 1;
+            }
+
+            @Override
+            public String readVehicleRegistrationNumber() {
+                return VEHICLE_REG_NUMBER;
+            }
+        };
+        parkingService = new ParkingService(carDriver, new InMemoryParkingSpotStore(3, 2), new InMemoryTicketStore());
+        // the console flow prints its receipts
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void consoleCycle() {
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+
+    @Benchmark
+    public VehicleExit serverCycle() {
+        parkingService.processIncomingVehicle(VEHICLE_REG_NUMBER, ParkingType.CAR);
+        return parkingService.processExitingVehicle(VEHICLE_REG_NUMBER);
+    }
+}
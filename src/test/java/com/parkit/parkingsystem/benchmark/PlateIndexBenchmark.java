@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.cache.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-vehicle counts keyed by plate: {@link LongIntHashMap} of {@link PlateCodec} codes against a HashMap of Strings.
+ * The lookups start from a plate String, as the gates get them, so the encoding is part of the measured time.
+ * The build benchmarks make one map per call; with the gc profiler their normalised allocation is the footprint
+ * of a map, the plate Strings included for the HashMap since it keeps them, as both are sized up front and
+ * the counts stay within the Integer cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx6g"})
+public class PlateIndexBenchmark {
+
+    private static final int QUERIES = 1 << 20;
+
+    private static String plate(int number, StringBuilder plate) {
+        appendPlate(number, plate);
+        return plate.toString();
+    }
+
+    /**
+     * Write in plate a distinct plate of the AA123AA kind for each number.
+     */
+    private static void appendPlate(int number, StringBuilder plate) {
+        plate.setLength(0);
+        plate.append((char) ('A' + number / 26 / 26 / 26 / 1000 % 26)).append((char) ('A' + number / 26 / 26 / 1000 % 26))
+                .append((char) ('0' + number / 100 % 10)).append((char) ('0' + number / 10 % 10)).append((char) ('0' + number % 10))
+                .append((char) ('A' + number / 26 / 1000 % 26)).append((char) ('A' + number / 1000 % 26));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Plates {
+        @Param({"1000000", "10000000"})
+        int plates;
+
+        LongIntHashMap longMap;
+        Map<String, Integer> hashMap;
+        String[] queries;
+        int next;
+
+        @Setup
+        public void setUp() {
+            StringBuilder plate = new StringBuilder();
+            longMap = new LongIntHashMap(plates);
+            hashMap = new HashMap<>(plates * 4 / 3 + 1);
+            for (int number = 0; number < plates; number++) {
+                String vehicleRegNumber = plate(number, plate);
+                longMap.put(PlateCodec.encode(vehicleRegNumber), number & 0x7F, -1);
+                hashMap.put(vehicleRegNumber, number & 0x7F);
+            }
+            // new Strings, as read from a request, spread over the whole map so lookups miss the CPU caches
+            queries = new String[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                queries[i] = plate((int) ((i * 0x9E3779B1L & 0xFFFFFFFFL) % plates), plate);
+            }
+        }
+
+        String nextQuery() {
+            return queries[next++ & (QUERIES - 1)];
+        }
+    }
+
+    @Benchmark
+    public int longMapGet(Plates state) {
+        return state.longMap.get(PlateCodec.encode(state.nextQuery()), -1);
+    }
+
+    @Benchmark
+    public Integer hashMapGet(Plates state) {
+        return state.hashMap.get(state.nextQuery());
+    }
+
+    @State(Scope.Thread)
+    public static class Size {
+        @Param({"10000000"})
+        int plates;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public LongIntHashMap longMapBuild(Size size) {
+        StringBuilder plate = new StringBuilder();
+        LongIntHashMap map = new LongIntHashMap(size.plates);
+        for (int number = 0; number < size.plates; number++) {
+            appendPlate(number, plate);
+            map.put(PlateCodec.encode(plate), number & 0x7F, -1);
+        }
+        return map;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Map<String, Integer> hashMapBuild(Size size) {
+        StringBuilder plate = new StringBuilder();
+        Map<String, Integer> map = new HashMap<>(size.plates * 4 / 3 + 1);
+        for (int number = 0; number < size.plates; number++) {
+            map.put(plate(number, plate), number & 0x7F);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.VehicleEntry;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-vehicle cost of letting a fleet of cars in, one processIncomingVehicle at a time against one
+ * processIncomingVehicles batch. Needs the MySQL test database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VehicleEntryBenchmark {
+
+    private static final int FLEET_SIZE = 50;
+
+    private final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+    private ParkingService parkingService;
+    private PrintStream console;
+    private int vehicle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        InputReaderUtil carDriver = new InputReaderUtil() {
+            @Override
+            public int readSelection() {
+                return 1;
+            }
+
+            @Override
+            public String readVehicleRegistrationNumber() {
+                return "FLEET" + (vehicle++ % FLEET_SIZE);
+            }
+        };
+        parkingService = new ParkingService(carDriver, parkingSpotDAO, ticketDAO);
+        dataBasePrepareService.addParkingSpots(6, FLEET_SIZE, ParkingType.CAR);
+        // the single entry path prints a receipt per vehicle
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyLot() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+        dataBasePrepareService.removeParkingSpotsFrom(6);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLEET_SIZE)
+    public void singleEntries() {
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            parkingService.processIncomingVehicle();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLEET_SIZE)
+    public List<VehicleEntry> batchEntry() {
+        List<VehicleEntry> fleet = new ArrayList<>(FLEET_SIZE);
+        for (int i = 0; i < FLEET_SIZE; i++) {
+            fleet.add(new VehicleEntry("FLEET" + i, ParkingType.CAR));
+        }
+        return parkingService.processIncomingVehicles(fleet);
+    }
+}
@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.service.ParkingHttpServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingHttpServerIT {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    private static final int GATES = 8;
+    private static final int CYCLES_PER_GATE = 20;
+
+    private ParkingHttpServer parkingHttpServer;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        dataBasePrepareService.addParkingSpots(6, GATES, ParkingType.CAR);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), parkingSpotDAO, ticketDAO);
+        parkingHttpServer = new ParkingHttpServer(parkingService, 0, GATES, 100);
+        parkingHttpServer.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        parkingHttpServer.stop(0);
+        dataBasePrepareService.removeParkingSpotsFrom(6);
+    }
+
+    private int post(String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + parkingHttpServer.getPort() + path).openConnection();
+        connection.setRequestMethod("POST");
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    @Test
+    public void concurrentGatesTest() throws Exception {
+        //GIVEN gates letting their own cars in and out at the same time
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        List<Future<Integer>> results = new ArrayList<>();
+        long begin = System.nanoTime();
+
+        //WHEN every gate runs its cycles
+        for (int gate = 0; gate < GATES; gate++) {
+            String vehicleRegNumber = "GATE" + gate;
+            results.add(gates.submit(() -> {
+                start.await();
+                int cycles = 0;
+                for (int i = 0; i < CYCLES_PER_GATE; i++) {
+                    assertEquals(200, post("/entry?vehicleRegNumber=" + vehicleRegNumber + "&type=CAR"));
+                    assertEquals(200, post("/exit?vehicleRegNumber=" + vehicleRegNumber));
+                    cycles++;
+                }
+                return cycles;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        gates.shutdown();
+        System.out.println(total + " entry/exit cycles in " + (System.nanoTime() - begin) / 1000000 + " ms");
+
+        //THEN every cycle succeeded
+        assertEquals(GATES * CYCLES_PER_GATE, total);
+    }
+}
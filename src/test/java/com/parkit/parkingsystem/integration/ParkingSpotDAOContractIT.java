@@ -0,0 +1,21 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.ParkingSpotStoreContract;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+
+public class ParkingSpotDAOContractIT extends ParkingSpotStoreContract {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @Override
+    protected ParkingSpotStore createParkingSpotStore() {
+        dataBasePrepareService.clearDataBaseEntries();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        return parkingSpotDAO;
+    }
+}
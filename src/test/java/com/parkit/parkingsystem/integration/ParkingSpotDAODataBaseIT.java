@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotDAODataBaseIT {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    // spots 1 to 3 of Data.sql plus the extra ones added for the test
+    private static final int EXTRA_CAR_SPOTS = 200;
+    private static final int CAR_SPOTS = 3 + EXTRA_CAR_SPOTS;
+    private static final int GATES = 8;
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    public void setUp() {
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        dataBasePrepareService.clearDataBaseEntries();
+        dataBasePrepareService.addParkingSpots(6, EXTRA_CAR_SPOTS, ParkingType.CAR);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataBasePrepareService.removeParkingSpotsFrom(6);
+    }
+
+    @Test
+    public void claimNextAvailableSlotTest() {
+        //WHEN claim two car spots
+        int first = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        int second = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+
+        //THEN lowest spots are reserved in DB
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(3, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentClaimsNeverReturnSameSpotTest() throws Exception {
+        assertNoDoubleAllocation();
+    }
+
+    @Test
+    public void concurrentIndexedClaimsNeverReturnSameSpotTest() throws Exception {
+        parkingSpotDAO.loadFreeSpotIndex();
+        assertNoDoubleAllocation();
+    }
+
+    private void assertNoDoubleAllocation() throws Exception {
+        //GIVEN gates starting together
+        Set<Integer> claimedSpots = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        //WHEN every gate claims car spots until the lot is full
+        for (int gate = 0; gate < GATES; gate++) {
+            results.add(gates.submit(() -> {
+                start.await();
+                int claimed = 0;
+                int number;
+                while ((number = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)) > 0) {
+                    assertTrue(claimedSpots.add(number), "spot " + number + " claimed twice");
+                    claimed++;
+                }
+                assertEquals(0, number);
+                return claimed;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        gates.shutdown();
+
+        //THEN each car spot was claimed exactly once
+        assertEquals(CAR_SPOTS, total);
+        assertEquals(CAR_SPOTS, claimedSpots.size());
+        assertEquals(0, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+}
@@ -0,0 +1,124 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ReplicaSet;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test schema as primary and the test_replica schema as its replica. Nothing replicates between them:
+ * each test writes to the replica what replication would have brought, a ticket only the replica has tells
+ * which database answered.
+ */
+public class ReplicaRoutingIT {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+    private static final DataBaseConfig replicaConfig = new DataBaseConfig("jdbc:mysql://localhost:3306/test_replica?serverTimezone=UTC");
+    private static final String VEHICLE_REG_NUMBER = "ABCDEF";
+    private static final long MAX_LAG_MS = 2000;
+
+    private TicketDAO ticketDAO;
+    // a thread that never wrote, so its reads may go to the replica
+    private ExecutorService reader;
+
+    @BeforeAll
+    public static void setUpReplica() throws Exception {
+        new SchemaMigrator(replicaConfig).migrate();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        executeOnReplica("truncate table ticket");
+        DataBaseTestConfig primaryConfig = new DataBaseTestConfig();
+        primaryConfig.setReplicaSet(new ReplicaSet(primaryConfig, Collections.singletonList(replicaConfig), MAX_LAG_MS, 0));
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = primaryConfig;
+        executeOnReplica("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(1, '"
+                + VEHICLE_REG_NUMBER + "', 1.5, '2020-01-01 10:00:00', '2020-01-01 11:00:00')");
+        reader = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reader.shutdownNow();
+    }
+
+    private static void executeOnReplica(String sql) throws Exception {
+        Connection con = null;
+        try {
+            con = replicaConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.execute();
+            }
+        } finally {
+            replicaConfig.closeConnection(con);
+        }
+    }
+
+    private int countFromReader() throws Exception {
+        return reader.submit(() -> ticketDAO.getNbTicket(VEHICLE_REG_NUMBER)).get();
+    }
+
+    @Test
+    public void readGoesToReplicaInTimeTest() throws Exception {
+        //GIVEN a replica that received the last heartbeat
+        executeOnReplica("update replica_heartbeat set BEAT = now(3)");
+
+        //WHEN counting the visits of the vehicle
+        int count = countFromReader();
+
+        //THEN the replica answers
+        assertEquals(1, count);
+    }
+
+    @Test
+    public void readAfterWriteStaysOnPrimaryTest() throws Exception {
+        //GIVEN a replica in time, and a thread that just saved a ticket
+        executeOnReplica("update replica_heartbeat set BEAT = now(3)");
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("GHIJKL");
+        ticket.setInTime(new Date());
+
+        //WHEN that thread counts the visits of the vehicle
+        int count = reader.submit(() -> {
+            ticketDAO.saveTicket(ticket);
+            return ticketDAO.getNbTicket(VEHICLE_REG_NUMBER);
+        }).get();
+
+        //THEN the primary answers
+        assertEquals(0, count);
+    }
+
+    @Test
+    public void replicaTooFarBehindFallsBackToPrimaryTest() throws Exception {
+        //GIVEN a replica whose last heartbeat is older than the max lag
+        executeOnReplica("update replica_heartbeat set BEAT = now(3) - interval " + 5 * MAX_LAG_MS / 1000 + " second");
+
+        //WHEN counting the visits of the vehicle
+        int count = countFromReader();
+
+        //THEN the primary answers
+        assertEquals(0, count);
+    }
+}
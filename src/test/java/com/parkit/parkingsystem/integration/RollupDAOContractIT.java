@@ -0,0 +1,21 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.RollupStoreContract;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.RollupStore;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+
+public class RollupDAOContractIT extends RollupStoreContract {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @Override
+    protected RollupStore createRollupStore() {
+        dataBasePrepareService.clearDataBaseEntries();
+        RollupDAO rollupDAO = new RollupDAO();
+        rollupDAO.dataBaseConfig = dataBaseTestConfig;
+        return rollupDAO;
+    }
+}
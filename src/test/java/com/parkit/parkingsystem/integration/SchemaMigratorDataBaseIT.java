@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaMigratorDataBaseIT {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    // enough rows for the optimizer to prefer an index over a scan
+    private static final int EXTRA_SPOTS = 1000;
+    private static final int TICKETS = 1000;
+
+    /**
+     * Sample parameters of each query checked, by DBConstants field name.
+     * Inserts, GET_PARKING_SPOTS and GET_TICKET_FREQS, which read the whole lot and every vehicle on purpose, are left out.
+     */
+    private static final Map<String, Object[]> QUERY_PARAMETERS = new HashMap<>();
+
+    static {
+        QUERY_PARAMETERS.put("GET_NEXT_PARKING_SPOT", new Object[]{"CAR"});
+        QUERY_PARAMETERS.put("GET_AVAILABLE_PARKING_SPOT_COUNTS", new Object[]{});
+        QUERY_PARAMETERS.put("UPDATE_PARKING_SPOT", new Object[]{true, 1});
+        QUERY_PARAMETERS.put("CLAIM_AVAILABLE_PARKING_SPOTS", new Object[]{"CAR", 10});
+        QUERY_PARAMETERS.put("CLAIM_PARKING_SPOT", new Object[]{1});
+        QUERY_PARAMETERS.put("UPDATE_TICKET", new Object[]{1.5, new Timestamp(0), 1});
+        QUERY_PARAMETERS.put("UPDATE_TICKET_PRICE", new Object[]{1.5, 1});
+        QUERY_PARAMETERS.put("GET_TICKET", new Object[]{"VEH42"});
+        QUERY_PARAMETERS.put("GET_OPEN_TICKETS", new Object[]{});
+        QUERY_PARAMETERS.put("GET_ARCHIVED_TICKET", new Object[]{"VEH42"});
+        QUERY_PARAMETERS.put("GET_CLOSED_TICKETS", new Object[]{new Timestamp(0), new Timestamp(10000)});
+        QUERY_PARAMETERS.put("GET_ARCHIVED_CLOSED_TICKETS", new Object[]{new Timestamp(0), new Timestamp(10000)});
+        QUERY_PARAMETERS.put("GET_TICKET_FREQ", new Object[]{"VEH42", "VEH42"});
+        QUERY_PARAMETERS.put("UPDATE_ARCHIVED_TICKET_PRICE", new Object[]{1.5, 1, new Timestamp(500)});
+        QUERY_PARAMETERS.put("GET_ARCHIVE_BATCH_END", new Object[]{new Timestamp(10000), 10});
+        QUERY_PARAMETERS.put("DELETE_ARCHIVED_TICKETS", new Object[]{new Timestamp(0)});
+        QUERY_PARAMETERS.put("DELETE_HOURLY_ROLLUPS", new Object[]{new Timestamp(0), new Timestamp(3600000)});
+        QUERY_PARAMETERS.put("GET_HOURLY_ROLLUPS", new Object[]{new Timestamp(0), new Timestamp(3600000)});
+    }
+
+    @BeforeAll
+    public static void setUp() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        dataBasePrepareService.addParkingSpots(6, EXTRA_SPOTS, ParkingType.CAR);
+        Connection con = null;
+        try {
+            con = dataBaseTestConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+                for (int i = 0; i < TICKETS; i++) {
+                    ps.setInt(1, 6 + i % EXTRA_SPOTS);
+                    ps.setString(2, "VEH" + i);
+                    ps.setDouble(3, 1.5);
+                    ps.setTimestamp(4, new Timestamp(i * 1000L));
+                    ps.setTimestamp(5, new Timestamp(i * 1000L + 500));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (Statement st = con.createStatement()) {
+                st.execute("analyze table parking, ticket");
+            }
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        dataBasePrepareService.removeParkingSpotsFrom(6);
+    }
+
+    @Test
+    public void migrateAppliesEachScriptOnceTest() throws Exception {
+        //GIVEN the test database migrated by DataBasePrepareService
+
+        //WHEN migrating again
+        int applied = new SchemaMigrator(dataBaseTestConfig).migrate();
+
+        //THEN nothing is applied
+        assertEquals(0, applied);
+    }
+
+    @Test
+    public void everyQueryUsesAnIndexTest() throws Exception {
+        for (Field field : DBConstants.class.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) {
+                continue;
+            }
+            String sql = (String) field.get(null);
+            if (sql.startsWith("insert") || field.getName().equals("GET_PARKING_SPOTS") || field.getName().equals("GET_TICKET_FREQS")) {
+                continue;
+            }
+            //GIVEN a query of DBConstants
+            Object[] parameters = QUERY_PARAMETERS.get(field.getName());
+            assertNotNull(parameters, "no sample parameters for " + field.getName());
+
+            //WHEN explaining it
+            //THEN every table it reads is accessed through an index
+            assertUsesIndex(field.getName(), sql, parameters);
+        }
+    }
+
+    private void assertUsesIndex(String name, String sql, Object[] parameters) throws Exception {
+        Connection con = null;
+        try {
+            con = dataBaseTestConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement("explain " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    ps.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next(), "no plan for " + name);
+                    do {
+                        String key = rs.getString("key");
+                        String extra = rs.getString("Extra");
+                        boolean optimizedAway = extra != null && (extra.contains("optimized away") || extra.contains("No tables used"));
+                        // <union..>, <derived..> and <subquery..> are results of parts of the query, explained on their own rows
+                        String table = rs.getString("table");
+                        boolean intermediate = table != null && table.startsWith("<");
+                        assertTrue(key != null || optimizedAway || intermediate,
+                                name + " reads " + rs.getString("table") + " without an index: " + extra);
+                    } while (rs.next());
+                }
+            }
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.TicketStoreContract;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+
+public class TicketDAOContractIT extends TicketStoreContract {
+
+    private static final DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static final DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @Override
+    protected TicketStore createTicketStore() {
+        dataBasePrepareService.clearDataBaseEntries();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        // open tickets are only tracked once the cache is loaded
+        ticketDAO.loadOpenTicketCache();
+        return ticketDAO;
+    }
+}
@@ -4,8 +4,13 @@ import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ArchiveReport;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.RepricingReport;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.TicketArchiveJob;
+import com.parkit.parkingsystem.service.TicketRepricingJob;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -128,4 +133,122 @@ public class TicketDAODataBaseIT {
         assertEquals(2, count);
     }
 
+    @Test
+    public void openTicketCacheTest() {
+        //GIVEN a vehicle parked once the open tickets are loaded
+        ticketDAO.loadOpenTicketCache();
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+        ticket.setInTime(new Date(4450000));
+        boolean saved = ticketDAO.saveTicket(ticket);
+
+        //WHEN it enters again, then exits
+        Ticket secondTicket = new Ticket();
+        secondTicket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        secondTicket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+        secondTicket.setInTime(new Date(5550000));
+        boolean savedAgain = ticketDAO.saveTicket(secondTicket);
+        Ticket openTicket = ticketDAO.getOpenTicket(VEHICLE_REG_NUMBER);
+        openTicket.setOutTime(new Date(6660000));
+        openTicket.setPrice(1.5);
+        ticketDAO.updateTicket(openTicket);
+
+        //THEN the second entry is refused and the exit closes the saved ticket
+        assertTrue(saved);
+        assertFalse(savedAgain);
+        assertSame(ticket, openTicket);
+        assertTrue(ticket.getId() > 0);
+        assertNull(ticketDAO.getOpenTicket(VEHICLE_REG_NUMBER));
+        assertEquals(1.5, ticketDAO.getTicket(VEHICLE_REG_NUMBER).getPrice());
+    }
+
+    @Test
+    public void getNbTicketFromFrequencyCacheTest() {
+        //GIVEN a vehicle that came once, and is parked again
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR, false);
+        Ticket firstTicket = new Ticket();
+        firstTicket.setParkingSpot(parkingSpot);
+        firstTicket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+        firstTicket.setInTime(new Date(100000));
+        firstTicket.setOutTime(new Date(250000));
+        ticketDAO.saveTicket(firstTicket);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+        ticket.setInTime(new Date(4450000));
+        ticketDAO.saveTicket(ticket);
+
+        //WHEN frequencies are loaded and the vehicle exits
+        ticketDAO.loadTicketFrequencyCache(10);
+        int countBeforeExit = ticketDAO.getNbTicket(VEHICLE_REG_NUMBER);
+        ticket = ticketDAO.getTicket(VEHICLE_REG_NUMBER);
+        ticket.setOutTime(new Date(6660000));
+        ticketDAO.updateTicket(ticket);
+
+        //THEN the cache counts the closed ticket
+        assertEquals(1, countBeforeExit);
+        assertEquals(Integer.valueOf(2), ticketDAO.getTicketFrequencyCache().get(VEHICLE_REG_NUMBER));
+        assertEquals(2, ticketDAO.getNbTicket(VEHICLE_REG_NUMBER).intValue());
+    }
+
+    @Test
+    public void repricingTest() throws Exception {
+        //GIVEN a vehicle that came twice for one hour, saved without price
+        for (int i = 0; i < 2; i++) {
+            Ticket closedTicket = new Ticket();
+            closedTicket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            closedTicket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+            closedTicket.setInTime(new Date(i * 86400000L));
+            closedTicket.setOutTime(new Date(i * 86400000L + 3600000));
+            ticketDAO.saveTicket(closedTicket);
+        }
+
+        //WHEN re-pricing the tickets closed on the second day
+        TicketRepricingJob ticketRepricingJob = new TicketRepricingJob(ticketDAO, new FareCalculatorService(), 2, 10);
+        RepricingReport report = ticketRepricingJob.run(new Date(86400000L), new Date(2 * 86400000L));
+
+        //THEN only that ticket is priced, with the regular customer discount
+        assertTrue(report.isComplete());
+        assertEquals(1, report.getRead());
+        assertEquals(1, report.getChanged());
+        assertEquals(1.42, ticketDAO.getTicket(VEHICLE_REG_NUMBER).getPrice());
+    }
+
+    @Test
+    public void archiveClosedTicketsTest() throws Exception {
+        //GIVEN a vehicle that came twice for one hour long ago, saved without price, and is parked now
+        for (int i = 0; i < 2; i++) {
+            Ticket closedTicket = new Ticket();
+            closedTicket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            closedTicket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+            closedTicket.setInTime(new Date(i * 86400000L));
+            closedTicket.setOutTime(new Date(i * 86400000L + 3600000));
+            ticketDAO.saveTicket(closedTicket);
+        }
+        Ticket oldTicket = new Ticket();
+        oldTicket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        oldTicket.setVehicleRegNumber("GHIJKL");
+        oldTicket.setInTime(new Date(0));
+        oldTicket.setOutTime(new Date(3600000));
+        ticketDAO.saveTicket(oldTicket);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(VEHICLE_REG_NUMBER);
+        ticket.setInTime(new Date());
+        ticketDAO.saveTicket(ticket);
+
+        //WHEN archiving the tickets closed before yesterday one at a time
+        ArchiveReport report = new TicketArchiveJob(ticketDAO, 1, 0).run(new Date(System.currentTimeMillis() - 86400000L));
+
+        //THEN the closed tickets are moved, still counted and re-priced, and the open ticket is read from the ticket table
+        assertTrue(report.isComplete());
+        assertEquals(3, report.getMoved());
+        assertEquals(2, ticketDAO.getNbTicket(VEHICLE_REG_NUMBER).intValue());
+        assertNull(ticketDAO.getTicket(VEHICLE_REG_NUMBER).getOutTime());
+        assertEquals(ticket.getId(), ticketDAO.getOpenTicket(VEHICLE_REG_NUMBER).getId());
+        assertEquals(new Date(3600000), ticketDAO.getTicket("GHIJKL").getOutTime());
+        RepricingReport repricing = new TicketRepricingJob(ticketDAO, new FareCalculatorService(), 2, 10)
+                .run(new Date(86400000L), new Date(2 * 86400000L));
+        assertEquals(1, repricing.getChanged());
+        assertEquals(0, ticketDAO.archiveClosedTickets(new Date(System.currentTimeMillis() - 86400000L), 10));
+    }
 }
@@ -1,23 +1,47 @@
 package com.parkit.parkingsystem.integration.service;
 
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DataBasePrepareService {
 
+    private static final AtomicBoolean migrated = new AtomicBoolean();
+
     DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
 
+    public DataBasePrepareService() {
+        // the test schema gets the same migrations as prod, once per test run
+        if (migrated.compareAndSet(false, true)) {
+            try {
+                new SchemaMigrator(dataBaseTestConfig).migrate();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     public void clearDataBaseEntries(){
         Connection connection = null;
         try{
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            execute(connection, "update parking set available = true");
 
             //clear ticket entries;
-            connection.prepareStatement("truncate table ticket").execute();
+            execute(connection, "truncate table ticket");
+
+            //clear hourly rollups
+            execute(connection, "truncate table rollup_hourly");
+
+            //clear archived tickets
+            execute(connection, "truncate table ticket_archive");
+            execute(connection, "truncate table ticket_archive_count");
 
         }catch(Exception e){
             e.printStackTrace();
@@ -26,5 +50,46 @@ public class DataBasePrepareService {
         }
     }
 
+    public void addParkingSpots(int firstNumber, int count, ParkingType parkingType){
+        Connection connection = null;
+        PreparedStatement ps = null;
+        try{
+            connection = dataBaseTestConfig.getConnection();
+            ps = dataBaseTestConfig.prepareStatement(connection, "insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)");
+            for (int number = firstNumber; number < firstNumber + count; number++) {
+                ps.setInt(1, number);
+                ps.setString(2, parkingType.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }catch(Exception e){
+            e.printStackTrace();
+        }finally {
+            dataBaseTestConfig.closePreparedStatement(ps);
+            dataBaseTestConfig.closeConnection(connection);
+        }
+    }
 
+    public void removeParkingSpotsFrom(int firstNumber){
+        Connection connection = null;
+        try{
+            connection = dataBaseTestConfig.getConnection();
+            execute(connection, "truncate table ticket");
+            execute(connection, "delete from parking where PARKING_NUMBER >= " + firstNumber);
+        }catch(Exception e){
+            e.printStackTrace();
+        }finally {
+            dataBaseTestConfig.closeConnection(connection);
+        }
+    }
+
+    private void execute(Connection connection, String sql) throws Exception {
+        PreparedStatement ps = null;
+        try {
+            ps = dataBaseTestConfig.prepareStatement(connection, sql);
+            ps.execute();
+        } finally {
+            dataBaseTestConfig.closePreparedStatement(ps);
+        }
+    }
 }